@@ -0,0 +1,104 @@
+#!/usr/bin/env node
+// Chat delivery latency against group size: one member sends, every connected
+// member's receive time is measured from the send. Each step connects more members
+// to the same group room, so the numbers show how fan-out and the membership check
+// on every SEND scale with member count.
+//
+// Usage (from the repo root, after `npm install`; Node 22+ for the global WebSocket):
+//   TOKENS=<jwt>,<jwt>,... node backend/scripts/bench-delivery-latency.mjs [messagesPerStep]
+//
+// Each token must belong to a different user; the first one creates the room and
+// sends. Steps double from 2 members up to the number of tokens. BASE_URL defaults
+// to http://localhost:8080/api.
+
+import { Client } from '@stomp/stompjs'
+
+const BASE_URL = process.env.BASE_URL ?? 'http://localhost:8080/api'
+const TOKENS = (process.env.TOKENS ?? '').split(',').map((t) => t.trim()).filter(Boolean)
+const MESSAGES = Number(process.argv[2] ?? 50)
+
+if (TOKENS.length < 2) {
+  console.error('TOKENS must hold at least two JWTs of different users, comma-separated')
+  process.exit(1)
+}
+
+const percentile = (values, p) => {
+  const sorted = [...values].sort((a, b) => a - b)
+  return sorted[Math.min(sorted.length - 1, Math.floor(sorted.length * p))]
+}
+
+async function post(path, token) {
+  const res = await fetch(`${BASE_URL}${path}`, {
+    method: 'POST',
+    headers: { Authorization: `Bearer ${token}` },
+  })
+  if (!res.ok) throw new Error(`POST ${path}: ${res.status} ${await res.text()}`)
+  return res.json()
+}
+
+function connect(token) {
+  return new Promise((resolve, reject) => {
+    const client = new Client({
+      brokerURL: `${BASE_URL.replace(/^http/, 'ws')}/ws/native/room`,
+      connectHeaders: { Authorization: `Bearer ${token}` },
+      reconnectDelay: 0,
+      heartbeatIncoming: 0,
+      heartbeatOutgoing: 0,
+    })
+    client.onConnect = () => resolve(client)
+    client.onStompError = (frame) => reject(new Error(frame.headers.message))
+    client.onWebSocketError = reject
+    client.activate()
+  })
+}
+
+const room = await post('/rooms/group/chat', TOKENS[0])
+for (const token of TOKENS.slice(1)) {
+  await post(`/rooms/${room.id}/join`, token)
+}
+console.log(`room ${room.id} with ${TOKENS.length} members`)
+
+// clientMessageId -> { sentAt, remaining, latencies }
+const inFlight = new Map()
+const clients = []
+
+const steps = []
+for (let n = 2; n < TOKENS.length; n *= 2) steps.push(n)
+steps.push(TOKENS.length)
+
+for (const members of steps) {
+  while (clients.length < members) {
+    const client = await connect(TOKENS[clients.length])
+    client.subscribe(`/room/${room.id}/messages`, (frame) => {
+      const entry = inFlight.get(JSON.parse(frame.body).clientMessageId)
+      if (!entry) return
+      entry.latencies.push(performance.now() - entry.sentAt)
+      if (--entry.remaining === 0) entry.done()
+    })
+    clients.push(client)
+  }
+
+  const all = []
+  const last = []
+  for (let i = 0; i < MESSAGES; i++) {
+    const clientMessageId = crypto.randomUUID()
+    await new Promise((done) => {
+      const entry = { sentAt: performance.now(), remaining: members, latencies: [], done }
+      inFlight.set(clientMessageId, entry)
+      clients[0].publish({
+        destination: `/app/chat/send/${room.id}`,
+        body: JSON.stringify({ content: `bench ${i}`, clientMessageId }),
+      })
+    })
+    const { latencies } = inFlight.get(clientMessageId)
+    inFlight.delete(clientMessageId)
+    all.push(...latencies)
+    last.push(Math.max(...latencies))
+  }
+
+  console.log(`${String(members).padStart(4)} members: per-recipient p50=${percentile(all, 0.5).toFixed(2)}ms`
+    + ` p99=${percentile(all, 0.99).toFixed(2)}ms; last recipient p50=${percentile(last, 0.5).toFixed(2)}ms`
+    + ` p99=${percentile(last, 0.99).toFixed(2)}ms`)
+}
+
+await Promise.all(clients.map((client) => client.deactivate()))
@@ -0,0 +1,136 @@
+// Compares the two message.storage.mode retention strategies on a real mongod:
+//   ttl      - one collection, TTL index on expiresAt, the TTL monitor deletes
+//   bucketed - hourly collections, expired ones dropped whole
+//
+// Each mode inserts a first generation of messages that is already expired, then
+// inserts a second generation while retention removes the first. Reported per mode:
+// insert throughput of the second generation (the one competing with retention),
+// how long retention took, documents the TTL monitor deleted, bytes WiredTiger
+// wrote, and the free-but-unreturned bytes left in the collection files.
+//
+// Usage (uses its own database, dropped at the end):
+//   mongosh "$MONGODB_URI" backend/scripts/bench-message-retention.js
+//   MESSAGES=500000 BUCKETS=24 mongosh "$MONGODB_URI" backend/scripts/bench-message-retention.js
+//
+// Speeding up the TTL monitor needs setParameter rights; without them the ttl run
+// waits up to a minute for the monitor's next pass.
+
+const MESSAGES = Number(process.env.MESSAGES ?? 200000)
+const BUCKETS = Number(process.env.BUCKETS ?? 24)
+const BATCH = 1000
+const bench = db.getSiblingDB('clype_retention_bench')
+
+try {
+  db.adminCommand({ setParameter: 1, ttlMonitorSleepSecs: 1 })
+} catch (e) {
+  print(`ttlMonitorSleepSecs not changed (${e.codeName ?? e.message}); ttl run may wait for the next pass`)
+}
+
+const serverCounters = () => {
+  const status = db.adminCommand({ serverStatus: 1 })
+  return {
+    ttlDeleted: Number(status.metrics.ttl.deletedDocuments),
+    bytesWritten: Number(status.wiredTiger['block-manager']['bytes written']),
+  }
+}
+
+// Same shape and rough size as a stored chat message
+const message = (i, createdAt, expiresAt) => ({
+  _id: UUID().toString() + '-' + i,
+  roomId: 'room-' + (i % 500),
+  senderId: 'user-' + (i % 1000),
+  senderUsername: 'bench user',
+  content: 'x'.repeat(120),
+  type: 'TEXT',
+  createdAt,
+  expiresAt,
+})
+
+const insertGeneration = (collectionFor, expired) => {
+  const now = Date.now()
+  const start = Date.now()
+  for (let from = 0; from < MESSAGES; from += BATCH) {
+    const byCollection = {}
+    for (let i = from; i < Math.min(from + BATCH, MESSAGES); i++) {
+      const name = collectionFor(i)
+      const expiresAt = new Date(expired ? now - 1000 : now + 86400000)
+      ;(byCollection[name] ??= []).push(message(i, new Date(now), expiresAt))
+    }
+    for (const [name, docs] of Object.entries(byCollection)) {
+      bench.getCollection(name).insertMany(docs, { ordered: false })
+    }
+  }
+  return MESSAGES / ((Date.now() - start) / 1000)
+}
+
+const freeBytes = (names) => names
+  .filter((name) => bench.getCollectionNames().includes(name))
+  .reduce((sum, name) => sum + Number(bench.getCollection(name).stats().freeStorageSize ?? 0), 0)
+
+const report = (mode, result) => {
+  print(`\n${mode}`)
+  print(`  insert throughput during retention: ${Math.round(result.throughput)} msg/s`)
+  print(`  retention wall time:                ${result.retentionMillis} ms`)
+  print(`  documents deleted one by one:       ${result.ttlDeleted}`)
+  print(`  bytes written by WiredTiger:        ${(result.bytesWritten / 1048576).toFixed(1)} MiB`)
+  print(`  free bytes left in data files:      ${(result.freeBytes / 1048576).toFixed(1)} MiB`)
+}
+
+bench.dropDatabase()
+
+// ===== TTL =====
+{
+  const coll = bench.getCollection('messages')
+  coll.createIndex({ roomId: 1, _id: 1 }, { name: 'room_id_idx' })
+  insertGeneration(() => 'messages', true)
+  // Created after the first generation so the monitor can't start deleting early
+  coll.createIndex({ expiresAt: 1 }, { name: 'message_expires_ttl', expireAfterSeconds: 0 })
+
+  const before = serverCounters()
+  const retentionStart = Date.now()
+  const throughput = insertGeneration(() => 'messages', false)
+  while (coll.countDocuments({ expiresAt: { $lt: new Date() } }) > 0) {
+    sleep(500)
+  }
+  const retentionMillis = Date.now() - retentionStart
+  const after = serverCounters()
+
+  report('ttl', {
+    throughput,
+    retentionMillis,
+    ttlDeleted: after.ttlDeleted - before.ttlDeleted,
+    bytesWritten: after.bytesWritten - before.bytesWritten,
+    freeBytes: freeBytes(['messages']),
+  })
+}
+
+bench.dropDatabase()
+
+// ===== BUCKETED =====
+{
+  const oldBuckets = [...Array(BUCKETS).keys()].map((b) => `messages_old_${b}`)
+  const newBuckets = [...Array(BUCKETS).keys()].map((b) => `messages_new_${b}`)
+  for (const name of [...oldBuckets, ...newBuckets]) {
+    bench.getCollection(name).createIndex({ roomId: 1, _id: 1 }, { name: 'room_id_idx' })
+  }
+  insertGeneration((i) => oldBuckets[i % BUCKETS], true)
+
+  const before = serverCounters()
+  const retentionStart = Date.now()
+  for (const name of oldBuckets) {
+    bench.getCollection(name).drop()
+  }
+  const retentionMillis = Date.now() - retentionStart
+  const throughput = insertGeneration((i) => newBuckets[i % BUCKETS], false)
+  const after = serverCounters()
+
+  report('bucketed', {
+    throughput,
+    retentionMillis,
+    ttlDeleted: after.ttlDeleted - before.ttlDeleted,
+    bytesWritten: after.bytesWritten - before.bytesWritten,
+    freeBytes: freeBytes(newBuckets),
+  })
+}
+
+bench.dropDatabase()
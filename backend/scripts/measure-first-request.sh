@@ -0,0 +1,56 @@
+#!/usr/bin/env bash
+# Measures the latency of the first requests after readiness, with and without the
+# warm-up phase (warmup.enabled). Each run starts a fresh JVM, waits for
+# GET /api/health/readiness to return 200, then times the first few requests.
+#
+# Usage: TOKEN=<jwt> ./scripts/measure-first-request.sh [requests]
+#
+# Build first with `mvn package`. MONGODB_URI, JWT_SECRET, JWT_EXPIRATION and
+# GOOGLE_* must be set as for a normal run.
+
+set -euo pipefail
+
+REQUESTS="${1:-5}"
+PORT="${SERVER_PORT:-8080}"
+BASE="http://localhost:${PORT}/api"
+
+if [[ -z "${TOKEN:-}" ]]; then
+  echo "TOKEN must be set to a valid JWT" >&2
+  exit 1
+fi
+
+cd "$(dirname "$0")/.."
+
+run() {
+  local warmup="$1"
+  WARMUP_ENABLED="$warmup" java -jar target/backend-1.0.0.jar > target/first-request-warmup-"$warmup".log 2>&1 &
+  local pid=$!
+  trap 'kill $pid 2>/dev/null || true' RETURN
+
+  local start ready
+  start=$(date +%s%N)
+  until curl -sf -o /dev/null "${BASE}/health/readiness"; do
+    if ! kill -0 "$pid" 2>/dev/null; then
+      echo "Backend exited before becoming ready, see target/first-request-warmup-$warmup.log" >&2
+      exit 1
+    fi
+    sleep 0.05
+  done
+  ready=$(date +%s%N)
+
+  echo "warmup=$warmup: ready after $(( (ready - start) / 1000000 )) ms"
+  for i in $(seq 1 "$REQUESTS"); do
+    local create ice
+    create=$(curl -s -o /dev/null -w '%{time_total}' -X POST \
+        -H "Authorization: Bearer ${TOKEN}" "${BASE}/rooms/my-address/CHAT")
+    ice=$(curl -s -o /dev/null -w '%{time_total}' \
+        -H "Authorization: Bearer ${TOKEN}" "${BASE}/rooms/ice-servers")
+    echo "  request $i: my-address ${create}s, ice-servers ${ice}s"
+  done
+
+  kill "$pid" 2>/dev/null || true
+  wait "$pid" 2>/dev/null || true
+}
+
+run false
+run true
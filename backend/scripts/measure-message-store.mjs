@@ -0,0 +1,121 @@
+#!/usr/bin/env node
+// Send and history-fetch latency for the configured message.storage.mode. Run it
+// once per mode against the same room size and compare:
+//
+//   send->echo       STOMP SEND to the broadcast coming back (what the sender sees)
+//   send->readable   a burst of sends until the last one is returned by history,
+//                    i.e. until every write has reached the store
+//   history          GET /rooms/{id}/snapshot?messages=N (recent messages read)
+//   search           GET /rooms/{id}/messages/search (index hits fetched by id)
+//
+// It finishes by printing /stats/message-store, and for the Mongo-backed modes the
+// messages.* command timings from /stats/mongo, which isolate the store from the
+// HTTP and STOMP overhead.
+//
+// Usage (from the repo root, after `npm install`; Node 22+ for the global WebSocket):
+//   MESSAGE_STORAGE_MODE=ttl ...start the backend...
+//   TOKEN=<jwt> ROOM_ID=<room you are a member of> node backend/scripts/measure-message-store.mjs [sends]
+//   MESSAGE_STORAGE_MODE=log ...restart the backend, same command again...
+//
+// BASE_URL defaults to http://localhost:8080/api.
+
+import { Client } from '@stomp/stompjs'
+
+const BASE_URL = process.env.BASE_URL ?? 'http://localhost:8080/api'
+const TOKEN = process.env.TOKEN
+const ROOM_ID = process.env.ROOM_ID
+const SENDS = Number(process.argv[2] ?? 500)
+const HISTORY = 50
+
+if (!TOKEN || !ROOM_ID) {
+  console.error('TOKEN and ROOM_ID must be set')
+  process.exit(1)
+}
+
+const percentile = (values, p) => {
+  const sorted = [...values].sort((a, b) => a - b)
+  return sorted[Math.min(sorted.length - 1, Math.floor(sorted.length * p))]
+}
+const summary = (values) =>
+  `p50=${percentile(values, 0.5).toFixed(2)}ms p99=${percentile(values, 0.99).toFixed(2)}ms`
+
+const get = async (path) => {
+  const response = await fetch(`${BASE_URL}${path}`, { headers: { Authorization: `Bearer ${TOKEN}` } })
+  if (!response.ok) throw new Error(`${path}: ${response.status}`)
+  return response.json()
+}
+
+const timed = async (path) => {
+  const start = performance.now()
+  await get(path)
+  return performance.now() - start
+}
+
+const client = await new Promise((resolve, reject) => {
+  const stomp = new Client({
+    brokerURL: `${BASE_URL.replace(/^http/, 'ws')}/ws/native/room`,
+    connectHeaders: { Authorization: `Bearer ${TOKEN}` },
+    reconnectDelay: 0,
+  })
+  stomp.onConnect = () => resolve(stomp)
+  stomp.onStompError = (frame) => reject(new Error(frame.headers.message))
+  stomp.activate()
+})
+
+const echoes = new Map()
+client.subscribe(`/room/${ROOM_ID}/messages`, (frame) => {
+  const { clientMessageId } = JSON.parse(frame.body)
+  echoes.get(clientMessageId)?.()
+})
+
+const send = (content) => {
+  const clientMessageId = crypto.randomUUID()
+  const echoed = new Promise((resolve) => echoes.set(clientMessageId, resolve))
+  client.publish({
+    destination: `/app/chat/send/${ROOM_ID}`,
+    body: JSON.stringify({ content, clientMessageId }),
+  })
+  return { clientMessageId, echoed }
+}
+
+// send->echo, one at a time
+const echoLatencies = []
+for (let i = 0; i < SENDS; i++) {
+  const start = performance.now()
+  await send(`bench ${i} ${'x'.repeat(100)}`).echoed
+  echoLatencies.push(performance.now() - start)
+}
+console.log(`send->echo      ${summary(echoLatencies)}`)
+
+// send->readable, one burst
+const burst = Math.min(SENDS, 200)
+const burstStart = performance.now()
+let last
+for (let i = 0; i < burst; i++) {
+  last = send(`burst ${i}`)
+}
+await last.echoed
+for (;;) {
+  const snapshot = await get(`/rooms/${ROOM_ID}/snapshot?messages=${HISTORY}`)
+  if (snapshot.messages.some((message) => message.clientMessageId === last.clientMessageId)) break
+}
+console.log(`send->readable  ${burst} messages in ${(performance.now() - burstStart).toFixed(1)}ms`)
+
+const history = []
+const search = []
+for (let i = 0; i < 200; i++) {
+  history.push(await timed(`/rooms/${ROOM_ID}/snapshot?messages=${HISTORY}`))
+  search.push(await timed(`/rooms/${ROOM_ID}/messages/search?q=bench&limit=20`))
+}
+console.log(`history         ${summary(history)}`)
+console.log(`search          ${summary(search)}`)
+
+await client.deactivate()
+
+console.log('\n/stats/message-store', await get('/stats/message-store'))
+const mongo = await get('/stats/mongo')
+const messageCommands = Object.fromEntries(
+  Object.entries(mongo.collections ?? {}).filter(([name]) => name.startsWith('messages')))
+if (Object.keys(messageCommands).length > 0) {
+  console.log('/stats/mongo messages*', messageCommands)
+}
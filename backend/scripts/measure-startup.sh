@@ -0,0 +1,61 @@
+#!/usr/bin/env bash
+# Measures time from JVM launch to the first successful POST /api/rooms/my-address/CHAT.
+#
+# Usage: TOKEN=<jwt> ./scripts/measure-startup.sh [default|fast]
+#   default - plain `java -jar` of target/backend-1.0.0.jar
+#   fast    - exploded jar with AOT + "fast" profile + AppCDS (archive is trained on first use)
+#
+# Build first with `mvn package` (default) or `mvn -Pfast-startup package` (fast).
+# MONGODB_URI, JWT_SECRET, JWT_EXPIRATION and GOOGLE_* must be set as for a normal run.
+
+set -euo pipefail
+
+MODE="${1:-default}"
+PORT="${SERVER_PORT:-8080}"
+URL="http://localhost:${PORT}/api/rooms/my-address/CHAT"
+
+if [[ -z "${TOKEN:-}" ]]; then
+  echo "TOKEN must be set to a valid JWT" >&2
+  exit 1
+fi
+
+cd "$(dirname "$0")/.."
+
+case "$MODE" in
+  default)
+    CMD=(java -jar target/backend-1.0.0.jar)
+    ;;
+  fast)
+    rm -rf target/app && mkdir -p target/app
+    (cd target/app && jar -xf ../backend-1.0.0.jar)
+    FAST_OPTS=(-Dspring.aot.enabled=true -Dspring.profiles.active=fast)
+    (cd target/app && java -XX:ArchiveClassesAtExit=app.jsa -Dspring.context.exit=onRefresh \
+        "${FAST_OPTS[@]}" org.springframework.boot.loader.launch.JarLauncher > ../cds-training.log 2>&1)
+    CMD=(java -XX:SharedArchiveFile=app.jsa -XX:TieredStopAtLevel=1 "${FAST_OPTS[@]}"
+         org.springframework.boot.loader.launch.JarLauncher)
+    ;;
+  *)
+    echo "Unknown mode: $MODE" >&2
+    exit 1
+    ;;
+esac
+
+start=$(date +%s%N)
+if [[ "$MODE" == "fast" ]]; then
+  (cd target/app && exec "${CMD[@]}") > target/startup-"$MODE".log 2>&1 &
+else
+  "${CMD[@]}" > target/startup-"$MODE".log 2>&1 &
+fi
+pid=$!
+trap 'kill $pid 2>/dev/null || true' EXIT
+
+until curl -sf -o /dev/null -X POST -H "Authorization: Bearer ${TOKEN}" "$URL"; do
+  if ! kill -0 "$pid" 2>/dev/null; then
+    echo "Backend exited before serving a request, see target/startup-$MODE.log" >&2
+    exit 1
+  fi
+  sleep 0.05
+done
+end=$(date +%s%N)
+
+echo "$MODE: first successful my-address request after $(( (end - start) / 1000000 )) ms"
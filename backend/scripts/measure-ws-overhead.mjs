@@ -0,0 +1,93 @@
+#!/usr/bin/env node
+// Compares the SockJS and raw WebSocket STOMP endpoints: connect latency (socket
+// creation to STOMP CONNECTED), receipt round trip for a chat-sized SEND, and the
+// bytes each transport puts on the wire per frame.
+//
+// Usage (from the repo root, after `npm install`; Node 22+ for the global WebSocket):
+//   TOKEN=<jwt> ROOM_ID=<room> node backend/scripts/measure-ws-overhead.mjs [iterations]
+//
+// BASE_URL defaults to http://localhost:8080/api/ws.
+
+import SockJS from 'sockjs-client'
+import { Client } from '@stomp/stompjs'
+
+const BASE_URL = process.env.BASE_URL ?? 'http://localhost:8080/api/ws'
+const TOKEN = process.env.TOKEN
+const ROOM_ID = process.env.ROOM_ID ?? 'bench'
+const ITERATIONS = Number(process.argv[2] ?? 200)
+
+if (!TOKEN) {
+  console.error('TOKEN must be set to a valid JWT')
+  process.exit(1)
+}
+
+const transports = {
+  sockjs: { webSocketFactory: () => new SockJS(`${BASE_URL}/chat`) },
+  native: { brokerURL: `${BASE_URL.replace(/^http/, 'ws')}/native/chat` },
+}
+
+const percentile = (values, p) => {
+  const sorted = [...values].sort((a, b) => a - b)
+  return sorted[Math.min(sorted.length - 1, Math.floor(sorted.length * p))]
+}
+
+function connect(options) {
+  return new Promise((resolve, reject) => {
+    const start = performance.now()
+    const client = new Client({
+      ...options,
+      connectHeaders: { Authorization: `Bearer ${TOKEN}` },
+      reconnectDelay: 0,
+      heartbeatIncoming: 0,
+      heartbeatOutgoing: 0,
+    })
+    client.onConnect = () => resolve({ client, connectMillis: performance.now() - start })
+    client.onStompError = (frame) => reject(new Error(frame.headers.message))
+    client.onWebSocketError = reject
+    client.activate()
+  })
+}
+
+function roundTrip(client, body) {
+  return new Promise((resolve) => {
+    const receipt = `bench-${Math.random().toString(36).slice(2)}`
+    const start = performance.now()
+    client.watchForReceipt(receipt, () => resolve(performance.now() - start))
+    client.publish({ destination: `/app/chat/typing/${ROOM_ID}`, body, headers: { receipt } })
+  })
+}
+
+// What each transport sends for one STOMP SEND frame. SockJS wraps every frame in a
+// JSON array ("a[...]" server-side, "[...]" client-side) and escapes the NULs and
+// newlines STOMP uses as delimiters.
+function wireBytes(body) {
+  const frame = `SEND\ndestination:/app/chat/send/${ROOM_ID}\ncontent-length:${Buffer.byteLength(body)}\n\n${body}\0`
+  return {
+    native: Buffer.byteLength(frame),
+    sockjs: Buffer.byteLength(JSON.stringify([frame])),
+  }
+}
+
+const body = JSON.stringify({ userId: 'bench', content: 'x'.repeat(120) })
+const bytes = wireBytes(body)
+console.log(`frame bytes: native=${bytes.native} sockjs=${bytes.sockjs} (+${bytes.sockjs - bytes.native})`)
+
+for (const [name, options] of Object.entries(transports)) {
+  const connects = []
+  for (let i = 0; i < 10; i++) {
+    const { client, connectMillis } = await connect(options)
+    connects.push(connectMillis)
+    await client.deactivate()
+  }
+
+  const { client } = await connect(options)
+  const rtts = []
+  for (let i = 0; i < ITERATIONS; i++) {
+    rtts.push(await roundTrip(client, body))
+  }
+  await client.deactivate()
+
+  console.log(`${name}: connect p50=${percentile(connects, 0.5).toFixed(1)}ms`
+    + ` p95=${percentile(connects, 0.95).toFixed(1)}ms;`
+    + ` send->receipt p50=${percentile(rtts, 0.5).toFixed(2)}ms p99=${percentile(rtts, 0.99).toFixed(2)}ms`)
+}
@@ -0,0 +1,220 @@
+package com.terminalchat.config;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.result.UpdateResult;
+import com.terminalchat.domain.convert.CodedValueConverter;
+import com.terminalchat.service.BucketedMessageStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Rewrites documents from the original long-field schema into the compact one
+ * (see Message, Session and CodedValueConverter). Each collection is converted
+ * with a single server-side pipeline update, so nothing is read into the app,
+ * and only documents still carrying old fields match: a second run is a no-op.
+ *
+ * This is a one-off job: enable {@code mongo.compact-schema-migration.enabled}
+ * for the first deploy of the compact schema and turn it off again, since the
+ * old-field filter is a collection scan. It runs synchronously inside
+ * ApplicationReadyEvent, ahead of the warm-up, so readiness stays
+ * REFUSING_TRAFFIC until queries on the new field names see every document and
+ * caches can't be filled from half-migrated collections. The unique
+ * {@code clientMessageId} index on the new names is created before the rewrite;
+ * the other indexes keyed on old names are dropped after it and replaced by
+ * MongoIndexManager before returning.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CompactSchemaMigration {
+
+    private static final Pattern MESSAGE_COLLECTION = Pattern.compile("^messages(_\\d{10})?$");
+
+    // Old name -> new name; "" means the field is dropped
+    private static final Map<String, String> MESSAGE_FIELDS = fields(
+            "clientMessageId", "c", "roomId", "r", "senderId", "s", "content", "b",
+            "compressedContent", "z", "contentEncoding", "e", "type", "t", "createdAt", "ts",
+            "senderUsername", "", "expiresAt", "", "_class", "");
+
+    private static final Map<String, String> SESSION_FIELDS = fields(
+            "userId", "u", "sessionCode", "k", "sessionType", "t", "roomId", "r", "status", "s",
+            "createdAt", "c", "expiresAt", "x", "completedAt", "f", "_class", "");
+
+    private final MongoTemplate mongoTemplate;
+    private final MongoIndexManager mongoIndexManager;
+
+    @Value("${mongo.compact-schema-migration.enabled:false}")
+    private boolean enabled;
+
+    private final Map<String, Object> report = new LinkedHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void migrateBeforeReady(ApplicationReadyEvent event) {
+        if (!enabled) {
+            return;
+        }
+        AvailabilityChangeEvent.publish(event.getApplicationContext(), ReadinessState.REFUSING_TRAFFIC);
+        migrate();
+        // Spring Boot publishes ACCEPTING_TRAFFIC once ApplicationReadyEvent listeners return
+    }
+
+    public Map<String, Object> migrate() {
+        long start = System.currentTimeMillis();
+        for (String collection : mongoTemplate.getCollectionNames()) {
+            if (MESSAGE_COLLECTION.matcher(collection).matches()) {
+                // Keeps clientMessageId unique for documents as they gain the new names
+                mongoTemplate.indexOps(collection).ensureIndex(BucketedMessageStore.clientMessageIndex());
+                migrate(collection, MESSAGE_FIELDS, Map.of("type", CodedValueConverter.MESSAGE_TYPES));
+                if (!collection.equals("messages")) {
+                    // Hourly buckets aren't covered by MongoIndexManager
+                    BucketedMessageStore.ensureBucketIndexes(mongoTemplate.indexOps(collection));
+                }
+            }
+        }
+        if (mongoTemplate.collectionExists("sessions")) {
+            migrate("sessions", SESSION_FIELDS, Map.of(
+                    "sessionType", CodedValueConverter.SESSION_TYPES,
+                    "status", CodedValueConverter.STATUSES));
+        }
+        if (mongoTemplate.collectionExists("rooms")) {
+            migrateRooms();
+        }
+        mongoIndexManager.ensureAndVerify();
+        log.info("Compact schema migration finished in {} ms: {}", System.currentTimeMillis() - start, report);
+        return report;
+    }
+
+    public Map<String, Object> getStats() {
+        return report;
+    }
+
+    private void migrate(String name, Map<String, String> fields, Map<String, List<String>> coded) {
+        MongoCollection<Document> collection = mongoTemplate.getCollection(name);
+        Map<String, Object> before = sizes(name);
+
+        Document set = new Document();
+        fields.forEach((oldName, newName) -> {
+            if (!newName.isEmpty()) {
+                List<String> codes = coded.get(oldName);
+                set.append(newName, codes == null ? "$" + oldName : codeSwitch("$" + oldName, codes));
+            }
+        });
+        List<Bson> pipeline = List.of(
+                new Document("$set", set),
+                new Document("$unset", new ArrayList<>(fields.keySet())));
+
+        List<Bson> hasOldField = fields.keySet().stream()
+                .filter(field -> !field.equals("_class"))
+                .map(Filters::exists)
+                .toList();
+        UpdateResult result = collection.updateMany(Filters.or(hasOldField), pipeline);
+        List<String> dropped = dropIndexesOn(collection, fields.keySet());
+
+        if (result.getModifiedCount() > 0 || !dropped.isEmpty()) {
+            report.put(name, entry(result.getModifiedCount(), dropped, before, sizes(name)));
+        }
+    }
+
+    // Room keeps its field names; only roomType and status become codes
+    private void migrateRooms() {
+        MongoCollection<Document> rooms = mongoTemplate.getCollection("rooms");
+        Map<String, Object> before = sizes("rooms");
+        List<Bson> pipeline = List.of(
+                new Document("$set", new Document()
+                        .append("roomType", codeSwitch("$roomType", CodedValueConverter.SESSION_TYPES))
+                        .append("status", codeSwitch("$status", CodedValueConverter.STATUSES))),
+                new Document("$unset", "_class"));
+        UpdateResult result = rooms.updateMany(Filters.or(
+                Filters.type("roomType", "string"),
+                Filters.type("status", "string"),
+                Filters.exists("_class")), pipeline);
+        if (result.getModifiedCount() > 0) {
+            report.put("rooms", entry(result.getModifiedCount(), List.of(), before, sizes("rooms")));
+        }
+    }
+
+    // {$switch} from a known string to its code; anything else is kept as it is
+    private static Document codeSwitch(String field, List<String> codes) {
+        List<Document> branches = new ArrayList<>();
+        for (int code = 0; code < codes.size(); code++) {
+            branches.add(new Document("case", new Document("$eq", List.of(field, codes.get(code))))
+                    .append("then", code));
+        }
+        return new Document("$switch", new Document("branches", branches).append("default", field));
+    }
+
+    private static List<String> dropIndexesOn(MongoCollection<Document> collection, Set<String> oldFields) {
+        List<String> dropped = new ArrayList<>();
+        for (Document index : collection.listIndexes()) {
+            Document keys = index.get("key", Document.class);
+            if (keys.keySet().stream().anyMatch(oldFields::contains)) {
+                String name = index.getString("name");
+                collection.dropIndex(name);
+                dropped.add(name);
+            }
+        }
+        return dropped;
+    }
+
+    /**
+     * Document count, average BSON size, data and index bytes. Data plus indexes
+     * is what has to stay in cache for the collection to be served from memory.
+     */
+    private Map<String, Object> sizes(String collection) {
+        Document stats;
+        try {
+            stats = mongoTemplate.getDb().runCommand(new Document("collStats", collection));
+        } catch (RuntimeException e) {
+            log.warn("collStats failed for {}", collection, e);
+            return Map.of();
+        }
+        long dataBytes = ((Number) stats.getOrDefault("size", 0)).longValue();
+        long indexBytes = ((Number) stats.getOrDefault("totalIndexSize", 0)).longValue();
+
+        Map<String, Object> sizes = new LinkedHashMap<>();
+        sizes.put("count", stats.get("count"));
+        sizes.put("avgObjBytes", stats.getOrDefault("avgObjSize", 0));
+        sizes.put("dataBytes", dataBytes);
+        sizes.put("indexBytes", indexBytes);
+        sizes.put("workingSetBytes", dataBytes + indexBytes);
+        return sizes;
+    }
+
+    private static Map<String, Object> entry(long migrated, List<String> droppedIndexes,
+                                             Map<String, Object> before, Map<String, Object> after) {
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("migrated", migrated);
+        entry.put("droppedIndexes", droppedIndexes);
+        entry.put("before", before);
+        entry.put("after", after);
+        return entry;
+    }
+
+    private static Map<String, String> fields(String... pairs) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        for (int i = 0; i < pairs.length; i += 2) {
+            fields.put(pairs[i], pairs[i + 1]);
+        }
+        return fields;
+    }
+}
@@ -0,0 +1,37 @@
+package com.terminalchat.config;
+
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Tomcat accepts permessage-deflate whenever a browser offers it. This handler makes
+ * it opt-in: the extension is only negotiated when {@code websocket.compression.enabled}
+ * is set, otherwise it is stripped from the client's offer.
+ */
+public class CompressionHandshakeHandler extends DefaultHandshakeHandler {
+
+    private static final String PERMESSAGE_DEFLATE = "permessage-deflate";
+
+    private final boolean compressionEnabled;
+
+    public CompressionHandshakeHandler(boolean compressionEnabled) {
+        this.compressionEnabled = compressionEnabled;
+    }
+
+    @Override
+    protected List<WebSocketExtension> filterRequestedExtensions(ServerHttpRequest request,
+            List<WebSocketExtension> requestedExtensions, List<WebSocketExtension> supportedExtensions) {
+
+        List<WebSocketExtension> requested = compressionEnabled
+                ? requestedExtensions
+                : requestedExtensions.stream()
+                        .filter(extension -> !PERMESSAGE_DEFLATE.equalsIgnoreCase(extension.getName()))
+                        .collect(Collectors.toList());
+
+        return super.filterRequestedExtensions(request, requested, supportedExtensions);
+    }
+}
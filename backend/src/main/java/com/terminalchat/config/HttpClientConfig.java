@@ -0,0 +1,53 @@
+package com.terminalchat.config;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class HttpClientConfig {
+
+    private static final int GOOGLE_HTTP_THREADS = 4;
+
+    // The JDK default is an unbounded cached pool, which a login storm would grow without limit
+    private final ExecutorService googleHttpExecutor =
+            Executors.newFixedThreadPool(GOOGLE_HTTP_THREADS, new GoogleHttpThreadFactory());
+
+    /**
+     * Shared client for calls to Google. HttpClient keeps connections alive and pools
+     * them per host, so login storms reuse the same TLS connections. Its executor only
+     * delivers responses; callers move blocking work to their own pool.
+     */
+    @Bean
+    public HttpClient googleHttpClient() {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofSeconds(5))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(googleHttpExecutor)
+                .build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        googleHttpExecutor.shutdown();
+    }
+
+    private static final class GoogleHttpThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "google-http-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package com.terminalchat.config;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import com.mongodb.event.ConnectionCheckOutFailedEvent;
+import com.mongodb.event.ConnectionCheckOutStartedEvent;
+import com.mongodb.event.ConnectionCheckedInEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import com.mongodb.event.ConnectionClosedEvent;
+import com.mongodb.event.ConnectionCreatedEvent;
+import com.mongodb.event.ConnectionPoolClearedEvent;
+import com.mongodb.event.ConnectionPoolListener;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Driver-level view of Mongo: latency histograms per command and per
+ * collection/command pair, a slow-operation log with the filter's shape (values
+ * redacted), and connection pool gauges. Registered on the client in
+ * {@link MongoDBConfig}; read through {@code GET /stats/mongo}.
+ */
+@Component
+@Slf4j
+public class MongoCommandProfiler implements CommandListener, ConnectionPoolListener {
+
+    // Handshake, auth and monitoring traffic isn't application load
+    private static final Set<String> IGNORED_COMMANDS = Set.of(
+            "hello", "ismaster", "isMaster", "ping", "buildInfo", "saslStart", "saslContinue",
+            "endSessions", "getLastError");
+
+    // Where each query-bearing command keeps its filter. Other commands (insert,
+    // getMore, index builds: most of the write traffic) have nothing for the slow
+    // log to show, so they skip the lookup and the copy
+    private static final Map<String, String> QUERY_FIELDS = Map.of(
+            "find", "filter",
+            "count", "query",
+            "distinct", "query",
+            "findAndModify", "query",
+            "aggregate", "pipeline",
+            "update", "updates",
+            "delete", "deletes");
+    private static final int MAX_IN_FLIGHT = 10000;
+
+    @Value("${mongo.profiler.slow-threshold-ms:100}")
+    private long slowThresholdMillis;
+
+    private final Map<String, Histogram> byCommand = new ConcurrentHashMap<>();
+    private final Map<String, Histogram> byCollection = new ConcurrentHashMap<>();
+    // requestId -> what the slow log needs; the command document itself may not
+    // outlive the started callback, so a query command's filter is copied out
+    private final Map<Integer, InFlight> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder slowOperations = new LongAdder();
+
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final AtomicInteger checkedOutConnections = new AtomicInteger();
+    private final AtomicInteger waitingForConnection = new AtomicInteger();
+    private final LongAdder checkOutFailures = new LongAdder();
+    private final LongAdder poolClears = new LongAdder();
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        if (IGNORED_COMMANDS.contains(event.getCommandName()) || inFlight.size() >= MAX_IN_FLIGHT) {
+            return;
+        }
+        BsonDocument command = event.getCommand();
+        inFlight.put(event.getRequestId(), new InFlight(collectionOf(event.getCommandName(), command),
+                slowThresholdMillis >= 0 ? queryOf(event.getCommandName(), command) : null));
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        record(event.getRequestId(), event.getCommandName(), event.getElapsedTime(TimeUnit.MICROSECONDS), false);
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        record(event.getRequestId(), event.getCommandName(), event.getElapsedTime(TimeUnit.MICROSECONDS), true);
+    }
+
+    @Override
+    public void connectionCreated(ConnectionCreatedEvent event) {
+        openConnections.incrementAndGet();
+    }
+
+    @Override
+    public void connectionClosed(ConnectionClosedEvent event) {
+        openConnections.decrementAndGet();
+    }
+
+    @Override
+    public void connectionCheckOutStarted(ConnectionCheckOutStartedEvent event) {
+        waitingForConnection.incrementAndGet();
+    }
+
+    @Override
+    public void connectionCheckedOut(ConnectionCheckedOutEvent event) {
+        waitingForConnection.decrementAndGet();
+        checkedOutConnections.incrementAndGet();
+    }
+
+    @Override
+    public void connectionCheckOutFailed(ConnectionCheckOutFailedEvent event) {
+        waitingForConnection.decrementAndGet();
+        checkOutFailures.increment();
+    }
+
+    @Override
+    public void connectionCheckedIn(ConnectionCheckedInEvent event) {
+        checkedOutConnections.decrementAndGet();
+    }
+
+    @Override
+    public void connectionPoolCleared(ConnectionPoolClearedEvent event) {
+        poolClears.increment();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> commands = new TreeMap<>();
+        byCommand.forEach((name, histogram) -> commands.put(name, histogram.snapshot()));
+
+        Map<String, Object> collections = new TreeMap<>();
+        byCollection.forEach((name, histogram) -> collections.put(name, histogram.snapshot()));
+
+        Map<String, Object> pool = new HashMap<>();
+        pool.put("open", openConnections.get());
+        pool.put("checkedOut", checkedOutConnections.get());
+        pool.put("waiting", waitingForConnection.get());
+        pool.put("checkOutFailures", checkOutFailures.sum());
+        pool.put("cleared", poolClears.sum());
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("commands", commands);
+        stats.put("collections", collections);
+        stats.put("pool", pool);
+        stats.put("slowOperations", slowOperations.sum());
+        stats.put("slowThresholdMillis", slowThresholdMillis);
+        return stats;
+    }
+
+    private void record(int requestId, String commandName, long micros, boolean failed) {
+        InFlight started = inFlight.remove(requestId);
+        if (started == null) {
+            return;
+        }
+
+        byCommand.computeIfAbsent(commandName, k -> new Histogram()).record(micros, failed);
+        if (started.collection != null) {
+            byCollection.computeIfAbsent(started.collection + "." + commandName, k -> new Histogram())
+                    .record(micros, failed);
+        }
+
+        if (slowThresholdMillis >= 0 && micros >= slowThresholdMillis * 1000) {
+            slowOperations.increment();
+            // Redacted only here; fast commands pay just for copying their filter
+            log.warn("Slow Mongo {} on {}: {} ms{} filter={}", commandName, started.collection,
+                    micros / 1000, failed ? " (failed)" : "", started.query != null ? redact(started.query) : null);
+        }
+    }
+
+    private static String collectionOf(String commandName, BsonDocument command) {
+        BsonValue target = "getMore".equals(commandName) ? command.get("collection") : command.get(commandName);
+        return target != null && target.isString() ? target.asString().getValue() : null;
+    }
+
+    /**
+     * A copy of the query part of a query-bearing command (filter, pipeline, or the
+     * first update/delete statement's filter), for the slow log to redact if it comes
+     * to that. Only that part is copied, never inserted documents or update bodies.
+     */
+    private static BsonValue queryOf(String commandName, BsonDocument command) {
+        String field = QUERY_FIELDS.get(commandName);
+        BsonValue query = field != null ? command.get(field) : null;
+        if (query == null) {
+            return null;
+        }
+        if (query.isDocument()) {
+            return query.asDocument().clone();
+        }
+        if (!query.isArray() || query.asArray().isEmpty()) {
+            return null;
+        }
+        if ("pipeline".equals(field)) {
+            return query.asArray().clone();
+        }
+        // update/delete carry their filters inside the statements array
+        BsonValue first = query.asArray().get(0);
+        BsonValue q = first.isDocument() ? first.asDocument().get("q") : null;
+        return q != null && q.isDocument() ? q.asDocument().clone() : null;
+    }
+
+    /**
+     * The query with every literal replaced by "?", so the log shows which fields and
+     * operators were used without leaking message content or tokens.
+     */
+    private static Object redact(BsonValue value) {
+        if (value.isDocument()) {
+            Map<String, Object> shape = new TreeMap<>();
+            value.asDocument().forEach((key, nested) -> shape.put(key, redact(nested)));
+            return shape;
+        }
+        if (value.isArray()) {
+            BsonArray array = value.asArray();
+            return array.isEmpty() ? "[]" : "[" + redact(array.get(0)) + (array.size() > 1 ? ", …]" : "]");
+        }
+        return "?";
+    }
+
+    private record InFlight(String collection, BsonValue query) {
+    }
+
+    /**
+     * Fixed log-scale latency buckets; percentiles are reported as bucket upper bounds.
+     */
+    private static final class Histogram {
+        private static final long[] BOUNDS_MICROS = {
+                100, 250, 500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000,
+                100_000, 250_000, 500_000, 1_000_000, Long.MAX_VALUE};
+
+        private final LongAdder[] buckets = new LongAdder[BOUNDS_MICROS.length];
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder totalMicros = new LongAdder();
+        private final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0);
+
+        private Histogram() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void record(long micros, boolean failed) {
+            int i = 0;
+            while (micros > BOUNDS_MICROS[i]) {
+                i++;
+            }
+            buckets[i].increment();
+            totalMicros.add(micros);
+            maxMicros.accumulate(micros);
+            if (failed) {
+                failures.increment();
+            }
+        }
+
+        Map<String, Object> snapshot() {
+            long[] counts = new long[buckets.length];
+            long total = 0;
+            Map<String, Long> histogram = new LinkedHashMap<>();
+            for (int i = 0; i < buckets.length; i++) {
+                counts[i] = buckets[i].sum();
+                total += counts[i];
+                histogram.put(BOUNDS_MICROS[i] == Long.MAX_VALUE ? "+Inf" : "le_" + BOUNDS_MICROS[i] + "us", counts[i]);
+            }
+
+            Map<String, Object> snapshot = new HashMap<>();
+            snapshot.put("count", total);
+            snapshot.put("failures", failures.sum());
+            snapshot.put("avgMicros", total == 0 ? 0 : totalMicros.sum() / total);
+            snapshot.put("maxMicros", maxMicros.get());
+            snapshot.put("p50Micros", percentile(counts, total, 0.50));
+            snapshot.put("p95Micros", percentile(counts, total, 0.95));
+            snapshot.put("p99Micros", percentile(counts, total, 0.99));
+            snapshot.put("buckets", histogram);
+            return snapshot;
+        }
+
+        private long percentile(long[] counts, long total, double p) {
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(total * p);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return BOUNDS_MICROS[i] == Long.MAX_VALUE ? maxMicros.get() : BOUNDS_MICROS[i];
+                }
+            }
+            return maxMicros.get();
+        }
+    }
+}
@@ -1,21 +1,89 @@
 package com.terminalchat.config;
 
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.DefaultDbRefResolver;
+import org.springframework.data.mongodb.core.convert.DefaultMongoTypeMapper;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
 import org.springframework.data.mongodb.core.index.IndexOperations;
 import org.springframework.data.mongodb.core.index.IndexResolver;
 import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+
+import java.util.concurrent.CompletableFuture;
 
 @Configuration
+@Slf4j
 public class MongoDBConfig {
+
+    @Value("${mongo.deferred-index-creation:false}")
+    private boolean deferredIndexCreation;
     
     @Bean
     public IndexResolver mongoIndexResolver(MongoMappingContext mongoMappingContext) {
         return new MongoPersistentEntityIndexResolver(mongoMappingContext);
     }
-    
-    // TTL Index will be created for expiresAt field on Message collection
-    // MongoDB's TTL monitor runs every 60 seconds by default
+
+    /**
+     * Boot's converter without the {@code _class} type hint: no entity here is
+     * polymorphic, and the hint costs ~40 bytes in every document.
+     */
+    @Bean
+    public MappingMongoConverter mappingMongoConverter(MongoDatabaseFactory factory,
+                                                       MongoMappingContext mappingContext,
+                                                       MongoCustomConversions conversions) {
+        MappingMongoConverter converter = new MappingMongoConverter(new DefaultDbRefResolver(factory), mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.setTypeMapper(new DefaultMongoTypeMapper(null));
+        return converter;
+    }
+
+    @Bean
+    public MongoClientSettingsBuilderCustomizer mongoProfilerCustomizer(MongoCommandProfiler profiler) {
+        return builder -> builder
+                .addCommandListener(profiler)
+                .applyToConnectionPoolSettings(pool -> pool.addConnectionPoolListener(profiler));
+    }
+
+    /**
+     * Runs once the app is taking traffic. With auto-index-creation off, the
+     * annotation-driven indexes are ensured here too, so index creation stays off
+     * the startup path; then the declared index set is created and verified.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void createIndexesInBackground(ApplicationReadyEvent event) {
+        ApplicationContext context = event.getApplicationContext();
+        CompletableFuture.runAsync(() -> {
+            if (deferredIndexCreation) {
+                long start = System.currentTimeMillis();
+                MongoTemplate mongoTemplate = context.getBean(MongoTemplate.class);
+                MongoMappingContext mappingContext = context.getBean(MongoMappingContext.class);
+                IndexResolver indexResolver = context.getBean(IndexResolver.class);
+
+                for (MongoPersistentEntity<?> entity : mappingContext.getPersistentEntities()) {
+                    if (!entity.isAnnotationPresent(Document.class)) {
+                        continue;
+                    }
+                    IndexOperations indexOps = mongoTemplate.indexOps(entity.getType());
+                    indexResolver.resolveIndexFor(entity.getType()).forEach(indexOps::ensureIndex);
+                }
+                log.info("Deferred Mongo index creation finished in {} ms", System.currentTimeMillis() - start);
+            }
+            context.getBean(MongoIndexManager.class).ensureAndVerify();
+        }).exceptionally(e -> {
+            log.error("Mongo index creation failed", e);
+            return null;
+        });
+    }
 }
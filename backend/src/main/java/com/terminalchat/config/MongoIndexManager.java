@@ -0,0 +1,257 @@
+package com.terminalchat.config;
+
+import com.terminalchat.service.BucketedMessageStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * The index set every repository query relies on, declared in one place. Indexes
+ * that entities already declare through annotations are repeated here with the
+ * same name and options, so ensuring them is a no-op; the rest (session lookups,
+ * room status sweeps, message history and the message TTL) exist only here.
+ *
+ * {@link #ensureAndVerify()} creates anything missing, then checks that each
+ * declared index is present and, with {@code mongo.indexes.verify-plans}, that
+ * the winning plan of each repository query shape uses an index rather than a
+ * collection scan. The message TTL follows {@code message.storage.retention-hours};
+ * when that changes, the existing TTL index is adjusted in place with collMod.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MongoIndexManager {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${mongo.indexes.verify-plans:false}")
+    private boolean verifyPlans;
+
+    @Value("${message.storage.retention-hours:24}")
+    private int retentionHours;
+
+    // Result of the last ensureAndVerify() run, served by /stats/indexes
+    private volatile Map<String, Object> lastReport = Map.of("status", "not run yet");
+
+    private static final List<IndexSpec> INDEXES = List.of(
+            // UserRepository: findByGoogleId, findByEmail (also @Indexed on User)
+            new IndexSpec("users", new Index().on("googleId", Sort.Direction.ASC).named("googleId").unique()),
+            new IndexSpec("users", new Index().on("email", Sort.Direction.ASC).named("email").unique()),
+
+            // SessionRepository: findBySessionCode, findByStatus, findByUserId, findByRoomId
+            // (stored as k, s, u, r)
+            new IndexSpec("sessions", new Index().on("k", Sort.Direction.ASC).named("session_code_idx")),
+            new IndexSpec("sessions", new Index().on("s", Sort.Direction.ASC).named("session_status_idx")),
+            new IndexSpec("sessions", new Index().on("u", Sort.Direction.ASC).named("session_user_idx")),
+            new IndexSpec("sessions", new Index().on("r", Sort.Direction.ASC).named("session_room_idx")),
+
+            // RoomRepository: findByStatus
+            new IndexSpec("rooms", new Index().on("status", Sort.Direction.ASC).named("room_status_idx")),
+
+            // RoomMemberRepository: findByRoomId, existsBy/deleteByRoomIdAndUserId (also @CompoundIndex)
+            new IndexSpec("room_members", new Index().on("roomId", Sort.Direction.ASC).on("userId", Sort.Direction.ASC)
+                    .named("room_user_idx").unique()),
+
+            // MessageRepository: findByRoomIdOrderByCreatedAtAsc, findByRoomIdInIdRange,
+            // findByRoomIdOrderByIdDesc (roomId and createdAt are stored as r and ts). With
+            // message.storage.mode=bucketed the hourly collections get room_id_idx from
+            // BucketedMessageStore instead
+            new IndexSpec("messages", new Index().on("r", Sort.Direction.ASC).on("ts", Sort.Direction.ASC)
+                    .named("room_created_idx")),
+            new IndexSpec("messages", new Index().on("r", Sort.Direction.ASC).on("_id", Sort.Direction.ASC)
+                    .named("room_id_idx")),
+            // findByRoomIdAndClientMessageId, and the dedup constraint (also @CompoundIndex on Message)
+            new IndexSpec("messages", BucketedMessageStore.clientMessageIndex()),
+            // message_created_ttl is added by indexes(): its expiry comes from configuration
+
+            // ReadReceiptRepository: findByRoomId (also @Indexed on ReadReceipt)
+            new IndexSpec("read_receipts", new Index().on("roomId", Sort.Direction.ASC).named("roomId")),
+
+            // SharedFileRepository: findByRoomId, findByExpiresAtBefore. No TTL here: the
+            // scheduler has to delete the file on disk along with the record
+            new IndexSpec("shared_files", new Index().on("roomId", Sort.Direction.ASC).named("file_room_idx")),
+            new IndexSpec("shared_files", new Index().on("expiresAt", Sort.Direction.ASC).named("file_expires_idx")),
+
+            // TokenRevocationList loads the whole collection; entries go once the tokens they cover expire
+            new IndexSpec("revoked_tokens", new Index().on("expiresAt", Sort.Direction.ASC)
+                    .named("revoked_expires_ttl").expire(Duration.ZERO))
+    );
+
+    // One representative filter (and sort) per repository query method
+    private static final List<QueryShape> QUERIES = List.of(
+            new QueryShape("UserRepository.findByGoogleId", "users", new Document("googleId", "x"), null),
+            new QueryShape("UserRepository.findByEmail", "users", new Document("email", "x"), null),
+            new QueryShape("SessionRepository.findBySessionCode", "sessions", new Document("k", "x"), null),
+            new QueryShape("SessionRepository.findByStatus", "sessions", new Document("s", 0), null),
+            new QueryShape("SessionRepository.findByUserId", "sessions", new Document("u", "x"), null),
+            new QueryShape("SessionRepository.findByRoomId", "sessions", new Document("r", "x"), null),
+            new QueryShape("RoomRepository.findByStatus", "rooms", new Document("status", 1), null),
+            new QueryShape("RoomMemberRepository.findByRoomId", "room_members", new Document("roomId", "x"), null),
+            new QueryShape("RoomMemberRepository.existsByRoomIdAndUserId", "room_members",
+                    new Document("roomId", "x").append("userId", "y"), null),
+            new QueryShape("MessageRepository.findByRoomIdOrderByCreatedAtAsc", "messages",
+                    new Document("r", "x"), new Document("ts", 1)),
+            new QueryShape("MessageRepository.findByRoomIdInIdRange", "messages",
+                    new Document("r", "x").append("_id", new Document("$gte", "a").append("$lte", "b")),
+                    new Document("_id", 1)),
+            new QueryShape("MessageRepository.findByRoomIdOrderByIdDesc", "messages",
+                    new Document("r", "x"), new Document("_id", -1)),
+            new QueryShape("MessageRepository.findByRoomIdAndClientMessageId", "messages",
+                    new Document("r", "x").append("c", "y"), null),
+            new QueryShape("ReadReceiptRepository.findByRoomId", "read_receipts", new Document("roomId", "x"), null),
+            new QueryShape("SharedFileRepository.findByRoomId", "shared_files", new Document("roomId", "x"), null),
+            new QueryShape("SharedFileRepository.findByExpiresAtBefore", "shared_files",
+                    new Document("expiresAt", new Document("$lt", new Date())), null)
+    );
+
+    /**
+     * Creates missing indexes and returns a report of what is missing or scanning.
+     * Problems are logged at ERROR; nothing here fails startup.
+     */
+    public Map<String, Object> ensureAndVerify() {
+        long start = System.currentTimeMillis();
+        List<IndexSpec> indexes = indexes();
+        List<String> failedToCreate = new ArrayList<>();
+        for (IndexSpec spec : indexes) {
+            try {
+                syncExpiry(spec);
+                mongoTemplate.indexOps(spec.collection()).ensureIndex(spec.index());
+            } catch (RuntimeException e) {
+                failedToCreate.add(spec.collection() + "." + spec.name());
+                log.error("Could not create index {} on {}", spec.name(), spec.collection(), e);
+            }
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("declared", indexes.size());
+        report.put("failedToCreate", failedToCreate);
+        report.put("missing", findMissing(indexes));
+        if (verifyPlans) {
+            report.put("collectionScans", findCollectionScans());
+        }
+        report.put("checkedAt", new Date());
+        log.info("Mongo index check finished in {} ms: {}", System.currentTimeMillis() - start, report);
+        lastReport = Collections.unmodifiableMap(report);
+        return lastReport;
+    }
+
+    /**
+     * The report from the last {@link #ensureAndVerify()} run, without touching Mongo.
+     */
+    public Map<String, Object> getLastReport() {
+        return lastReport;
+    }
+
+    private List<IndexSpec> indexes() {
+        List<IndexSpec> indexes = new ArrayList<>(INDEXES);
+        // Mongo's TTL monitor removes messages retention-hours after createdAt (runs every 60s)
+        indexes.add(new IndexSpec("messages", new Index().on("ts", Sort.Direction.ASC)
+                .named("message_created_ttl").expire(Duration.ofHours(retentionHours))));
+        return indexes;
+    }
+
+    /**
+     * createIndex fails if an index of the same name exists with another expiry, so
+     * a changed retention is applied to the existing TTL index with collMod first.
+     */
+    private void syncExpiry(IndexSpec spec) {
+        Object expireAfterSeconds = spec.index().getIndexOptions().get("expireAfterSeconds");
+        if (expireAfterSeconds == null) {
+            return;
+        }
+        long wanted = ((Number) expireAfterSeconds).longValue();
+        for (IndexInfo info : mongoTemplate.indexOps(spec.collection()).getIndexInfo()) {
+            if (info.getName().equals(spec.name()) && info.getExpireAfter().isPresent()
+                    && info.getExpireAfter().get().getSeconds() != wanted) {
+                mongoTemplate.getDb().runCommand(new Document("collMod", spec.collection())
+                        .append("index", new Document("name", spec.name()).append("expireAfterSeconds", wanted)));
+                log.info("Changed expiry of index {} on {} from {} s to {} s", spec.name(), spec.collection(),
+                        info.getExpireAfter().get().getSeconds(), wanted);
+            }
+        }
+    }
+
+    private List<String> findMissing(List<IndexSpec> indexes) {
+        Map<String, Set<Document>> existing = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (IndexSpec spec : indexes) {
+            Set<Document> keys = existing.computeIfAbsent(spec.collection(), this::existingKeys);
+            if (!keys.contains(spec.keys())) {
+                missing.add(spec.collection() + "." + spec.name());
+            }
+        }
+        if (!missing.isEmpty()) {
+            log.error("Declared Mongo indexes missing: {}", missing);
+        }
+        return missing;
+    }
+
+    private Set<Document> existingKeys(String collection) {
+        IndexOperations indexOps = mongoTemplate.indexOps(collection);
+        return indexOps.getIndexInfo().stream()
+                .map(MongoIndexManager::keysOf)
+                .collect(Collectors.toSet());
+    }
+
+    private static Document keysOf(IndexInfo info) {
+        Document keys = new Document();
+        info.getIndexFields().forEach(field -> keys.append(field.getKey(),
+                field.getDirection() == Sort.Direction.DESC ? -1 : 1));
+        return keys;
+    }
+
+    private List<String> findCollectionScans() {
+        List<String> scans = new ArrayList<>();
+        for (QueryShape query : QUERIES) {
+            Document find = new Document("find", query.collection()).append("filter", query.filter());
+            if (query.sort() != null) {
+                find.append("sort", query.sort());
+            }
+            try {
+                Document explain = mongoTemplate.getDb().runCommand(
+                        new Document("explain", find).append("verbosity", "queryPlanner"));
+                Object winningPlan = ((Document) explain.get("queryPlanner")).get("winningPlan");
+                if (winningPlan != null && winningPlan.toString().contains("COLLSCAN")) {
+                    scans.add(query.name());
+                }
+            } catch (RuntimeException e) {
+                log.warn("Could not explain {}", query.name(), e);
+            }
+        }
+        if (!scans.isEmpty()) {
+            log.error("Repository queries planned as COLLSCAN: {}", scans);
+        }
+        return scans;
+    }
+
+    private record IndexSpec(String collection, Index index) {
+        String name() {
+            return (String) index.getIndexOptions().get("name");
+        }
+
+        Document keys() {
+            return index.getIndexKeys();
+        }
+    }
+
+    private record QueryShape(String name, String collection, Document filter, Document sort) {
+    }
+}
@@ -36,6 +36,7 @@ public class SecurityConfig {
                         .requestMatchers("/api/ws/**").permitAll()
                         .requestMatchers("/ws/**").permitAll()
                         .requestMatchers("/rooms/**").permitAll()
+                        .requestMatchers("/health/**").permitAll()
                         // .requestMatchers("/actuator/**").permitAll()
                         // All other requests need authentication
                         .anyRequest().authenticated())
@@ -0,0 +1,31 @@
+package com.terminalchat.config;
+
+import com.terminalchat.security.WebSocketTokenGuard;
+import com.terminalchat.websocket.TerminalHandshakeInterceptor;
+import com.terminalchat.websocket.TerminalStreamHandler;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+/**
+ * Binary terminal-mirroring endpoint. Separate from the STOMP endpoints in
+ * {@link WebSocketConfig}: frames are raw bytes, with no STOMP or SockJS framing.
+ */
+@Configuration
+@EnableWebSocket
+@RequiredArgsConstructor
+public class TerminalStreamConfig implements WebSocketConfigurer {
+
+    private final TerminalStreamHandler terminalStreamHandler;
+    private final TerminalHandshakeInterceptor terminalHandshakeInterceptor;
+    private final WebSocketTokenGuard webSocketTokenGuard;
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(webSocketTokenGuard.decorate(terminalStreamHandler), "/ws/terminal")
+                .addInterceptors(terminalHandshakeInterceptor)
+                .setAllowedOriginPatterns("*");
+    }
+}
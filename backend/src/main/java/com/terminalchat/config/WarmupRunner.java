@@ -0,0 +1,222 @@
+package com.terminalchat.config;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.terminalchat.domain.dto.MessageDTO;
+import com.terminalchat.domain.entity.Message;
+import com.terminalchat.domain.entity.Room;
+import com.terminalchat.domain.entity.Session;
+import com.terminalchat.domain.entity.User;
+import com.terminalchat.security.JwtTokenProvider;
+import com.terminalchat.security.StompAuthChannelInterceptor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Exercises the hot paths once the context is up and before readiness flips to
+ * ACCEPTING_TRAFFIC: JWT signing and parsing, Jackson (de)serialization of chat
+ * and signaling payloads, Mongo connection pool and codecs, and STOMP dispatch
+ * through the inbound channel to a {@code @MessageMapping} handler. Runs inside
+ * the ApplicationReadyEvent, so Spring Boot only publishes ACCEPTING_TRAFFIC
+ * after it returns.
+ */
+@Component
+@Slf4j
+public class WarmupRunner {
+
+    private static final String WARMUP_USER = "warmup";
+    private static final String WARMUP_ROOM = "__warmup__";
+
+    private final JwtTokenProvider jwtTokenProvider;
+    private final ObjectMapper objectMapper;
+    private final MongoTemplate mongoTemplate;
+    private final MessageChannel clientInboundChannel;
+
+    @Value("${warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${warmup.iterations:2000}")
+    private int iterations;
+
+    @Value("${warmup.stomp-iterations:200}")
+    private int stompIterations;
+
+    @Value("${warmup.mongo-connections:10}")
+    private int mongoConnections;
+
+    private final Map<String, Long> phaseMillis = new LinkedHashMap<>();
+
+    public WarmupRunner(JwtTokenProvider jwtTokenProvider,
+                        ObjectMapper objectMapper,
+                        MongoTemplate mongoTemplate,
+                        @Qualifier("clientInboundChannel") MessageChannel clientInboundChannel) {
+        this.jwtTokenProvider = jwtTokenProvider;
+        this.objectMapper = objectMapper;
+        this.mongoTemplate = mongoTemplate;
+        this.clientInboundChannel = clientInboundChannel;
+    }
+
+    // After CompactSchemaMigration, which runs first when enabled
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    public void warmUp(ApplicationReadyEvent event) {
+        if (!enabled) {
+            return;
+        }
+
+        AvailabilityChangeEvent.publish(event.getApplicationContext(), ReadinessState.REFUSING_TRAFFIC);
+        long start = System.currentTimeMillis();
+        phase("jwt", this::warmJwt);
+        phase("jackson", this::warmJackson);
+        phase("mongo", this::warmMongo);
+        phase("stomp", this::warmStomp);
+        phaseMillis.put("total", System.currentTimeMillis() - start);
+        log.info("Warm-up finished: {}", phaseMillis);
+        // Spring Boot publishes ACCEPTING_TRAFFIC once ApplicationReadyEvent listeners return
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("phaseMillis", phaseMillis);
+        return stats;
+    }
+
+    private void phase(String name, Runnable work) {
+        long start = System.currentTimeMillis();
+        try {
+            work.run();
+        } catch (RuntimeException e) {
+            // A failed phase only costs the warm-up, never startup
+            log.warn("Warm-up phase {} failed", name, e);
+        }
+        phaseMillis.put(name, System.currentTimeMillis() - start);
+    }
+
+    private void warmJwt() {
+        String token = jwtTokenProvider.generateToken(WARMUP_USER, "warmup@localhost");
+        for (int i = 0; i < iterations; i++) {
+            if (jwtTokenProvider.validateToken(token)) {
+                jwtTokenProvider.getUserIdFromToken(token);
+            }
+        }
+    }
+
+    private void warmJackson() {
+        MessageDTO message = MessageDTO.builder()
+                .id(UUID.randomUUID().toString())
+                .clientMessageId(UUID.randomUUID().toString())
+                .roomId(WARMUP_ROOM)
+                .senderId(WARMUP_USER)
+                .senderUsername(WARMUP_USER)
+                .content("warm-up message")
+                .type("TEXT")
+                .createdAt(LocalDateTime.now())
+                .build();
+        Map<String, Object> offer = signalingPayload();
+
+        try {
+            for (int i = 0; i < iterations; i++) {
+                byte[] messageJson = objectMapper.writeValueAsBytes(message);
+                objectMapper.readValue(messageJson, MessageDTO.class);
+                byte[] offerJson = objectMapper.writeValueAsBytes(offer);
+                objectMapper.readValue(offerJson, new TypeReference<Map<String, Object>>() { });
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Opens pool connections in parallel and touches each hot collection once so the
+     * entity codecs are built before the first real query.
+     */
+    private void warmMongo() {
+        ExecutorService executor = Executors.newFixedThreadPool(mongoConnections);
+        try {
+            List<CompletableFuture<?>> pings = new ArrayList<>();
+            for (int i = 0; i < mongoConnections; i++) {
+                pings.add(CompletableFuture.runAsync(
+                        () -> mongoTemplate.getDb().runCommand(new Document("ping", 1)), executor));
+            }
+            CompletableFuture.allOf(pings.toArray(new CompletableFuture[0])).join();
+        } finally {
+            executor.shutdown();
+        }
+
+        for (Class<?> type : List.of(User.class, Session.class, Room.class, Message.class)) {
+            mongoTemplate.findById(WARMUP_ROOM, type);
+        }
+    }
+
+    /**
+     * Typing events go through the full inbound path (interceptor, argument
+     * resolution, JSON conversion, handler, broker) without touching storage.
+     * The session is pre-authorized for the warm-up room.
+     */
+    private void warmStomp() {
+        UsernamePasswordAuthenticationToken user =
+                new UsernamePasswordAuthenticationToken(WARMUP_USER, null, new ArrayList<>());
+        byte[] payload;
+        try {
+            payload = objectMapper.writeValueAsBytes(Map.of("userId", WARMUP_USER));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+
+        for (int i = 0; i < stompIterations; i++) {
+            Map<String, Object> sessionAttributes = new ConcurrentHashMap<>();
+            sessionAttributes.put(StompAuthChannelInterceptor.PREAUTHORIZED_ROOMS, Set.of(WARMUP_ROOM));
+
+            StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SEND);
+            accessor.setDestination("/app/chat/typing/" + WARMUP_ROOM);
+            accessor.setSessionId("warmup-" + i);
+            accessor.setSessionAttributes(sessionAttributes);
+            accessor.setUser(user);
+            accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+            accessor.setLeaveMutable(true);
+            clientInboundChannel.send(MessageBuilder.createMessage(payload, accessor.getMessageHeaders()));
+        }
+    }
+
+    private static Map<String, Object> signalingPayload() {
+        Map<String, Object> sdp = new HashMap<>();
+        sdp.put("type", "offer");
+        sdp.put("sdp", "v=0\r\no=- 0 0 IN IP4 127.0.0.1\r\ns=-\r\nt=0 0\r\n");
+
+        Map<String, Object> offer = new HashMap<>();
+        offer.put("senderId", WARMUP_USER);
+        offer.put("sdpOffer", sdp);
+        offer.put("callType", "video");
+        return offer;
+    }
+}
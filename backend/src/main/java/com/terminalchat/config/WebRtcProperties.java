@@ -0,0 +1,30 @@
+package com.terminalchat.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+@ConfigurationProperties(prefix = "webrtc")
+@Data
+public class WebRtcProperties {
+
+    private List<String> stunServers = new ArrayList<>();
+    private List<TurnServer> turnServers = new ArrayList<>();
+
+    // Shared secret with the TURN server (coturn "static-auth-secret"). When set,
+    // clients get short-lived HMAC credentials instead of the static ones below.
+    private String turnSecret;
+    private long turnCredentialTtlSeconds = 86400;
+    private long turnCredentialRefreshMarginSeconds = 3600;
+
+    @Data
+    public static class TurnServer {
+        private String urls;
+        private String username;
+        private String credential;
+    }
+}
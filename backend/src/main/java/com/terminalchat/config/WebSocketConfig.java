@@ -1,29 +1,104 @@
 package com.terminalchat.config;
 
+import com.terminalchat.security.StompAuthChannelInterceptor;
+import com.terminalchat.security.WebSocketTokenGuard;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
 @Configuration
 @EnableWebSocketMessageBroker
+@RequiredArgsConstructor
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final StompAuthChannelInterceptor stompAuthChannelInterceptor;
+    private final WebSocketTokenGuard webSocketTokenGuard;
+
+    @Value("${websocket.compression.enabled:false}")
+    private boolean compressionEnabled;
+
+    @Value("${websocket.transport.message-size-limit:131072}")
+    private int messageSizeLimit;
+
+    @Value("${websocket.transport.send-buffer-size-limit:1048576}")
+    private int sendBufferSizeLimit;
+
+    @Value("${websocket.transport.send-time-limit-ms:10000}")
+    private int sendTimeLimitMillis;
+
+    @Value("${websocket.transport.time-to-first-message-ms:30000}")
+    private int timeToFirstMessageMillis;
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/room", "/user");
+        // /user/... destinations are resolved to per-session /queue/...-user{session}
+        // ones by the user destination handler before they reach the broker
+        config.enableSimpleBroker("/room", "/queue");
         config.setApplicationDestinationPrefixes("/app");
+        // Keep destination -> subscriber lookups cached for every live room
+        config.setCacheLimit(8192);
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(stompAuthChannelInterceptor);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        // One broadcast to a large group room becomes one outbound send per member;
+        // spread those over enough threads that a slow client doesn't hold up the rest
+        int threads = Runtime.getRuntime().availableProcessors() * 2;
+        registration.taskExecutor()
+                .corePoolSize(threads)
+                .maxPoolSize(threads * 2)
+                .queueCapacity(10000);
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        // SDP offers and file-share notices fit well inside the message limit; the send
+        // buffer and time limit decide how long a stalled client may back up broadcasts
+        // before its session is closed
+        registration.setMessageSizeLimit(messageSizeLimit)
+                .setSendBufferSizeLimit(sendBufferSizeLimit)
+                .setSendTimeLimit(sendTimeLimitMillis)
+                .setTimeToFirstMessage(timeToFirstMessageMillis)
+                .addDecoratorFactory(webSocketTokenGuard::decorate);
     }
 
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
+        CompressionHandshakeHandler handshakeHandler = new CompressionHandshakeHandler(compressionEnabled);
+
         registry.addEndpoint("/ws/chat")
+                .setHandshakeHandler(handshakeHandler)
                 .setAllowedOriginPatterns("*")
                 .withSockJS();
         
         registry.addEndpoint("/ws/signaling")
+                .setHandshakeHandler(handshakeHandler)
                 .setAllowedOriginPatterns("*")
                 .withSockJS();
+
+        // Single connection for everything in a room tab: chat, typing and signaling
+        // destinations all go through the same broker, so one session can carry them.
+        // /ws/chat and /ws/signaling stay for older clients.
+        registry.addEndpoint("/ws/room")
+                .setHandshakeHandler(handshakeHandler)
+                .setAllowedOriginPatterns("*")
+                .withSockJS();
+
+        // Plain WebSocket for clients that don't need the SockJS fallback (desktop app):
+        // no /info round trip and no JSON-array wrapping of every frame
+        registry.addEndpoint("/ws/native/room", "/ws/native/chat", "/ws/native/signaling")
+                .setHandshakeHandler(handshakeHandler)
+                .setAllowedOriginPatterns("*");
     }
 }
\ No newline at end of file
@@ -0,0 +1,58 @@
+package com.terminalchat.domain.convert;
+
+import org.springframework.data.convert.PropertyValueConverter;
+import org.springframework.data.mongodb.core.convert.MongoConversionContext;
+
+import java.util.List;
+
+/**
+ * Stores one of a small fixed set of strings as its position in the list, so a
+ * status or type costs an int32 instead of a repeated string. Values outside the
+ * list, and strings in documents written before the compact schema, pass through
+ * unchanged. The lists are append-only: a code, once written, must keep its
+ * meaning.
+ */
+public abstract class CodedValueConverter implements PropertyValueConverter<String, Object, MongoConversionContext> {
+
+    public static final List<String> MESSAGE_TYPES = List.of("TEXT", "SYSTEM", "FILE");
+    public static final List<String> SESSION_TYPES = List.of("CHAT", "VOICE", "VIDEO", "TERMINAL");
+    public static final List<String> STATUSES = List.of("WAITING", "ACTIVE", "CLOSED", "EXPIRED", "COMPLETED", "CANCELLED");
+
+    private final List<String> values;
+
+    protected CodedValueConverter(List<String> values) {
+        this.values = values;
+    }
+
+    @Override
+    public String read(Object value, MongoConversionContext context) {
+        if (value instanceof Number code && code.intValue() >= 0 && code.intValue() < values.size()) {
+            return values.get(code.intValue());
+        }
+        return value == null ? null : value.toString();
+    }
+
+    @Override
+    public Object write(String value, MongoConversionContext context) {
+        int code = values.indexOf(value);
+        return code < 0 ? value : code;
+    }
+
+    public static final class MessageType extends CodedValueConverter {
+        public MessageType() {
+            super(MESSAGE_TYPES);
+        }
+    }
+
+    public static final class SessionType extends CodedValueConverter {
+        public SessionType() {
+            super(SESSION_TYPES);
+        }
+    }
+
+    public static final class Status extends CodedValueConverter {
+        public Status() {
+            super(STATUSES);
+        }
+    }
+}
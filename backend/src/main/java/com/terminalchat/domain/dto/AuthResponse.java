@@ -10,7 +10,11 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 @Builder
 public class AuthResponse {
+    // Access token
     private String token;
+    private String refreshToken;
+    // Access token lifetime in seconds
+    private long expiresIn;
     private String userId;
     private String email;
     private String displayName;
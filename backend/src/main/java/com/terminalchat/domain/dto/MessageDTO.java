@@ -13,6 +13,7 @@ import java.time.LocalDateTime;
 @Builder
 public class MessageDTO {
     private String id;
+    private String clientMessageId;
     private String roomId;
     private String senderId;
     private String senderUsername;
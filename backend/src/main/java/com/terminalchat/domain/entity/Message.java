@@ -1,31 +1,57 @@
 package com.terminalchat.domain.entity;
 
+import com.terminalchat.domain.convert.CodedValueConverter;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.convert.ValueConverter;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
 
 import java.time.LocalDateTime;
 
+/**
+ * Stored with one- and two-letter field names. The sender's display name isn't
+ * stored; it's resolved from the user cache when messages are read. There is no
+ * expiresAt either: the TTL index expires documents
+ * {@code message.storage.retention-hours} after {@code createdAt}.
+ */
 @Document(collection = "messages")
+@CompoundIndex(name = "room_client_message_c_idx", def = "{'r': 1, 'c': 1}",
+        unique = true, partialFilter = "{'c': {'$exists': true}}")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class Message {
-    
+
+    // Time-ordered UUIDv7 assigned by MessageService before the write
     @Id
     private String id;
+
+    // Client-supplied idempotency key, unique per room
+    @Field("c")
+    private String clientMessageId;
     
+    @Field("r")
     private String roomId;
+    @Field("s")
     private String senderId;
-    private String senderUsername;
     
+    @Field("b")
     private String content;
-    private String type; // TEXT, SYSTEM
+    // Set instead of content for large bodies, see MessageContentCodec
+    @Field("z")
+    private byte[] compressedContent;
+    @Field("e")
+    private String contentEncoding;
+    @Field("t")
+    @ValueConverter(CodedValueConverter.MessageType.class)
+    private String type; // TEXT, SYSTEM, FILE
     
+    @Field("ts")
     private LocalDateTime createdAt;
-    private LocalDateTime expiresAt; 
 }
@@ -0,0 +1,36 @@
+package com.terminalchat.domain.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Cumulative receipt for one user in one room. Message ids are time-ordered, so
+ * "delivered/read up to X" covers every earlier message and the document never grows.
+ */
+@Document(collection = "read_receipts")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReadReceipt {
+
+    // roomId + ":" + userId
+    @Id
+    private String id;
+
+    @Indexed
+    private String roomId;
+    private String userId;
+
+    private String deliveredUpTo;
+    private String readUpTo;
+
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,33 @@
+package com.terminalchat.domain.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * One entry of the token revocation list: either a single token (keyed by its
+ * jti) or every token of a user issued up to {@code issuedBefore} (keyed by the
+ * user id). Removed by the TTL index once nothing it covers can still be valid.
+ */
+@Document(collection = "revoked_tokens")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RevokedToken {
+
+    @Id
+    private String id;
+
+    private String userId;
+
+    // Epoch millis; Long.MAX_VALUE for a single token
+    private long issuedBefore;
+
+    private Date expiresAt;
+}
@@ -1,10 +1,12 @@
 package com.terminalchat.domain.entity;
 
+import com.terminalchat.domain.convert.CodedValueConverter;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.convert.ValueConverter;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
@@ -21,11 +23,22 @@ public class Room {
     @Id
     private String id;
     
-    private String roomType; // CHAT, VOICE, VIDEO
+    // Stored as codes, see CodedValueConverter
+    @ValueConverter(CodedValueConverter.SessionType.class)
+    private String roomType; // CHAT, VOICE, VIDEO, TERMINAL
+    @ValueConverter(CodedValueConverter.Status.class)
     private String status; 
     
+    // Pair rooms only; group room members live in the room_members collection
     @Builder.Default
     private List<String> participantIds = new ArrayList<>();
+
+    private boolean group;
+    private String ownerId;
+    private int maxParticipants;
+    // Group rooms: members holding a slot, updated atomically by RoomService so
+    // concurrent joins can't go past maxParticipants
+    private int memberCount;
     
     private LocalDateTime createdAt;
     private LocalDateTime expiresAt;
@@ -0,0 +1,32 @@
+package com.terminalchat.domain.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * One document per (room, user) for group rooms, so joins and leaves never rewrite
+ * a growing participant array on the room itself.
+ */
+@Document(collection = "room_members")
+@CompoundIndex(name = "room_user_idx", def = "{'roomId': 1, 'userId': 1}", unique = true)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RoomMember {
+
+    @Id
+    private String id;
+
+    private String roomId;
+    private String userId;
+
+    private LocalDateTime joinedAt;
+}
@@ -1,14 +1,18 @@
 package com.terminalchat.domain.entity;
 
+import com.terminalchat.domain.convert.CodedValueConverter;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.convert.ValueConverter;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
 
 import java.time.LocalDateTime;
 
+// Stored with one-letter field names and coded type/status, see CodedValueConverter
 @Document(collection = "sessions")
 @Data
 @NoArgsConstructor
@@ -19,14 +23,24 @@ public class Session {
     @Id
     private String id;
     
+    @Field("u")
     private String userId;
+    @Field("k")
     private String sessionCode;
-    private String sessionType; // CHAT, VOICE, VIDEO
+    @Field("t")
+    @ValueConverter(CodedValueConverter.SessionType.class)
+    private String sessionType; // CHAT, VOICE, VIDEO, TERMINAL
     
+    @Field("r")
     private String roomId;
+    @Field("s")
+    @ValueConverter(CodedValueConverter.Status.class)
     private String status; 
     
+    @Field("c")
     private LocalDateTime createdAt;
+    @Field("x")
     private LocalDateTime expiresAt;
+    @Field("f")
     private LocalDateTime completedAt;
 }
@@ -0,0 +1,36 @@
+package com.terminalchat.domain.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+@Document(collection = "shared_files")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SharedFile {
+
+    @Id
+    private String id;
+
+    private String roomId;
+    private String uploaderId;
+
+    private String filename;
+    private String contentType;
+    private long size;
+
+    // Relative to files.storage-dir; server-side only, never sent to clients
+    @JsonIgnore
+    private String storageKey;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime expiresAt;
+}
@@ -1,12 +1,24 @@
 package com.terminalchat.domain.repository;
 
 import com.terminalchat.domain.entity.Message;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface MessageRepository extends MongoRepository<Message, String> {
     List<Message> findByRoomIdOrderByCreatedAtAsc(String roomId);
+
+    // Message ids are UUIDv7, so an id range is a creation-time range
+    @Query("{ 'roomId': ?0, '_id': { $gte: ?1, $lte: ?2 } }")
+    List<Message> findByRoomIdInIdRange(String roomId, String fromId, String toId, Sort sort);
+
+    List<Message> findByRoomIdOrderByIdDesc(String roomId, Pageable pageable);
+
+    Optional<Message> findByRoomIdAndClientMessageId(String roomId, String clientMessageId);
 }
@@ -0,0 +1,12 @@
+package com.terminalchat.domain.repository;
+
+import com.terminalchat.domain.entity.ReadReceipt;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ReadReceiptRepository extends MongoRepository<ReadReceipt, String> {
+    List<ReadReceipt> findByRoomId(String roomId);
+}
@@ -0,0 +1,9 @@
+package com.terminalchat.domain.repository;
+
+import com.terminalchat.domain.entity.RevokedToken;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface RevokedTokenRepository extends MongoRepository<RevokedToken, String> {
+}
@@ -0,0 +1,14 @@
+package com.terminalchat.domain.repository;
+
+import com.terminalchat.domain.entity.RoomMember;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface RoomMemberRepository extends MongoRepository<RoomMember, String> {
+    List<RoomMember> findByRoomId(String roomId);
+    boolean existsByRoomIdAndUserId(String roomId, String userId);
+    long deleteByRoomIdAndUserId(String roomId, String userId);
+}
@@ -0,0 +1,14 @@
+package com.terminalchat.domain.repository;
+
+import com.terminalchat.domain.entity.SharedFile;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface SharedFileRepository extends MongoRepository<SharedFile, String> {
+    List<SharedFile> findByRoomId(String roomId);
+    List<SharedFile> findByExpiresAtBefore(LocalDateTime time);
+}
@@ -1,17 +1,37 @@
 package com.terminalchat.scheduler;
 
+import com.terminalchat.security.TokenRevocationList;
+import com.terminalchat.security.WebSocketTokenGuard;
+import com.terminalchat.service.FileTransferService;
+import com.terminalchat.service.IceServerService;
+import com.terminalchat.service.MatchmakingService;
+import com.terminalchat.service.MessageSearchIndex;
+import com.terminalchat.service.MessageStore;
+import com.terminalchat.service.OfflineMessageQueue;
 import com.terminalchat.service.PairingService;
+import com.terminalchat.websocket.SignalingStateCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 @Component
+@Lazy(false)
 @RequiredArgsConstructor
 @Slf4j
 public class SessionCleanupScheduler {
 
     private final PairingService pairingService;
+    private final MatchmakingService matchmakingService;
+    private final IceServerService iceServerService;
+    private final MessageSearchIndex messageSearchIndex;
+    private final FileTransferService fileTransferService;
+    private final OfflineMessageQueue offlineMessageQueue;
+    private final SignalingStateCache signalingStateCache;
+    private final MessageStore messageStore;
+    private final TokenRevocationList tokenRevocationList;
+    private final WebSocketTokenGuard webSocketTokenGuard;
 
     @Scheduled(fixedRate = 300000) 
     public void cleanupExpiredSessions() {
@@ -34,4 +54,86 @@ public class SessionCleanupScheduler {
             log.error("Error during room cleanup", e);
         }
     }
+
+    @Scheduled(fixedRate = 1000)
+    public void expireMatchmakingTickets() {
+        try {
+            matchmakingService.expireStaleTickets();
+        } catch (Exception e) {
+            log.error("Error during matchmaking sweep", e);
+        }
+    }
+
+    @Scheduled(fixedRate = 600000)
+    public void evictExpiredIceCredentials() {
+        try {
+            iceServerService.evictExpired();
+        } catch (Exception e) {
+            log.error("Error during ICE credential eviction", e);
+        }
+    }
+
+    @Scheduled(fixedRate = 60000)
+    public void pruneSearchIndex() {
+        try {
+            messageSearchIndex.pruneExpired();
+        } catch (Exception e) {
+            log.error("Error during search index pruning", e);
+        }
+    }
+
+    @Scheduled(fixedRate = 300000)
+    public void cleanupExpiredFiles() {
+        try {
+            fileTransferService.deleteExpiredFiles();
+        } catch (Exception e) {
+            log.error("Error during shared file cleanup", e);
+        }
+    }
+
+    @Scheduled(fixedRate = 60000)
+    public void evictOfflineQueues() {
+        try {
+            offlineMessageQueue.evictExpired();
+        } catch (Exception e) {
+            log.error("Error during offline queue eviction", e);
+        }
+    }
+
+    @Scheduled(fixedRate = 60000)
+    public void evictSignalingState() {
+        try {
+            signalingStateCache.evictExpired();
+        } catch (Exception e) {
+            log.error("Error during signaling cache eviction", e);
+        }
+    }
+
+    @Scheduled(fixedRate = 60000)
+    public void evictExpiredMessages() {
+        try {
+            messageStore.evictExpired();
+        } catch (Exception e) {
+            log.error("Error during message retention sweep", e);
+        }
+    }
+
+    @Scheduled(fixedRate = 300000)
+    public void evictExpiredRevocations() {
+        try {
+            tokenRevocationList.evictExpired();
+        } catch (Exception e) {
+            log.error("Error during token revocation eviction", e);
+        }
+    }
+
+    // Access tokens last minutes, so sockets outliving theirs are closed within seconds
+    @Scheduled(fixedRate = 15000)
+    public void closeSessionsWithInvalidTokens() {
+        try {
+            webSocketTokenGuard.closeInvalidSessions();
+        } catch (Exception e) {
+            log.error("Error closing WebSocket sessions with invalid tokens", e);
+        }
+    }
 }
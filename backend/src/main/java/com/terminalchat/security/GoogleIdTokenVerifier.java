@@ -0,0 +1,132 @@
+package com.terminalchat.security;
+
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.crypto.RSASSAVerifier;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Verifies Google ID tokens locally against Google's signing keys. The key set is
+ * cached and refreshed periodically, and on demand when a token carries a key id we
+ * haven't seen yet (Google rotates keys roughly daily). Created along with
+ * GoogleOAuthClient, its only user, on the first desktop sign-in.
+ */
+@Component
+@Lazy
+@RequiredArgsConstructor
+@Slf4j
+public class GoogleIdTokenVerifier {
+
+    private static final Set<String> ISSUERS = Set.of("accounts.google.com", "https://accounts.google.com");
+    private static final long MIN_REFRESH_INTERVAL_MILLIS = 60000;
+    private static final long CLOCK_SKEW_MILLIS = 60000;
+
+    private final HttpClient googleHttpClient;
+
+    @Value("${google.client.id}")
+    private String googleClientId;
+
+    @Value("${google.oauth.jwks-uri:https://www.googleapis.com/oauth2/v3/certs}")
+    private String jwksUri;
+
+    private volatile Map<String, JWSVerifier> verifiers = Map.of();
+    private volatile long lastRefresh;
+
+    /**
+     * Returns the token's claims if the signature, issuer, audience and expiry all
+     * check out.
+     */
+    public JWTClaimsSet verify(String idToken) {
+        try {
+            SignedJWT jwt = SignedJWT.parse(idToken);
+            String keyId = jwt.getHeader().getKeyID();
+
+            JWSVerifier verifier = verifiers.get(keyId);
+            if (verifier == null && System.currentTimeMillis() - lastRefresh > MIN_REFRESH_INTERVAL_MILLIS) {
+                refreshKeys();
+                verifier = verifiers.get(keyId);
+            }
+            if (verifier == null) {
+                throw new RuntimeException("Unknown ID token signing key: " + keyId);
+            }
+            if (!jwt.verify(verifier)) {
+                throw new RuntimeException("Invalid ID token signature");
+            }
+
+            JWTClaimsSet claims = jwt.getJWTClaimsSet();
+            if (!ISSUERS.contains(claims.getIssuer())) {
+                throw new RuntimeException("Unexpected ID token issuer: " + claims.getIssuer());
+            }
+            if (claims.getAudience() == null || !claims.getAudience().contains(googleClientId)) {
+                throw new RuntimeException("ID token was not issued for this client");
+            }
+            Date expiry = claims.getExpirationTime();
+            if (expiry == null || expiry.getTime() + CLOCK_SKEW_MILLIS < System.currentTimeMillis()) {
+                throw new RuntimeException("ID token expired");
+            }
+            return claims;
+        } catch (java.text.ParseException | com.nimbusds.jose.JOSEException e) {
+            throw new RuntimeException("Malformed ID token", e);
+        }
+    }
+
+    @Scheduled(fixedRate = 3600000, initialDelay = 3600000)
+    public void scheduledRefresh() {
+        try {
+            refreshKeys();
+        } catch (Exception e) {
+            log.warn("Failed to refresh Google signing keys, keeping {} cached keys", verifiers.size(), e);
+        }
+    }
+
+    private synchronized void refreshKeys() {
+        if (System.currentTimeMillis() - lastRefresh <= MIN_REFRESH_INTERVAL_MILLIS && !verifiers.isEmpty()) {
+            return;
+        }
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(jwksUri))
+                    .timeout(Duration.ofSeconds(5))
+                    .GET()
+                    .build();
+            HttpResponse<String> response = googleHttpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new RuntimeException("JWKS fetch failed with status " + response.statusCode());
+            }
+
+            Map<String, JWSVerifier> refreshed = new HashMap<>();
+            for (JWK key : JWKSet.parse(response.body()).getKeys()) {
+                if (key instanceof RSAKey rsaKey) {
+                    refreshed.put(key.getKeyID(), new RSASSAVerifier(rsaKey));
+                }
+            }
+            verifiers = Map.copyOf(refreshed);
+            lastRefresh = System.currentTimeMillis();
+            log.info("Loaded {} Google signing keys", refreshed.size());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while fetching Google signing keys", e);
+        } catch (Exception e) {
+            lastRefresh = System.currentTimeMillis();
+            throw new RuntimeException("Failed to fetch Google signing keys", e);
+        }
+    }
+}
@@ -2,65 +2,123 @@ package com.terminalchat.security;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.util.Date;
+import java.util.UUID;
 
+/**
+ * Issues and verifies two kinds of token, told apart by the {@code typ} claim:
+ * short-lived access tokens ({@code jwt.access-expiration}) that authenticate
+ * requests and STOMP connections, and refresh tokens ({@code jwt.expiration})
+ * that are only accepted by {@code /auth/refresh} to get a new pair. Every token
+ * carries a jti, and every verification checks the {@link TokenRevocationList}.
+ */
 @Component
+@RequiredArgsConstructor
 public class JwtTokenProvider {
 
+    public static final String ACCESS = "access";
+    public static final String REFRESH = "refresh";
+
+    private static final String TYPE_CLAIM = "typ";
+
+    private final TokenRevocationList revocationList;
+
     @Value("${jwt.secret}")
     private String jwtSecret;
 
+    @Value("${jwt.access-expiration:900000}")
+    private long accessExpiration;
+
+    // Refresh token lifetime, i.e. how long a session lasts without signing in again
     @Value("${jwt.expiration}")
-    private long jwtExpiration;
+    private long refreshExpiration;
+
+    private SecretKey signingKey;
+    private JwtParser parser;
 
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
     }
 
     public String generateToken(String userId, String email) {
+        return generate(userId, email, ACCESS, accessExpiration);
+    }
+
+    public String generateRefreshToken(String userId, String email) {
+        return generate(userId, email, REFRESH, refreshExpiration);
+    }
+
+    private String generate(String userId, String email, String type, long expiration) {
         Date now = new Date();
-        Date expiryDate = new Date(now.getTime() + jwtExpiration);
+        Date expiryDate = new Date(now.getTime() + expiration);
 
         return Jwts.builder()
+                .setId(UUID.randomUUID().toString())
                 .setSubject(userId)
                 .claim("email", email)
+                .claim(TYPE_CLAIM, type)
                 .setIssuedAt(now)
                 .setExpiration(expiryDate)
-                .signWith(getSigningKey(), SignatureAlgorithm.HS512)
+                .signWith(signingKey, SignatureAlgorithm.HS512)
                 .compact();
     }
 
+    /**
+     * Verifies an access token and returns its claims.
+     *
+     * @throws JwtException if the token is invalid, expired or not an access token;
+     *                      {@link RevokedTokenException} if it was revoked
+     */
+    public Claims parseAccessToken(String token) {
+        return parse(token, ACCESS);
+    }
+
+    public Claims parseRefreshToken(String token) {
+        return parse(token, REFRESH);
+    }
+
+    private Claims parse(String token, String type) {
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        if (!type.equals(claims.get(TYPE_CLAIM))) {
+            throw new JwtException("Expected a " + type + " token");
+        }
+        if (claims.getIssuedAt() == null
+                || revocationList.isRevoked(claims.getId(), claims.getSubject(), claims.getIssuedAt().getTime())) {
+            throw new RevokedTokenException(claims);
+        }
+        return claims;
+    }
+
     public String getUserIdFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-        return claims.getSubject();
+        return parseAccessToken(token).getSubject();
     }
 
     public String getEmailFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-        return claims.get("email", String.class);
+        return parseAccessToken(token).get("email", String.class);
     }
 
     public boolean validateToken(String token) {
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(token);
+            parseAccessToken(token);
             return true;
         } catch (JwtException | IllegalArgumentException ex) {
             return false;
         }
     }
+
+    public long getAccessExpiration() {
+        return accessExpiration;
+    }
+
+    public long getRefreshExpiration() {
+        return refreshExpiration;
+    }
 }
@@ -0,0 +1,14 @@
+package com.terminalchat.security;
+
+import io.jsonwebtoken.ClaimJwtException;
+import io.jsonwebtoken.Claims;
+
+/**
+ * A correctly signed, unexpired token that is on the {@link TokenRevocationList}.
+ */
+public class RevokedTokenException extends ClaimJwtException {
+
+    public RevokedTokenException(Claims claims) {
+        super(null, claims, "Token has been revoked");
+    }
+}
@@ -0,0 +1,166 @@
+package com.terminalchat.security;
+
+import com.terminalchat.service.RoomService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.stereotype.Component;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Authenticates a STOMP session once, at CONNECT, from the bearer token in the
+ * connect headers and binds the user id as the session {@link Principal}. Every
+ * SUBSCRIBE and SEND re-checks the token's expiry and revocation and, if it names a
+ * room, membership against RoomService's member cache, so a user who leaves or is
+ * removed loses access on their next frame.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StompAuthChannelInterceptor implements ChannelInterceptor {
+
+    // Rooms the server itself authorized for an internal session (the warm-up);
+    // never filled from client traffic, so it can't go stale on leave or close
+    public static final String PREAUTHORIZED_ROOMS = "preauthorizedRooms";
+
+    private final JwtTokenProvider jwtTokenProvider;
+    private final RoomService roomService;
+    private final WebSocketTokenGuard webSocketTokenGuard;
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() == null) {
+            return message;
+        }
+
+        switch (accessor.getCommand()) {
+            case CONNECT -> authenticate(accessor);
+            case SUBSCRIBE, SEND -> authorize(accessor);
+            default -> { }
+        }
+        return message;
+    }
+
+    private void authenticate(StompHeaderAccessor accessor) {
+        String authorization = accessor.getFirstNativeHeader("Authorization");
+        String token = authorization != null && authorization.startsWith("Bearer ")
+                ? authorization.substring(7)
+                : null;
+        Claims claims;
+        try {
+            claims = jwtTokenProvider.parseAccessToken(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            throw new AccessDeniedException("Missing or invalid token");
+        }
+
+        UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                claims.getSubject(), null, new ArrayList<>());
+        authentication.setDetails(claims.get("email", String.class));
+        accessor.setUser(authentication);
+        if (accessor.getSessionAttributes() != null) {
+            WebSocketTokenGuard.bind(accessor.getSessionAttributes(), claims);
+        }
+    }
+
+    private void authorize(StompHeaderAccessor accessor) {
+        String denied = denialOf(accessor);
+        if (denied != null) {
+            log.warn("User {} denied {} to {}: {}", accessor.getUser() != null ? accessor.getUser().getName() : null,
+                    accessor.getCommand(), accessor.getDestination(), denied);
+            throw new AccessDeniedException(denied);
+        }
+    }
+
+    /**
+     * Whether this SUBSCRIBE or SEND passes the checks {@link #preSend} applies.
+     * Spring publishes SessionSubscribeEvent before the frame reaches the inbound
+     * channel, so listeners that act on a subscription call this first rather than
+     * trusting the event.
+     */
+    public boolean isAuthorized(StompHeaderAccessor accessor) {
+        return denialOf(accessor) == null;
+    }
+
+    private String denialOf(StompHeaderAccessor accessor) {
+        Principal user = accessor.getUser();
+        if (user == null) {
+            return "Not authenticated";
+        }
+        // The token was checked at CONNECT; it may have expired or been revoked since
+        if (!webSocketTokenGuard.isValid(accessor.getSessionAttributes())) {
+            return "Token expired or revoked";
+        }
+
+        String destination = accessor.getDestination();
+        if (destination == null) {
+            return null;
+        }
+
+        // Clients only send to @MessageMapping handlers, which take the sender from
+        // the Principal. A SEND straight to a broker destination (/room/..., /user/...)
+        // would reach every subscriber with whatever senderId the client wrote.
+        if (accessor.getCommand() == StompCommand.SEND && !destination.startsWith("/app/")) {
+            return "Cannot send to " + destination;
+        }
+
+        if (destination.startsWith("/user/")) {
+            // Personal queues such as /user/queue/matchmaking, which the user
+            // destination handler scopes to this session's Principal
+            return null;
+        }
+        if (destination.startsWith("/queue/")) {
+            // The resolved form carries another session's id; only reachable via /user/
+            return "Cannot subscribe to " + destination;
+        }
+
+        String roomId = roomIdOf(destination);
+        if (roomId == null || preauthorized(accessor, roomId)) {
+            return null;
+        }
+        // A hash lookup in RoomService's member cache, which leave and close update
+        if (!roomService.validateRoomParticipants(roomId, user.getName())) {
+            return "Not a member of room " + roomId;
+        }
+        return null;
+    }
+
+    /**
+     * Room id of a room-scoped destination: /room/{roomId}/... for subscriptions and
+     * /app/{chat|signaling}/{action}/{roomId} for sends.
+     */
+    static String roomIdOf(String destination) {
+        if (destination.startsWith("/room/")) {
+            return segment(destination, 1);
+        }
+        if (destination.startsWith("/app/chat/") || destination.startsWith("/app/signaling/")) {
+            return segment(destination, 3);
+        }
+        return null;
+    }
+
+    private static String segment(String destination, int index) {
+        String[] parts = destination.substring(1).split("/");
+        return index < parts.length && !parts[index].isEmpty() ? parts[index] : null;
+    }
+
+    private static boolean preauthorized(StompHeaderAccessor accessor, String roomId) {
+        Map<String, Object> attributes = accessor.getSessionAttributes();
+        return attributes != null
+                && attributes.get(PREAUTHORIZED_ROOMS) instanceof Set<?> rooms
+                && rooms.contains(roomId);
+    }
+}
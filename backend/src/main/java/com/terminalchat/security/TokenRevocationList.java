@@ -0,0 +1,248 @@
+package com.terminalchat.security;
+
+import com.terminalchat.domain.entity.RevokedToken;
+import com.terminalchat.domain.repository.RevokedTokenRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Revoked tokens (by jti) and users whose tokens were all revoked (by user id),
+ * checked on every token verification. Almost every token checked is not
+ * revoked, so a Bloom filter answers first: a miss is a few array reads with no
+ * allocation and no lock. Only a hit consults the exact map, which also weeds
+ * out the filter's false positives.
+ *
+ * Entries are persisted in {@code revoked_tokens} and reloaded on startup, and
+ * dropped once every token they cover has expired. The filter can't forget a
+ * key, so it is rebuilt from the remaining entries whenever that happens.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TokenRevocationList {
+
+    private final RevokedTokenRepository revokedTokenRepository;
+
+    // Power of two; 2^20 bits (128 KiB) keeps false positives under 1% up to ~100k entries
+    @Value("${jwt.revocation.bloom-bits:1048576}")
+    private int bloomBits;
+
+    @Value("${jwt.revocation.bloom-hashes:7}")
+    private int bloomHashes;
+
+    private final Map<String, RevokedToken> revoked = new ConcurrentHashMap<>();
+    private volatile BloomFilter filter;
+
+    private final LongAdder checks = new LongAdder();
+    private final LongAdder filterHits = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder purged = new LongAdder();
+
+    @PostConstruct
+    void load() {
+        filter = new BloomFilter(bloomBits, bloomHashes);
+        try {
+            long now = System.currentTimeMillis();
+            for (RevokedToken entry : revokedTokenRepository.findAll()) {
+                if (entry.getExpiresAt().getTime() > now) {
+                    revoked.put(entry.getId(), entry);
+                    filter.add(entry.getId());
+                }
+            }
+            log.info("Loaded {} token revocations", revoked.size());
+        } catch (Exception e) {
+            log.error("Could not load token revocations", e);
+        }
+    }
+
+    /**
+     * Whether the token with this jti, or every token its user was issued up to
+     * {@code issuedAtMillis}, has been revoked.
+     */
+    public boolean isRevoked(String tokenId, String userId, long issuedAtMillis) {
+        checks.increment();
+        if (matches(tokenId, issuedAtMillis) || matches(userId, issuedAtMillis)) {
+            rejected.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /** Whether this exact token (not just every token of its user) was revoked. */
+    public boolean isTokenRevoked(String tokenId) {
+        RevokedToken entry = revoked.get(tokenId);
+        return entry != null && entry.getIssuedBefore() == Long.MAX_VALUE;
+    }
+
+    private boolean matches(String key, long issuedAtMillis) {
+        if (key == null || !filter.mightContain(key)) {
+            return false;
+        }
+        filterHits.increment();
+        RevokedToken entry = revoked.get(key);
+        if (entry == null) {
+            falsePositives.increment();
+            return false;
+        }
+        return issuedAtMillis <= entry.getIssuedBefore();
+    }
+
+    public void revokeToken(String tokenId, String userId, long expiresAtMillis) {
+        revokeTokenIfAbsent(tokenId, userId, expiresAtMillis);
+    }
+
+    /**
+     * Revokes the token unless it already was, here or by another instance sharing
+     * {@code revoked_tokens}. Returns false if it was: for a refresh token that
+     * means it has been used before.
+     */
+    public synchronized boolean revokeTokenIfAbsent(String tokenId, String userId, long expiresAtMillis) {
+        RevokedToken entry = RevokedToken.builder()
+                .id(tokenId)
+                .userId(userId)
+                .issuedBefore(Long.MAX_VALUE)
+                .expiresAt(new Date(expiresAtMillis))
+                .build();
+        if (revoked.putIfAbsent(tokenId, entry) != null) {
+            return false;
+        }
+        filter.add(tokenId);
+        try {
+            revokedTokenRepository.insert(entry);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        } catch (RuntimeException e) {
+            // Not persisted: still revoked in memory, but the caller must not rely on it
+            revoked.remove(tokenId, entry);
+            throw e;
+        }
+    }
+
+    /**
+     * Revokes every token issued to the user so far. Token issue times have
+     * second precision, so a token issued later in the same second is caught too.
+     */
+    public void revokeAllForUser(String userId, long longestTokenLifetimeMillis) {
+        long now = System.currentTimeMillis();
+        RevokedToken entry = RevokedToken.builder()
+                .id(userId)
+                .userId(userId)
+                .issuedBefore(now)
+                .expiresAt(new Date(now + longestTokenLifetimeMillis))
+                .build();
+        // Writers are serialized so a rebuild can't lose a concurrent add
+        synchronized (this) {
+            revokedTokenRepository.save(entry);
+            revoked.put(entry.getId(), entry);
+            filter.add(entry.getId());
+        }
+        log.info("Revoked all tokens of user {}", userId);
+    }
+
+    /**
+     * Drops entries whose tokens have all expired and rebuilds the filter without them.
+     */
+    public synchronized void evictExpired() {
+        long now = System.currentTimeMillis();
+        int before = revoked.size();
+        revoked.values().removeIf(entry -> entry.getExpiresAt().getTime() <= now);
+        int removed = before - revoked.size();
+        if (removed == 0) {
+            return;
+        }
+
+        BloomFilter rebuilt = new BloomFilter(bloomBits, bloomHashes);
+        revoked.keySet().forEach(rebuilt::add);
+        filter = rebuilt;
+        purged.add(removed);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("entries", revoked.size());
+        stats.put("bloomBits", bloomBits);
+        stats.put("bloomHashes", bloomHashes);
+        stats.put("checks", checks.sum());
+        stats.put("filterHits", filterHits.sum());
+        stats.put("falsePositives", falsePositives.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("purged", purged.sum());
+        return stats;
+    }
+
+    /**
+     * Fixed-size Bloom filter over strings with double hashing. Hashes are computed
+     * from the chars directly, so lookups allocate nothing.
+     */
+    static final class BloomFilter {
+
+        private final AtomicLongArray words;
+        private final int mask;
+        private final int hashes;
+
+        BloomFilter(int bits, int hashes) {
+            if (bits < 64 || Integer.bitCount(bits) != 1) {
+                throw new IllegalArgumentException("Bloom filter size must be a power of two >= 64: " + bits);
+            }
+            this.words = new AtomicLongArray(bits >>> 6);
+            this.mask = bits - 1;
+            this.hashes = hashes;
+        }
+
+        void add(String key) {
+            long h1 = hash(key);
+            long h2 = mix(h1) | 1;
+            for (int i = 0; i < hashes; i++) {
+                int bit = (int) ((h1 + i * h2) & mask);
+                long word;
+                long bitMask = 1L << bit;
+                do {
+                    word = words.get(bit >>> 6);
+                } while ((word & bitMask) == 0 && !words.compareAndSet(bit >>> 6, word, word | bitMask));
+            }
+        }
+
+        boolean mightContain(String key) {
+            long h1 = hash(key);
+            long h2 = mix(h1) | 1;
+            for (int i = 0; i < hashes; i++) {
+                int bit = (int) ((h1 + i * h2) & mask);
+                if ((words.get(bit >>> 6) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static long hash(String key) {
+            long h = 0xcbf29ce484222325L;
+            for (int i = 0; i < key.length(); i++) {
+                h = (h ^ key.charAt(i)) * 0x100000001b3L;
+            }
+            return mix(h);
+        }
+
+        // MurmurHash3 finalizer
+        private static long mix(long h) {
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= h >>> 33;
+            return h;
+        }
+    }
+}
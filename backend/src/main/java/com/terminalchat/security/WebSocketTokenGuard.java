@@ -0,0 +1,102 @@
+package com.terminalchat.security;
+
+import io.jsonwebtoken.Claims;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps long-lived WebSocket sessions (STOMP and the terminal stream) bound to
+ * the access token they were opened with. The token's jti, subject, issue and
+ * expiry times go into the session attributes when it is authenticated;
+ * {@link #isValid} re-checks them on every STOMP SEND and SUBSCRIBE, and
+ * {@link #closeInvalidSessions} closes any session whose token has expired or
+ * been revoked, so a logout or forced revocation also reaches sockets that are
+ * only receiving.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class WebSocketTokenGuard {
+
+    public static final String TOKEN_ID = "tokenId";
+    public static final String TOKEN_SUBJECT = "tokenSubject";
+    public static final String TOKEN_ISSUED_AT = "tokenIssuedAt";
+    public static final String TOKEN_EXPIRES_AT = "tokenExpiresAt";
+
+    private static final CloseStatus TOKEN_INVALID = CloseStatus.POLICY_VIOLATION.withReason("Token expired or revoked");
+
+    private final TokenRevocationList revocationList;
+
+    private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+    private final LongAdder closed = new LongAdder();
+
+    public static void bind(Map<String, Object> attributes, Claims claims) {
+        attributes.put(TOKEN_ID, claims.getId());
+        attributes.put(TOKEN_SUBJECT, claims.getSubject());
+        attributes.put(TOKEN_ISSUED_AT, claims.getIssuedAt().getTime());
+        attributes.put(TOKEN_EXPIRES_AT, claims.getExpiration().getTime());
+    }
+
+    /**
+     * False once the token bound to these attributes has expired or been revoked.
+     * Attributes without a bound token (not yet authenticated, or internal
+     * sessions) are left to the caller's own checks.
+     */
+    public boolean isValid(Map<String, Object> attributes) {
+        if (attributes == null || !(attributes.get(TOKEN_EXPIRES_AT) instanceof Long expiresAt)) {
+            return true;
+        }
+        return expiresAt > System.currentTimeMillis()
+                && !revocationList.isRevoked((String) attributes.get(TOKEN_ID),
+                (String) attributes.get(TOKEN_SUBJECT), (Long) attributes.get(TOKEN_ISSUED_AT));
+    }
+
+    /** Tracks every session of the handler so it can be closed when its token goes. */
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                sessions.put(session.getId(), session);
+                super.afterConnectionEstablished(session);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                sessions.remove(session.getId());
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    public void closeInvalidSessions() {
+        for (WebSocketSession session : sessions.values()) {
+            if (!isValid(session.getAttributes())) {
+                try {
+                    session.close(TOKEN_INVALID);
+                } catch (IOException e) {
+                    log.debug("Could not close session {}", session.getId(), e);
+                }
+                sessions.remove(session.getId());
+                closed.increment();
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("sessions", sessions.size());
+        stats.put("closedForToken", closed.sum());
+        return stats;
+    }
+}
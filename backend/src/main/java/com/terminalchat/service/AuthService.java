@@ -4,12 +4,27 @@ import com.terminalchat.domain.dto.AuthResponse;
 import com.terminalchat.domain.entity.User;
 import com.terminalchat.domain.repository.UserRepository;
 import com.terminalchat.security.JwtTokenProvider;
+import com.terminalchat.security.RevokedTokenException;
+import com.terminalchat.security.TokenRevocationList;
+import com.terminalchat.security.WebSocketTokenGuard;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 @Service
 @RequiredArgsConstructor
@@ -17,41 +32,134 @@ import java.util.Optional;
 public class AuthService {
 
     private final UserRepository userRepository;
+    private final MongoTemplate mongoTemplate;
     private final JwtTokenProvider jwtTokenProvider;
+    private final UserProfileCache userProfileCache;
+    private final TokenRevocationList revocationList;
+    private final WebSocketTokenGuard webSocketTokenGuard;
 
+    /**
+     * Signs in a Google user, creating the account on first login. An existing
+     * account only gets its login fields set with a single {@code $set}, so a
+     * concurrent profile change isn't overwritten with a stale copy.
+     */
     public AuthResponse handleGoogleLogin(String googleId, String email, String displayName, String profilePicture) {
-        Optional<User> existingUser = userRepository.findByGoogleId(googleId);
-
-        User user;
+        LocalDateTime now = LocalDateTime.now();
+        User user = recordLogin(googleId, now);
         boolean isNewUser = false;
 
-        if (existingUser.isPresent()) {
-            user = existingUser.get();
-            user.setLastLogin(LocalDateTime.now());
-            user.setActive(true);
-            user.setUpdatedAt(LocalDateTime.now());
+        if (user != null) {
             log.info("User logged in: {}", email);
         } else {
-            user = User.builder()
-                    .googleId(googleId)
-                    .email(email)
-                    .displayName(displayName)
-                    .profilePicture(profilePicture)
-                    .createdAt(LocalDateTime.now())
-                    .updatedAt(LocalDateTime.now())
-                    .lastLogin(LocalDateTime.now())
-                    .active(true)
-                    .build();
-            isNewUser = true;
-            log.info("New user created: {}", email);
+            try {
+                user = userRepository.insert(User.builder()
+                        .googleId(googleId)
+                        .email(email)
+                        .displayName(displayName)
+                        .profilePicture(profilePicture)
+                        .createdAt(now)
+                        .updatedAt(now)
+                        .lastLogin(now)
+                        .active(true)
+                        .build());
+                isNewUser = true;
+                log.info("New user created: {}", email);
+            } catch (DuplicateKeyException e) {
+                // A concurrent first login created the account
+                user = recordLogin(googleId, now);
+                if (user == null) {
+                    throw e;
+                }
+            }
+        }
+        userProfileCache.put(user);
+
+        return issueTokens(user, isNewUser);
+    }
+
+    // The updated user, or null if no account has this Google id yet
+    private User recordLogin(String googleId, LocalDateTime now) {
+        return mongoTemplate.findAndModify(
+                Query.query(Criteria.where("googleId").is(googleId)),
+                new Update().set("lastLogin", now).set("active", true).set("updatedAt", now),
+                FindAndModifyOptions.options().returnNew(true),
+                User.class);
+    }
+
+    /**
+     * Exchanges a refresh token for a new access and refresh token pair. The old
+     * refresh token is revoked atomically, so each one works once. Presenting one
+     * that was already used means it leaked: every token of the user is revoked.
+     *
+     * @throws JwtException if the refresh token is invalid, expired, revoked or
+     *                      reused, or its user no longer exists
+     */
+    public AuthResponse refresh(String refreshToken) {
+        Claims claims;
+        try {
+            claims = jwtTokenProvider.parseRefreshToken(refreshToken);
+        } catch (RevokedTokenException e) {
+            // Not when only a user-wide revocation matched: that would also end the
+            // sessions started since
+            if (revocationList.isTokenRevoked(e.getClaims().getId())) {
+                revokeReusedRefreshToken(e.getClaims().getSubject());
+            }
+            throw e;
         }
+        if (!revocationList.revokeTokenIfAbsent(claims.getId(), claims.getSubject(),
+                claims.getExpiration().getTime())) {
+            // Lost the race against a concurrent refresh with the same token
+            revokeReusedRefreshToken(claims.getSubject());
+            throw new RevokedTokenException(claims);
+        }
+
+        User user = getUserById(claims.getSubject())
+                .orElseThrow(() -> new JwtException("User no longer exists: " + claims.getSubject()));
+        return issueTokens(user, false);
+    }
 
-        user = userRepository.save(user);
+    private void revokeReusedRefreshToken(String userId) {
+        log.warn("Refresh token reused for user {}; revoking all of their tokens", userId);
+        revokeAllTokens(userId);
+    }
 
-        String token = jwtTokenProvider.generateToken(user.getId(), user.getEmail());
+    /**
+     * Revokes the given tokens; either may be null, and ones that are already
+     * invalid are skipped.
+     */
+    public void logout(String accessToken, String refreshToken) {
+        if (accessToken != null) {
+            revoke(() -> jwtTokenProvider.parseAccessToken(accessToken));
+        }
+        if (refreshToken != null) {
+            revoke(() -> jwtTokenProvider.parseRefreshToken(refreshToken));
+        }
+        webSocketTokenGuard.closeInvalidSessions();
+    }
 
+    private void revoke(Supplier<Claims> claims) {
+        try {
+            Claims parsed = claims.get();
+            revocationList.revokeToken(parsed.getId(), parsed.getSubject(), parsed.getExpiration().getTime());
+        } catch (JwtException | IllegalArgumentException e) {
+            log.debug("Skipping revocation of invalid token: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Revokes every access and refresh token issued to the user so far, e.g. to
+     * sign out everywhere or after an account compromise.
+     */
+    public void revokeAllTokens(String userId) {
+        revocationList.revokeAllForUser(userId, jwtTokenProvider.getRefreshExpiration());
+        webSocketTokenGuard.closeInvalidSessions();
+    }
+
+    private AuthResponse issueTokens(User user, boolean isNewUser) {
         return AuthResponse.builder()
-                .token(token)
+                .token(jwtTokenProvider.generateToken(user.getId(), user.getEmail()))
+                .refreshToken(jwtTokenProvider.generateRefreshToken(user.getId(), user.getEmail()))
+                .expiresIn(jwtTokenProvider.getAccessExpiration() / 1000)
                 .userId(user.getId())
                 .email(user.getEmail())
                 .displayName(user.getDisplayName())
@@ -61,7 +169,40 @@ public class AuthService {
     }
 
     public Optional<User> getUserById(String userId) {
-        return userRepository.findById(userId);
+        Optional<User> cached = userProfileCache.get(userId);
+        if (cached.isPresent()) {
+            return cached;
+        }
+
+        Optional<User> user = userRepository.findById(userId);
+        user.ifPresent(userProfileCache::put);
+        return user;
+    }
+
+    /**
+     * Looks up several users at once: cache hits are served from memory and the rest
+     * are fetched with a single query.
+     */
+    public List<User> getUsersByIds(Collection<String> userIds) {
+        List<User> users = new ArrayList<>(userIds.size());
+        List<String> missing = new ArrayList<>();
+
+        for (String userId : userIds) {
+            Optional<User> cached = userProfileCache.get(userId);
+            if (cached.isPresent()) {
+                users.add(cached.get());
+            } else {
+                missing.add(userId);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            for (User user : userRepository.findAllById(missing)) {
+                userProfileCache.put(user);
+                users.add(user);
+            }
+        }
+        return users;
     }
 
     public Optional<User> getUserByEmail(String email) {
@@ -69,13 +210,15 @@ public class AuthService {
     }
 
     public User updateDisplayName(String userId, String newDisplayName) {
-        Optional<User> optionalUser = userRepository.findById(userId);
-        if (optionalUser.isPresent()) {
-            User user = optionalUser.get();
-            user.setDisplayName(newDisplayName);
-            user.setUpdatedAt(LocalDateTime.now());
-            return userRepository.save(user);
+        User savedUser = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("id").is(userId)),
+                new Update().set("displayName", newDisplayName).set("updatedAt", LocalDateTime.now()),
+                FindAndModifyOptions.options().returnNew(true),
+                User.class);
+        if (savedUser == null) {
+            throw new RuntimeException("User not found: " + userId);
         }
-        throw new RuntimeException("User not found: " + userId);
+        userProfileCache.put(savedUser);
+        return savedUser;
     }
 }
@@ -0,0 +1,259 @@
+package com.terminalchat.service;
+
+import com.terminalchat.domain.entity.Message;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Messages in one collection per time bucket ({@code messages_yyyyMMddHH}, UTC,
+ * {@code message.storage.bucket-hours} wide). The bucket comes from the
+ * timestamp in the UUIDv7 id, so reads by id or id range go straight to the
+ * right collections. Retention drops whole buckets once their newest possible
+ * message is older than {@code message.storage.retention-hours}, instead of the
+ * TTL monitor deleting documents one by one; a message therefore lives between
+ * the retention and the retention plus one bucket.
+ *
+ * Buckets don't share an index, so {@code clientMessageId} uniqueness holds per
+ * bucket; retries that straddle a boundary are still caught by
+ * {@link MessageDedupWindow}.
+ */
+@Component
+@ConditionalOnProperty(name = "message.storage.mode", havingValue = "bucketed")
+@RequiredArgsConstructor
+@Slf4j
+public class BucketedMessageStore implements MessageStore {
+
+    private static final String PREFIX = "messages_";
+    private static final Pattern BUCKET_NAME = Pattern.compile("^messages_\\d{10}$");
+    private static final DateTimeFormatter BUCKET_FORMAT =
+            DateTimeFormatter.ofPattern("yyyyMMddHH").withZone(ZoneOffset.UTC);
+
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${message.storage.bucket-hours:1}")
+    private int bucketHours;
+
+    @Value("${message.storage.retention-hours:24}")
+    private int retentionHours;
+
+    // Buckets whose indexes this node has ensured; names sort chronologically.
+    // Reads don't use it: another node may have created buckets since
+    private final NavigableSet<String> buckets = new ConcurrentSkipListSet<>();
+    private volatile boolean loaded;
+
+    private final LongAdder inserts = new LongAdder();
+    private final LongAdder droppedBuckets = new LongAdder();
+    private final LongAdder droppedMessages = new LongAdder();
+
+    @Override
+    public Message insert(Message message) {
+        String bucket = bucketOf(message.getId());
+        if (!knownBuckets().contains(bucket)) {
+            createBucket(bucket);
+        }
+        Message saved = mongoTemplate.insert(message, bucket);
+        inserts.increment();
+        return saved;
+    }
+
+    @Override
+    public List<Message> findByRoom(String roomId) {
+        Query query = Query.query(Criteria.where("roomId").is(roomId)).with(Sort.by(Sort.Direction.ASC, "_id"));
+        List<Message> messages = new ArrayList<>();
+        for (String bucket : liveBuckets()) {
+            messages.addAll(mongoTemplate.find(query, Message.class, bucket));
+        }
+        return messages;
+    }
+
+    @Override
+    public List<Message> findByRoomInIdRange(String roomId, String fromId, String toId) {
+        Query query = Query.query(Criteria.where("roomId").is(roomId).and("_id").gte(fromId).lte(toId))
+                .with(Sort.by(Sort.Direction.ASC, "_id"));
+        long from = Math.max(MessageStore.timestampOf(fromId), retentionCutoff());
+        long to = Math.min(MessageStore.timestampOf(toId), System.currentTimeMillis());
+        if (from > to) {
+            return List.of();
+        }
+
+        List<Message> messages = new ArrayList<>();
+        for (String bucket : bucketsBetween(from, to)) {
+            messages.addAll(mongoTemplate.find(query, Message.class, bucket));
+        }
+        return messages;
+    }
+
+    @Override
+    public List<Message> findRecentByRoom(String roomId, int limit) {
+        List<Message> messages = new ArrayList<>();
+        for (String bucket : liveBuckets().descendingSet()) {
+            int remaining = limit - messages.size();
+            if (remaining <= 0) {
+                break;
+            }
+            Query query = Query.query(Criteria.where("roomId").is(roomId))
+                    .with(Sort.by(Sort.Direction.DESC, "_id"))
+                    .limit(remaining);
+            messages.addAll(mongoTemplate.find(query, Message.class, bucket));
+        }
+        return messages;
+    }
+
+    @Override
+    public List<Message> findByRoomAndIds(String roomId, Collection<String> ids) {
+        Map<String, List<String>> idsByBucket = new HashMap<>();
+        for (String id : ids) {
+            idsByBucket.computeIfAbsent(bucketOf(id), bucket -> new ArrayList<>()).add(id);
+        }
+
+        NavigableSet<String> live = liveBuckets();
+        List<Message> messages = new ArrayList<>();
+        idsByBucket.forEach((bucket, bucketIds) -> {
+            if (live.contains(bucket)) {
+                messages.addAll(mongoTemplate.find(
+                        Query.query(Criteria.where("_id").in(bucketIds).and("roomId").is(roomId)),
+                        Message.class, bucket));
+            }
+        });
+        return messages;
+    }
+
+    // The key is unique per bucket only; the newest bucket holding it is the one a retry collided with
+    @Override
+    public Optional<Message> findByRoomAndClientMessageId(String roomId, String clientMessageId) {
+        Query query = Query.query(Criteria.where("roomId").is(roomId).and("clientMessageId").is(clientMessageId));
+        for (String bucket : liveBuckets().descendingSet()) {
+            Message message = mongoTemplate.findOne(query, Message.class, bucket);
+            if (message != null) {
+                return Optional.of(message);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Drops every bucket that holds nothing younger than the retention period,
+     * whichever node created it.
+     */
+    @Override
+    public void evictExpired() {
+        String firstLive = bucketAt(retentionCutoff());
+        List<String> expired = mongoTemplate.getCollectionNames().stream()
+                .filter(name -> BUCKET_NAME.matcher(name).matches() && name.compareTo(firstLive) < 0)
+                .sorted()
+                .toList();
+        for (String bucket : expired) {
+            long count = mongoTemplate.getCollection(bucket).estimatedDocumentCount();
+            mongoTemplate.dropCollection(bucket);
+            buckets.remove(bucket);
+            droppedBuckets.increment();
+            droppedMessages.add(count);
+            log.info("Dropped message bucket {} ({} messages)", bucket, count);
+        }
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("mode", "bucketed");
+        stats.put("bucketHours", bucketHours);
+        stats.put("retentionHours", retentionHours);
+        stats.put("buckets", buckets.size());
+        stats.put("inserts", inserts.sum());
+        stats.put("droppedBuckets", droppedBuckets.sum());
+        stats.put("droppedMessages", droppedMessages.sum());
+        return stats;
+    }
+
+    // Buckets that may still hold messages inside the retention period. Derived
+    // from the clock, so buckets other nodes created are read too; a bucket that
+    // was never created is an empty collection to a query
+    private NavigableSet<String> liveBuckets() {
+        return bucketsBetween(retentionCutoff(), System.currentTimeMillis());
+    }
+
+    private NavigableSet<String> bucketsBetween(long fromMillis, long toMillis) {
+        long bucketMillis = bucketHours * 3_600_000L;
+        NavigableSet<String> names = new TreeSet<>();
+        for (long start = fromMillis / bucketMillis * bucketMillis; start <= toMillis; start += bucketMillis) {
+            names.add(bucketAt(start));
+        }
+        return names;
+    }
+
+    private long retentionCutoff() {
+        return System.currentTimeMillis() - retentionHours * 3_600_000L;
+    }
+
+    private NavigableSet<String> knownBuckets() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    mongoTemplate.getCollectionNames().stream()
+                            .filter(name -> BUCKET_NAME.matcher(name).matches())
+                            .forEach(buckets::add);
+                    loaded = true;
+                }
+            }
+        }
+        return buckets;
+    }
+
+    private synchronized void createBucket(String bucket) {
+        if (buckets.contains(bucket)) {
+            return;
+        }
+        ensureBucketIndexes(mongoTemplate.indexOps(bucket));
+        buckets.add(bucket);
+        log.info("Created message bucket {}", bucket);
+    }
+
+    // Stored field names, see Message
+    public static void ensureBucketIndexes(IndexOperations indexOps) {
+        indexOps.ensureIndex(new Index().on("r", Sort.Direction.ASC).on("_id", Sort.Direction.ASC)
+                .named("room_id_idx"));
+        indexOps.ensureIndex(clientMessageIndex());
+    }
+
+    // Same as the @CompoundIndex on Message
+    public static Index clientMessageIndex() {
+        return new Index().on("r", Sort.Direction.ASC).on("c", Sort.Direction.ASC)
+                .named("room_client_message_c_idx").unique()
+                .partial(PartialIndexFilter.of(Criteria.where("c").exists(true)));
+    }
+
+    private String bucketOf(String messageId) {
+        return bucketAt(MessageStore.timestampOf(messageId));
+    }
+
+    private String bucketAt(long epochMillis) {
+        long bucketMillis = bucketHours * 3_600_000L;
+        return PREFIX + BUCKET_FORMAT.format(Instant.ofEpochMilli(epochMillis / bucketMillis * bucketMillis));
+    }
+}
@@ -0,0 +1,150 @@
+package com.terminalchat.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.terminalchat.domain.dto.MessageDTO;
+import com.terminalchat.domain.entity.Room;
+import com.terminalchat.domain.entity.SharedFile;
+import com.terminalchat.domain.repository.SharedFileRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * File and snippet sharing between room participants. Uploads are streamed from the
+ * request straight into a FileChannel and downloads are sent from the file by
+ * {@code FileController} (sendfile where Tomcat supports it), so heap use doesn't
+ * depend on file size. Files live as long as their room.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FileTransferService {
+
+    private static final long TRANSFER_CHUNK_BYTES = 1024 * 1024;
+
+    private final SharedFileRepository sharedFileRepository;
+    private final RoomService roomService;
+    private final MessageService messageService;
+    private final ObjectMapper objectMapper;
+
+    // No default: a tmp directory gets cleaned, taking shared files with it
+    @Value("${files.storage-dir:}")
+    private String storageDir;
+
+    @Value("${files.max-size-bytes:104857600}")
+    private long maxSizeBytes;
+
+    @PostConstruct
+    void checkStorageDir() {
+        if (storageDir == null || storageDir.isBlank()) {
+            throw new IllegalStateException("files.storage-dir (FILES_STORAGE_DIR) must be set");
+        }
+    }
+
+    public SharedFile upload(String roomId, String uploaderId, String senderUsername,
+            String filename, String contentType, InputStream body) throws IOException {
+
+        Room room = roomService.getRoomById(roomId)
+                .orElseThrow(() -> new RuntimeException("Room not found: " + roomId));
+        if (!"ACTIVE".equals(room.getStatus())) {
+            throw new RuntimeException("Room is not active");
+        }
+
+        String storageKey = roomId + "/" + UUID.randomUUID();
+        Path target = resolve(storageKey);
+        Files.createDirectories(target.getParent());
+
+        long size = 0;
+        try (ReadableByteChannel in = Channels.newChannel(body);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            long transferred;
+            while ((transferred = out.transferFrom(in, size, TRANSFER_CHUNK_BYTES)) > 0) {
+                size += transferred;
+                if (size > maxSizeBytes) {
+                    throw new RuntimeException("File exceeds maximum size of " + maxSizeBytes + " bytes");
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(target);
+            throw e;
+        }
+
+        SharedFile sharedFile = null;
+        MessageDTO messageDTO;
+        try {
+            sharedFile = sharedFileRepository.save(SharedFile.builder()
+                    .roomId(roomId)
+                    .uploaderId(uploaderId)
+                    .filename(filename)
+                    .contentType(contentType)
+                    .size(size)
+                    .storageKey(storageKey)
+                    .createdAt(LocalDateTime.now())
+                    .expiresAt(room.getExpiresAt())
+                    .build());
+
+            Map<String, Object> reference = new LinkedHashMap<>();
+            reference.put("fileId", sharedFile.getId());
+            reference.put("filename", filename);
+            reference.put("size", size);
+            reference.put("contentType", contentType);
+
+            messageDTO = messageService.saveFileMessage(
+                    roomId, uploaderId, senderUsername, objectMapper.writeValueAsString(reference));
+        } catch (IOException | RuntimeException e) {
+            // Nothing refers to the file yet; don't leave it (or its record) behind
+            Files.deleteIfExists(target);
+            if (sharedFile != null) {
+                sharedFileRepository.delete(sharedFile);
+            }
+            throw e;
+        }
+        messageService.broadcastToRoom(roomId, messageDTO);
+
+        log.info("File {} ({} bytes) shared in room {}", sharedFile.getId(), size, roomId);
+        return sharedFile;
+    }
+
+    public Optional<SharedFile> getFile(String roomId, String fileId) {
+        return sharedFileRepository.findById(fileId)
+                .filter(file -> file.getRoomId().equals(roomId))
+                .filter(file -> file.getExpiresAt() == null || file.getExpiresAt().isAfter(LocalDateTime.now()));
+    }
+
+    public Path pathOf(SharedFile sharedFile) {
+        return resolve(sharedFile.getStorageKey());
+    }
+
+    public void deleteExpiredFiles() {
+        sharedFileRepository.findByExpiresAtBefore(LocalDateTime.now()).forEach(file -> {
+            try {
+                Files.deleteIfExists(resolve(file.getStorageKey()));
+                sharedFileRepository.delete(file);
+                log.info("Shared file {} expired and deleted", file.getId());
+            } catch (IOException e) {
+                log.error("Failed to delete shared file {}", file.getId(), e);
+            }
+        });
+    }
+
+    private Path resolve(String storageKey) {
+        return Paths.get(storageDir).resolve(storageKey);
+    }
+}
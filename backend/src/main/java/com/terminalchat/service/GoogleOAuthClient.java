@@ -0,0 +1,136 @@
+package com.terminalchat.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.terminalchat.security.GoogleIdTokenVerifier;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Desktop OAuth code exchange against Google. The token call is made asynchronously
+ * on the shared pooled client and the returned ID token is verified locally, so a
+ * login needs a single round trip to Google and no request thread waits on it.
+ * Verification (which may fetch Google's keys) and whatever the caller chains on
+ * {@link #executor()} run on a bounded pool, never on the HTTP client's threads.
+ * Only desktop sign-in uses it, so it is created on first use.
+ */
+@Service
+@Lazy
+@RequiredArgsConstructor
+@Slf4j
+public class GoogleOAuthClient {
+
+    private static final int LOGIN_THREADS = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+    private final HttpClient googleHttpClient;
+    private final GoogleIdTokenVerifier googleIdTokenVerifier;
+    private final ObjectMapper objectMapper;
+
+    @Value("${google.client.id}")
+    private String googleClientId;
+
+    @Value("${google.client.secret}")
+    private String googleClientSecret;
+
+    @Value("${google.redirect.uri.desktop}")
+    private String desktopRedirectUri;
+
+    @Value("${google.oauth.token-uri:https://oauth2.googleapis.com/token}")
+    private String tokenUri;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(LOGIN_THREADS, new LoginThreadFactory());
+
+    public CompletableFuture<GoogleIdentity> exchangeCode(String code) {
+        String formData = "code=" + encode(code) +
+                "&client_id=" + encode(googleClientId) +
+                "&client_secret=" + encode(googleClientSecret) +
+                "&redirect_uri=" + encode(desktopRedirectUri) +
+                "&grant_type=authorization_code";
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create(tokenUri))
+                .timeout(Duration.ofSeconds(10))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(formData))
+                .build();
+
+        log.debug("Requesting tokens from Google...");
+        return googleHttpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .thenApplyAsync(this::toIdentity, executor);
+    }
+
+    /**
+     * Pool for blocking work that follows a code exchange, such as creating the user.
+     */
+    public Executor executor() {
+        return executor;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private GoogleIdentity toIdentity(HttpResponse<String> response) {
+        if (response.statusCode() / 100 != 2) {
+            throw new RuntimeException("Failed to exchange authorization code: " + response.statusCode());
+        }
+
+        try {
+            JsonNode tokenJson = objectMapper.readTree(response.body());
+            JsonNode idToken = tokenJson.get("id_token");
+            if (idToken == null) {
+                throw new RuntimeException("Token response has no id_token (is the openid scope requested?)");
+            }
+
+            JWTClaimsSet claims = googleIdTokenVerifier.verify(idToken.asText());
+            String email = claims.getStringClaim("email");
+            String name = claims.getStringClaim("name");
+            String picture = claims.getStringClaim("picture");
+
+            return new GoogleIdentity(
+                    claims.getSubject(),
+                    email,
+                    name != null ? name : email,
+                    picture != null ? picture : "");
+        } catch (java.text.ParseException | com.fasterxml.jackson.core.JsonProcessingException e) {
+            throw new RuntimeException("Invalid token response from Google", e);
+        }
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value == null ? "" : value, StandardCharsets.UTF_8);
+    }
+
+    public record GoogleIdentity(String googleId, String email, String name, String picture) {
+    }
+
+    private static final class LoginThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "google-login-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.terminalchat.service;
+
+import com.terminalchat.config.WebRtcProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Builds RTCIceServer configuration for clients. TURN credentials follow the TURN
+ * REST API scheme: username is "expiry:userId" and the password is
+ * base64(HMAC-SHA1(secret, username)), which coturn verifies with use-auth-secret.
+ * Without a secret every user gets the same static credentials, so one config is
+ * shared; per-user configs are only cached for ephemeral credentials, until they
+ * are due for refresh.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IceServerService {
+
+    private final WebRtcProperties webRtcProperties;
+
+    private final Map<String, CachedIceConfig> cache = new ConcurrentHashMap<>();
+    private volatile Map<String, Object> staticConfig;
+
+    public Map<String, Object> getIceConfig(String userId) {
+        long now = System.currentTimeMillis() / 1000;
+
+        if (!isEphemeral()) {
+            Map<String, Object> config = staticConfig;
+            if (config == null) {
+                config = build(null, now).config;
+                staticConfig = config;
+            }
+            return config;
+        }
+
+        CachedIceConfig cached = cache.get(userId);
+        if (cached == null || now >= cached.refreshAt) {
+            cached = build(userId, now);
+            cache.put(userId, cached);
+        }
+        return cached.config;
+    }
+
+    /**
+     * Drops ephemeral configs that are due for refresh; the next request rebuilds them.
+     */
+    public void evictExpired() {
+        long now = System.currentTimeMillis() / 1000;
+        cache.values().removeIf(cached -> now >= cached.refreshAt);
+    }
+
+    private CachedIceConfig build(String userId, long now) {
+        List<Map<String, Object>> iceServers = new ArrayList<>();
+
+        if (!webRtcProperties.getStunServers().isEmpty()) {
+            Map<String, Object> stun = new HashMap<>();
+            stun.put("urls", webRtcProperties.getStunServers());
+            iceServers.add(stun);
+        }
+
+        String secret = webRtcProperties.getTurnSecret();
+        boolean ephemeral = isEphemeral();
+        long ttl = webRtcProperties.getTurnCredentialTtlSeconds();
+        long expiresAt = now + ttl;
+
+        String username = null;
+        String credential = null;
+        if (ephemeral) {
+            username = expiresAt + ":" + userId;
+            credential = hmacSha1(secret, username);
+        }
+
+        for (WebRtcProperties.TurnServer turn : webRtcProperties.getTurnServers()) {
+            if (turn.getUrls() == null || turn.getUrls().isBlank()) {
+                continue;
+            }
+            Map<String, Object> server = new HashMap<>();
+            server.put("urls", turn.getUrls());
+            if (ephemeral) {
+                server.put("username", username);
+                server.put("credential", credential);
+            } else if (turn.getUsername() != null && !turn.getUsername().isBlank()) {
+                server.put("username", turn.getUsername());
+                server.put("credential", turn.getCredential());
+            } else {
+                continue;
+            }
+            iceServers.add(server);
+        }
+
+        Map<String, Object> config = new HashMap<>();
+        config.put("iceServers", iceServers);
+        if (ephemeral) {
+            config.put("expiresAt", expiresAt);
+            config.put("ttlSeconds", ttl);
+        }
+
+        // Refresh a margin before the TURN server starts rejecting the credential
+        long refreshAt = ephemeral
+                ? expiresAt - Math.min(webRtcProperties.getTurnCredentialRefreshMarginSeconds(), ttl / 2)
+                : Long.MAX_VALUE;
+
+        log.debug("ICE config generated for {}", ephemeral ? "user " + userId : "all users");
+        return new CachedIceConfig(Map.copyOf(config), refreshAt);
+    }
+
+    private boolean isEphemeral() {
+        String secret = webRtcProperties.getTurnSecret();
+        return secret != null && !secret.isBlank();
+    }
+
+    private String hmacSha1(String secret, String value) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA1");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA1"));
+            return Base64.getEncoder().encodeToString(mac.doFinal(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("Failed to sign TURN credential", e);
+        }
+    }
+
+    private record CachedIceConfig(Map<String, Object> config, long refreshAt) {
+    }
+}
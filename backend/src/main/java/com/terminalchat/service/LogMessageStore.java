@@ -0,0 +1,693 @@
+package com.terminalchat.service;
+
+import com.terminalchat.domain.entity.Message;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Messages on local disk, for single-node deployments that shouldn't need Mongo
+ * for a day of chat. Each room is a directory of append-only segment files
+ * ({@code <first ordinal>.log}); a segment starts with {@code [magic][format
+ * version]} and a record is {@code [length][crc32][payload]}. Segments written
+ * before the header existed (format 1, which also stored senderUsername and
+ * expiresAt) have no header and are still decoded with the old layout; they are
+ * sealed on startup and age out through retention, new records always go to a
+ * current-format segment.
+ * Writes go through a FileChannel, reads through read-only mappings of the
+ * segments. A sparse in-memory index (one entry per
+ * {@code message.storage.log.index-interval-bytes}, plus the first record of
+ * every segment) maps message ids and ordinals to file positions, so history and
+ * range reads seek close to where they start instead of scanning the room.
+ *
+ * Retention deletes whole segments once their newest message is older than
+ * {@code message.storage.retention-hours}. On startup every segment is scanned
+ * to rebuild the index; a torn record at the end of a segment is truncated.
+ *
+ * Records are appended in send order. Concurrent senders can land slightly out
+ * of id order, so reads sort by id and id seeks start one index entry early.
+ */
+@Component
+@ConditionalOnProperty(name = "message.storage.mode", havingValue = "log")
+@Slf4j
+public class LogMessageStore implements MessageStore {
+
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int HEADER_BYTES = 8;
+    // Negative, so it can't be mistaken for the length of a headerless format-1 record
+    private static final int SEGMENT_MAGIC = 0xC1E9_0C5E;
+    private static final int SEGMENT_HEADER_BYTES = 8;
+    private static final int LEGACY_FORMAT = 1;
+    private static final int CURRENT_FORMAT = 2;
+    private static final Pattern ROOM_ID = Pattern.compile("^[A-Za-z0-9_-]+$");
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    // No default: a tmp directory is wiped on reboot, taking the history with it
+    @Value("${message.storage.log.dir:}")
+    private String dir;
+
+    @Value("${message.storage.log.segment-bytes:8388608}")
+    private int segmentBytes;
+
+    @Value("${message.storage.log.index-interval-bytes:4096}")
+    private int indexIntervalBytes;
+
+    @Value("${message.storage.retention-hours:24}")
+    private int retentionHours;
+
+    private final Map<String, RoomLog> rooms = new ConcurrentHashMap<>();
+
+    private final LongAdder appends = new LongAdder();
+    private final LongAdder appendNanos = new LongAdder();
+    private final LongAdder reads = new LongAdder();
+    private final LongAdder readNanos = new LongAdder();
+    private final LongAdder recordsRead = new LongAdder();
+    private final LongAdder deletedSegments = new LongAdder();
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (dir == null || dir.isBlank()) {
+            throw new IllegalStateException(
+                    "message.storage.log.dir (MESSAGE_LOG_DIR) must be set when message.storage.mode=log");
+        }
+        Path root = Paths.get(dir);
+        Files.createDirectories(root);
+        long start = System.currentTimeMillis();
+        try (Stream<Path> roomDirs = Files.list(root)) {
+            for (Path roomDir : roomDirs.filter(Files::isDirectory).toList()) {
+                RoomLog room = RoomLog.recover(roomDir, indexIntervalBytes, segmentBytes);
+                if (room != null) {
+                    rooms.put(room.roomId, room);
+                }
+            }
+        }
+        log.info("Message log opened at {}: {} rooms recovered in {} ms",
+                root, rooms.size(), System.currentTimeMillis() - start);
+    }
+
+    @PreDestroy
+    public void close() {
+        rooms.values().forEach(RoomLog::close);
+    }
+
+    @Override
+    public Message insert(Message message) {
+        long start = System.nanoTime();
+        RoomLog room = rooms.computeIfAbsent(message.getRoomId(), this::createRoom);
+        while (!room.append(message, segmentBytes)) {
+            // Retention deleted the room's last segment and its directory meanwhile
+            rooms.remove(message.getRoomId(), room);
+            room = rooms.computeIfAbsent(message.getRoomId(), this::createRoom);
+        }
+        appends.increment();
+        appendNanos.add(System.nanoTime() - start);
+        return message;
+    }
+
+    @Override
+    public List<Message> findByRoom(String roomId) {
+        return read(roomId, room -> room.scanFrom(null, message -> true));
+    }
+
+    @Override
+    public List<Message> findByRoomInIdRange(String roomId, String fromId, String toId) {
+        return read(roomId, room -> room.scanFrom(room.seekById(fromId),
+                message -> message.getId().compareTo(fromId) >= 0 && message.getId().compareTo(toId) <= 0));
+    }
+
+    @Override
+    public List<Message> findRecentByRoom(String roomId, int limit) {
+        List<Message> messages = read(roomId, room -> room.tail(limit));
+        messages.sort(Comparator.comparing(Message::getId).reversed());
+        return messages;
+    }
+
+    @Override
+    public List<Message> findByRoomAndIds(String roomId, Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Set<String> wanted = new HashSet<>(ids);
+        String first = ids.stream().min(String::compareTo).get();
+        return read(roomId, room -> room.scanFrom(room.seekById(first), message -> wanted.contains(message.getId())));
+    }
+
+    @Override
+    public Optional<Message> findByRoomAndClientMessageId(String roomId, String clientMessageId) {
+        RoomLog room = rooms.get(roomId);
+        String id = room == null ? null : room.idOfClientMessage(clientMessageId);
+        return id == null ? Optional.empty() : findByRoomAndIds(roomId, List.of(id)).stream().findFirst();
+    }
+
+    @Override
+    public void evictExpired() {
+        long cutoff = System.currentTimeMillis() - retentionHours * 3_600_000L;
+        rooms.values().forEach(room -> {
+            deletedSegments.add(room.deleteSegmentsBefore(cutoff));
+            if (room.deleteIfEmpty()) {
+                rooms.remove(room.roomId, room);
+            }
+        });
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        long appendCount = appends.sum();
+        long readCount = reads.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("mode", "log");
+        stats.put("dir", dir);
+        stats.put("rooms", rooms.size());
+        stats.put("segments", rooms.values().stream().mapToInt(RoomLog::segmentCount).sum());
+        stats.put("indexEntries", rooms.values().stream().mapToInt(RoomLog::indexSize).sum());
+        stats.put("appends", appendCount);
+        stats.put("avgAppendMicros", appendCount == 0 ? 0 : appendNanos.sum() / appendCount / 1000.0);
+        stats.put("reads", readCount);
+        stats.put("avgReadMicros", readCount == 0 ? 0 : readNanos.sum() / readCount / 1000.0);
+        stats.put("recordsRead", recordsRead.sum());
+        stats.put("deletedSegments", deletedSegments.sum());
+        return stats;
+    }
+
+    private List<Message> read(String roomId, Function<RoomLog, List<Message>> query) {
+        RoomLog room = rooms.get(roomId);
+        if (room == null) {
+            return new ArrayList<>();
+        }
+        long start = System.nanoTime();
+        List<Message> messages = query.apply(room);
+        reads.increment();
+        readNanos.add(System.nanoTime() - start);
+        recordsRead.add(messages.size());
+        return messages;
+    }
+
+    private RoomLog createRoom(String roomId) {
+        if (!ROOM_ID.matcher(roomId).matches()) {
+            throw new IllegalArgumentException("Room id not usable as a directory name: " + roomId);
+        }
+        try {
+            Path roomDir = Paths.get(dir, roomId);
+            Files.createDirectories(roomDir);
+            return new RoomLog(roomId, roomDir, indexIntervalBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private record IndexEntry(String id, Segment segment, int position, long ordinal) {
+    }
+
+    /**
+     * One room's segments and sparse index. All access is under the room's lock;
+     * reads only copy out of the mappings, so they hold it briefly.
+     */
+    private static final class RoomLog {
+        private final String roomId;
+        private final Path dir;
+        private final int indexIntervalBytes;
+        private final List<Segment> segments = new ArrayList<>();
+        private final List<IndexEntry> index = new ArrayList<>();
+        // clientMessageId -> message id, for duplicate checks and retries
+        private final Map<String, String> clientMessageIds = new HashMap<>();
+        private long nextOrdinal;
+        private long bytesSinceIndex;
+        private boolean deleted;
+
+        RoomLog(String roomId, Path dir, int indexIntervalBytes) {
+            this.roomId = roomId;
+            this.dir = dir;
+            this.indexIntervalBytes = indexIntervalBytes;
+        }
+
+        static RoomLog recover(Path dir, int indexIntervalBytes, int segmentBytes) throws IOException {
+            List<Path> files;
+            try (Stream<Path> listing = Files.list(dir)) {
+                files = listing.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                        .sorted()
+                        .toList();
+            }
+            if (files.isEmpty()) {
+                return null;
+            }
+
+            RoomLog room = new RoomLog(dir.getFileName().toString(), dir, indexIntervalBytes);
+            for (int i = 0; i < files.size(); i++) {
+                Path file = files.get(i);
+                long baseOrdinal = Long.parseLong(file.getFileName().toString().replace(SEGMENT_SUFFIX, ""));
+                Segment segment = Segment.open(file);
+                boolean active = i == files.size() - 1 && segment.format == CURRENT_FORMAT;
+                if (active) {
+                    segment.mapBytes = segmentBytes;
+                }
+                room.segments.add(segment);
+                room.nextOrdinal = baseOrdinal;
+                room.bytesSinceIndex = Long.MAX_VALUE;
+
+                ByteBuffer buffer = segment.view(segment.size);
+                int position = segment.dataStart;
+                while (position < segment.size) {
+                    if (segment.size - position >= 4 && buffer.getInt(position) == 0) {
+                        // Preallocated tail of a segment that was active when the process stopped
+                        log.debug("Message segment {} ends at {}", file, position);
+                        segment.size = position;
+                        break;
+                    }
+                    Message message = readRecord(buffer, position, true, segment.format);
+                    if (message == null) {
+                        log.warn("Truncating torn record in {} at {}", file, position);
+                        segment.truncate(position);
+                        break;
+                    }
+                    int length = HEADER_BYTES + buffer.getInt(position);
+                    room.indexed(message, segment, position, length);
+                    position += length;
+                }
+                // The last segment stays active only if new records can go into it
+                if (!active) {
+                    segment.seal();
+                }
+            }
+            return room;
+        }
+
+        /** Returns false if the room was deleted and a new one must be created. */
+        synchronized boolean append(Message message, int segmentBytes) {
+            if (deleted) {
+                return false;
+            }
+            String clientMessageId = message.getClientMessageId();
+            if (clientMessageId != null && clientMessageIds.putIfAbsent(clientMessageId, message.getId()) != null) {
+                throw new DuplicateKeyException("Duplicate clientMessageId " + clientMessageId + " in room " + roomId);
+            }
+
+            byte[] record = encode(message);
+            try {
+                Segment active = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+                if (active == null || active.format != CURRENT_FORMAT
+                        || (active.size > active.dataStart && active.size + record.length > segmentBytes)) {
+                    if (active != null) {
+                        active.seal();
+                    }
+                    active = Segment.create(dir.resolve(String.format("%020d", nextOrdinal) + SEGMENT_SUFFIX), segmentBytes);
+                    segments.add(active);
+                    bytesSinceIndex = Long.MAX_VALUE;
+                }
+                int position = active.append(record);
+                indexed(message, active, position, record.length);
+                return true;
+            } catch (IOException e) {
+                if (clientMessageId != null) {
+                    clientMessageIds.remove(clientMessageId);
+                }
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void indexed(Message message, Segment segment, int position, int length) {
+            if (bytesSinceIndex >= indexIntervalBytes) {
+                index.add(new IndexEntry(message.getId(), segment, position, nextOrdinal));
+                bytesSinceIndex = 0;
+            }
+            bytesSinceIndex += length;
+            if (message.getClientMessageId() != null) {
+                clientMessageIds.put(message.getClientMessageId(), message.getId());
+            }
+            segment.records++;
+            segment.lastTimestamp = Math.max(segment.lastTimestamp, MessageStore.timestampOf(message.getId()));
+            nextOrdinal++;
+        }
+
+        synchronized String idOfClientMessage(String clientMessageId) {
+            return clientMessageIds.get(clientMessageId);
+        }
+
+        /** The index entry to start from for ids at or after {@code id}; null means the start. */
+        synchronized IndexEntry seekById(String id) {
+            int low = 0;
+            int high = index.size() - 1;
+            int found = -1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (index.get(mid).id().compareTo(id) < 0) {
+                    found = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            // One entry of slack for records appended slightly out of id order
+            return found <= 0 ? null : index.get(found - 1);
+        }
+
+        /** Matching messages from {@code from} (null: the first segment) to the end, sorted by id. */
+        synchronized List<Message> scanFrom(IndexEntry from, Predicate<Message> filter) {
+            List<Message> messages = new ArrayList<>();
+            int first = from == null ? -1 : segments.indexOf(from.segment());
+            // A null or since-deleted start means the first remaining segment
+            int position = first < 0 ? -1 : from.position();
+            for (int i = Math.max(first, 0); i < segments.size(); i++) {
+                Segment segment = segments.get(i);
+                ByteBuffer buffer = segment.view(segment.size);
+                if (position < 0) {
+                    position = segment.dataStart;
+                }
+                while (position < segment.size) {
+                    Message message = readRecord(buffer, position, false, segment.format);
+                    message.setRoomId(roomId);
+                    if (filter.test(message)) {
+                        messages.add(message);
+                    }
+                    position += HEADER_BYTES + buffer.getInt(position);
+                }
+                position = -1;
+            }
+            messages.sort(Comparator.comparing(Message::getId));
+            return messages;
+        }
+
+        /** The last {@code limit} messages by append order. */
+        synchronized List<Message> tail(int limit) {
+            long target = Math.max(0, nextOrdinal - limit);
+            IndexEntry start = null;
+            for (int i = index.size() - 1; i >= 0; i--) {
+                if (index.get(i).ordinal() <= target) {
+                    start = index.get(i);
+                    break;
+                }
+            }
+            List<Message> messages = scanFrom(start, message -> true);
+            return messages.size() <= limit
+                    ? messages
+                    : new ArrayList<>(messages.subList(messages.size() - limit, messages.size()));
+        }
+
+        synchronized int deleteSegmentsBefore(long cutoff) {
+            int deleted = 0;
+            while (!segments.isEmpty() && segments.get(0).lastTimestamp < cutoff) {
+                Segment segment = segments.remove(0);
+                ByteBuffer buffer = segment.view(segment.size);
+                for (int position = segment.dataStart; position < segment.size;
+                     position += HEADER_BYTES + buffer.getInt(position)) {
+                    String clientMessageId = readRecord(buffer, position, false, segment.format).getClientMessageId();
+                    if (clientMessageId != null) {
+                        clientMessageIds.remove(clientMessageId);
+                    }
+                }
+                index.removeIf(entry -> entry.segment() == segment);
+                segment.delete();
+                deleted++;
+            }
+            return deleted;
+        }
+
+        synchronized boolean deleteIfEmpty() {
+            if (!segments.isEmpty()) {
+                return false;
+            }
+            deleted = true;
+            try {
+                Files.deleteIfExists(dir);
+            } catch (IOException e) {
+                log.warn("Could not delete message log directory {}", dir, e);
+            }
+            return true;
+        }
+
+        synchronized int segmentCount() {
+            return segments.size();
+        }
+
+        synchronized int indexSize() {
+            return index.size();
+        }
+
+        synchronized void close() {
+            segments.forEach(Segment::seal);
+        }
+    }
+
+    /**
+     * One segment file. Only the active (last) segment keeps its channel open;
+     * sealed segments are read through their mapping alone. The active segment is
+     * mapped once at full segment size (the file is zero-filled past {@code size})
+     * so appends never force a remap; sealing trims the file back to its records.
+     */
+    private static final class Segment {
+        private final Path path;
+        private FileChannel channel;
+        private MappedByteBuffer mapped;
+        private int size;
+        private int records;
+        private long lastTimestamp;
+        private int format = CURRENT_FORMAT;
+        // Where the first record starts: after the header, or 0 for format 1
+        private int dataStart = SEGMENT_HEADER_BYTES;
+        // Mapping size while active; 0 maps just the records
+        private int mapBytes;
+
+        private Segment(Path path, FileChannel channel) throws IOException {
+            this.path = path;
+            this.channel = channel;
+            this.size = (int) channel.size();
+        }
+
+        static Segment create(Path path, int mapBytes) throws IOException {
+            Segment segment = new Segment(path, FileChannel.open(path,
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE));
+            segment.mapBytes = mapBytes;
+            segment.writeHeader();
+            return segment;
+        }
+
+        static Segment open(Path path) throws IOException {
+            Segment segment = new Segment(path, FileChannel.open(path,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE));
+            ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_BYTES);
+            segment.channel.read(header, 0);
+            boolean hasMagic = segment.size >= 4 && header.getInt(0) == SEGMENT_MAGIC;
+            if (segment.size == 0 || (hasMagic && segment.size < SEGMENT_HEADER_BYTES)) {
+                // Empty, or the header itself was torn while creating the segment
+                segment.truncate(0);
+                segment.writeHeader();
+            } else if (hasMagic) {
+                segment.format = header.getInt(4);
+                if (segment.format != CURRENT_FORMAT) {
+                    throw new IOException("Unknown message segment format " + segment.format + " in " + path);
+                }
+            } else {
+                segment.format = LEGACY_FORMAT;
+                segment.dataStart = 0;
+            }
+            return segment;
+        }
+
+        private void writeHeader() throws IOException {
+            append(ByteBuffer.allocate(SEGMENT_HEADER_BYTES).putInt(SEGMENT_MAGIC).putInt(CURRENT_FORMAT).array());
+        }
+
+        int append(byte[] record) throws IOException {
+            int position = size;
+            ByteBuffer buffer = ByteBuffer.wrap(record);
+            long offset = position;
+            while (buffer.hasRemaining()) {
+                offset += channel.write(buffer, offset);
+            }
+            size += record.length;
+            return position;
+        }
+
+        // Remapped only when a record larger than the segment size outgrew the mapping
+        ByteBuffer view(int upTo) {
+            if (upTo == 0) {
+                return ByteBuffer.allocate(0);
+            }
+            if (mapped == null || mapped.capacity() < upTo) {
+                try {
+                    // Mapping past the end of the writable channel extends the file with zeros
+                    long length = channel != null ? Math.max(upTo, mapBytes) : upTo;
+                    mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return mapped.duplicate();
+        }
+
+        void truncate(int position) throws IOException {
+            channel.truncate(position);
+            size = position;
+            mapped = null;
+        }
+
+        void seal() {
+            if (channel == null) {
+                return;
+            }
+            try {
+                if (channel.size() > size) {
+                    mapped = null;
+                    channel.truncate(size);
+                }
+                mapBytes = 0;
+                view(size);
+                channel.force(false);
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Could not seal message segment {}", path, e);
+            }
+            channel = null;
+        }
+
+        void delete() {
+            seal();
+            mapped = null;
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                log.warn("Could not delete message segment {}", path, e);
+            }
+        }
+    }
+
+    // ===== RECORD CODEC =====
+
+    private static byte[] encode(Message message) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0);
+            out.writeInt(0);
+
+            UUID id = UUID.fromString(message.getId());
+            out.writeLong(id.getMostSignificantBits());
+            out.writeLong(id.getLeastSignificantBits());
+            writeString(out, message.getClientMessageId());
+            writeString(out, message.getSenderId());
+            writeString(out, message.getContent());
+            writeBytes(out, message.getCompressedContent());
+            writeString(out, message.getContentEncoding());
+            writeString(out, message.getType());
+            out.writeLong(toMillis(message.getCreatedAt()));
+
+            byte[] record = bytes.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(record, HEADER_BYTES, record.length - HEADER_BYTES);
+            ByteBuffer.wrap(record).putInt(record.length - HEADER_BYTES).putInt((int) crc.getValue());
+            return record;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Decodes the record at {@code position}. With {@code verify}, returns null for
+     * a record that runs past the end of the buffer or fails its checksum.
+     */
+    private static Message readRecord(ByteBuffer buffer, int position, boolean verify, int format) {
+        if (verify && position + HEADER_BYTES > buffer.limit()) {
+            return null;
+        }
+        int length = buffer.getInt(position);
+        if (verify) {
+            if (length <= 0 || position + HEADER_BYTES + length > buffer.limit()) {
+                return null;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate().position(position + HEADER_BYTES).limit(position + HEADER_BYTES + length));
+            if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+                return null;
+            }
+        }
+
+        ByteBuffer in = buffer.duplicate().position(position + HEADER_BYTES);
+        Message.MessageBuilder message = Message.builder()
+                .id(new UUID(in.getLong(), in.getLong()).toString())
+                .clientMessageId(readString(in))
+                .senderId(readString(in));
+        if (format == LEGACY_FORMAT) {
+            readBytes(in); // senderUsername, now resolved from the user cache
+        }
+        message.content(readString(in))
+                .compressedContent(readBytes(in))
+                .contentEncoding(readString(in))
+                .type(readString(in))
+                .createdAt(fromMillis(in.getLong()));
+        // Format 1 ends with expiresAt, which is derived from createdAt now
+        return message.build();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        writeBytes(out, value == null ? null : value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(value.length);
+        out.write(value);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = readBytes(in);
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readBytes(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return bytes;
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time == null ? Long.MIN_VALUE : time.atZone(ZONE).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime fromMillis(long millis) {
+        return millis == Long.MIN_VALUE ? null : LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZONE);
+    }
+}
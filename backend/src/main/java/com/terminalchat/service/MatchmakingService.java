@@ -0,0 +1,327 @@
+package com.terminalchat.service;
+
+import com.terminalchat.domain.dto.SessionCodeResponse;
+import com.terminalchat.domain.entity.Room;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * "Connect me to anyone" pairing. Each session type has its own lock-free FIFO of
+ * waiting tickets; an arriving user claims the head ticket with a CAS and the pair
+ * goes through the regular {@link PairingService#pairSessions} flow. A ticket whose
+ * pairings keep failing is dropped after {@code matchmaking.max-pair-attempts}
+ * tries, and its user is told, instead of cycling through the queue until it times out.
+ * Waiting users hear MATCHED, TIMEOUT and FAILED on {@code /user/queue/matchmaking}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MatchmakingService {
+
+    private static final int WAITING = 0;
+    private static final int CLAIMED = 1;
+    private static final int CANCELLED = 2;
+    private static final int TIMED_OUT = 3;
+    private static final int FAILED = 4;
+
+    // Per-user destination; clients subscribe to /user/queue/matchmaking
+    private static final String MATCHMAKING_QUEUE = "/queue/matchmaking";
+
+    private final SessionService sessionService;
+    private final PairingService pairingService;
+    private final SimpMessagingTemplate messagingTemplate;
+
+    @Value("${matchmaking.timeout-seconds:120}")
+    private long timeoutSeconds;
+
+    @Value("${matchmaking.max-pair-attempts:3}")
+    private int maxPairAttempts;
+
+    private final Map<String, Queue<Ticket>> queues = Map.of(
+            "CHAT", new ConcurrentLinkedQueue<>(),
+            "VOICE", new ConcurrentLinkedQueue<>(),
+            "VIDEO", new ConcurrentLinkedQueue<>());
+
+    private final Map<String, Ticket> waitingByUser = new ConcurrentHashMap<>();
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder matched = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder pairingFailures = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder totalWaitMillis = new LongAdder();
+    private final LongAccumulator maxWaitMillis = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Puts the user in the queue for the given session type, or pairs them straight
+     * away with whoever has been waiting longest.
+     */
+    public Map<String, Object> enqueue(String userId, String sessionType) {
+        Queue<Ticket> queue = queueFor(sessionType);
+
+        SessionCodeResponse session = sessionService.createSession(userId, sessionType);
+        Ticket ticket = new Ticket(userId, sessionType, session.getSessionId(), session.getSessionCode());
+
+        Ticket previous = waitingByUser.put(userId, ticket);
+        if (previous != null && previous.state.compareAndSet(WAITING, CANCELLED)) {
+            sessionService.updateSessionStatus(previous.sessionId, "CANCELLED");
+            cancelled.increment();
+        }
+        enqueued.increment();
+
+        Ticket mate = pollWaiting(queue, userId);
+        if (mate != null) {
+            ticket.state.set(CLAIMED);
+            Room room = pair(ticket, mate);
+            if (room != null) {
+                return matchedEvent(ticket, mate, room);
+            }
+            requeue(queue, mate);
+            if (!retryable(ticket)) {
+                return failedEvent(ticket);
+            }
+            ticket.state.set(WAITING);
+        }
+
+        queue.offer(ticket);
+        // Two users arriving together can both see an empty queue; try once more so
+        // they don't sit next to each other until the next sweep.
+        matchWaiting(queue);
+
+        if (ticket.roomId != null) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("status", "MATCHED");
+            response.put("roomId", ticket.roomId);
+            response.put("sessionId", ticket.sessionId);
+            response.put("sessionType", sessionType);
+            return response;
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "WAITING");
+        response.put("sessionId", ticket.sessionId);
+        response.put("sessionType", sessionType);
+        response.put("timeoutSeconds", timeoutSeconds);
+        return response;
+    }
+
+    public boolean cancel(String userId) {
+        Ticket ticket = waitingByUser.remove(userId);
+        if (ticket == null || !ticket.state.compareAndSet(WAITING, CANCELLED)) {
+            return false;
+        }
+        queues.get(ticket.sessionType).remove(ticket);
+        sessionService.updateSessionStatus(ticket.sessionId, "CANCELLED");
+        cancelled.increment();
+        log.info("Matchmaking cancelled for user {}", userId);
+        return true;
+    }
+
+    /**
+     * Drops timed-out tickets and pairs any leftovers that raced past each other.
+     */
+    public void expireStaleTickets() {
+        long cutoff = System.currentTimeMillis() - timeoutSeconds * 1000;
+
+        queues.values().forEach(queue -> {
+            queue.removeIf(ticket -> {
+                if (ticket.state.get() != WAITING) {
+                    return true;
+                }
+                if (ticket.enqueuedAt < cutoff && ticket.state.compareAndSet(WAITING, TIMED_OUT)) {
+                    expire(ticket);
+                    return true;
+                }
+                return false;
+            });
+            matchWaiting(queue);
+        });
+    }
+
+    public Map<String, Object> getStats() {
+        long matchedUsers = matched.sum() * 2;
+
+        Map<String, Object> waiting = new HashMap<>();
+        queues.forEach((type, queue) -> waiting.put(type, queue.size()));
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enqueued", enqueued.sum());
+        stats.put("matchedPairs", matched.sum());
+        stats.put("cancelled", cancelled.sum());
+        stats.put("timedOut", timedOut.sum());
+        stats.put("pairingFailures", pairingFailures.sum());
+        stats.put("failed", failed.sum());
+        stats.put("waiting", waiting);
+        stats.put("avgWaitMillis", matchedUsers == 0 ? 0 : totalWaitMillis.sum() / matchedUsers);
+        stats.put("maxWaitMillis", maxWaitMillis.get());
+        return stats;
+    }
+
+    private Queue<Ticket> queueFor(String sessionType) {
+        Queue<Ticket> queue = sessionType == null ? null : queues.get(sessionType);
+        if (queue == null) {
+            throw new RuntimeException("Unsupported session type: " + sessionType);
+        }
+        return queue;
+    }
+
+    /**
+     * Claims the oldest live ticket that doesn't belong to {@code userId}. Dead
+     * tickets at the head are discarded on the way.
+     */
+    private Ticket pollWaiting(Queue<Ticket> queue, String userId) {
+        Ticket candidate;
+        while ((candidate = queue.poll()) != null) {
+            if (userId != null && candidate.userId.equals(userId)) {
+                continue;
+            }
+            if (candidate.enqueuedAt < System.currentTimeMillis() - timeoutSeconds * 1000) {
+                if (candidate.state.compareAndSet(WAITING, TIMED_OUT)) {
+                    expire(candidate);
+                }
+                continue;
+            }
+            if (candidate.state.compareAndSet(WAITING, CLAIMED)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private void matchWaiting(Queue<Ticket> queue) {
+        Ticket first = pollWaiting(queue, null);
+        if (first == null) {
+            return;
+        }
+        Ticket second = pollWaiting(queue, first.userId);
+        if (second == null) {
+            requeue(queue, first);
+            return;
+        }
+        if (pair(first, second) == null) {
+            requeue(queue, first);
+            requeue(queue, second);
+        }
+    }
+
+    private void requeue(Queue<Ticket> queue, Ticket ticket) {
+        if (retryable(ticket)) {
+            ticket.state.set(WAITING);
+            queue.offer(ticket);
+        } else {
+            // Already waiting, so its user only hears about it here
+            messagingTemplate.convertAndSendToUser(ticket.userId, MATCHMAKING_QUEUE, failedEvent(ticket));
+        }
+    }
+
+    /**
+     * False, after failing the ticket, once it has used up its pairing attempts.
+     * Only called on claimed tickets; the caller tells the user.
+     */
+    private boolean retryable(Ticket ticket) {
+        if (ticket.pairAttempts.get() < maxPairAttempts || !ticket.state.compareAndSet(CLAIMED, FAILED)) {
+            return true;
+        }
+        waitingByUser.remove(ticket.userId, ticket);
+        sessionService.updateSessionStatus(ticket.sessionId, "CANCELLED");
+        failed.increment();
+        log.warn("Matchmaking gave up on user {} after {} failed pairings", ticket.userId, ticket.pairAttempts.get());
+        return false;
+    }
+
+    private Room pair(Ticket initiator, Ticket mate) {
+        try {
+            Room room = pairingService.pairSessions(initiator.sessionId, mate.sessionCode);
+            long now = System.currentTimeMillis();
+            recordWait(now - initiator.enqueuedAt);
+            recordWait(now - mate.enqueuedAt);
+            matched.increment();
+
+            initiator.roomId = room.getId();
+            mate.roomId = room.getId();
+            waitingByUser.remove(initiator.userId, initiator);
+            waitingByUser.remove(mate.userId, mate);
+
+            messagingTemplate.convertAndSendToUser(initiator.userId, MATCHMAKING_QUEUE,
+                    matchedEvent(initiator, mate, room));
+            messagingTemplate.convertAndSendToUser(mate.userId, MATCHMAKING_QUEUE,
+                    matchedEvent(mate, initiator, room));
+
+            log.info("Matchmaking paired {} <-> {} in room {}", initiator.userId, mate.userId, room.getId());
+            return room;
+        } catch (RuntimeException e) {
+            pairingFailures.increment();
+            initiator.pairAttempts.incrementAndGet();
+            mate.pairAttempts.incrementAndGet();
+            log.error("Matchmaking failed to pair {} and {}", initiator.userId, mate.userId, e);
+            return null;
+        }
+    }
+
+    private void expire(Ticket ticket) {
+        waitingByUser.remove(ticket.userId, ticket);
+        sessionService.updateSessionStatus(ticket.sessionId, "EXPIRED");
+        timedOut.increment();
+
+        Map<String, Object> event = new HashMap<>();
+        event.put("status", "TIMEOUT");
+        event.put("sessionId", ticket.sessionId);
+        event.put("sessionType", ticket.sessionType);
+        messagingTemplate.convertAndSendToUser(ticket.userId, MATCHMAKING_QUEUE, event);
+        log.info("Matchmaking ticket for user {} timed out", ticket.userId);
+    }
+
+    private void recordWait(long waitMillis) {
+        totalWaitMillis.add(waitMillis);
+        maxWaitMillis.accumulate(waitMillis);
+    }
+
+    private Map<String, Object> matchedEvent(Ticket self, Ticket mate, Room room) {
+        Map<String, Object> event = new HashMap<>();
+        event.put("status", "MATCHED");
+        event.put("roomId", room.getId());
+        event.put("sessionId", self.sessionId);
+        event.put("sessionType", self.sessionType);
+        event.put("mateUserId", mate.userId);
+        return event;
+    }
+
+    private Map<String, Object> failedEvent(Ticket ticket) {
+        Map<String, Object> event = new HashMap<>();
+        event.put("status", "FAILED");
+        event.put("sessionId", ticket.sessionId);
+        event.put("sessionType", ticket.sessionType);
+        return event;
+    }
+
+    private static final class Ticket {
+        private final String userId;
+        private final String sessionType;
+        private final String sessionId;
+        private final String sessionCode;
+        private final long enqueuedAt = System.currentTimeMillis();
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+        private final AtomicInteger pairAttempts = new AtomicInteger();
+        private volatile String roomId;
+
+        private Ticket(String userId, String sessionType, String sessionId, String sessionCode) {
+            this.userId = userId;
+            this.sessionType = sessionType;
+            this.sessionId = sessionId;
+            this.sessionCode = sessionCode;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.terminalchat.service;
+
+import com.terminalchat.domain.entity.Message;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Stores large message bodies (pasted logs, code blocks) deflated. Small messages
+ * and ones that don't shrink are left as plain text.
+ */
+@Component
+@Slf4j
+public class MessageContentCodec {
+
+    public static final String DEFLATE = "deflate";
+
+    @Value("${message.compression.enabled:true}")
+    private boolean enabled;
+
+    @Value("${message.compression.threshold-bytes:2048}")
+    private int thresholdBytes;
+
+    private final LongAdder compressedMessages = new LongAdder();
+    private final LongAdder originalBytes = new LongAdder();
+    private final LongAdder storedBytes = new LongAdder();
+    private final LongAdder compressNanos = new LongAdder();
+    private final LongAdder decompressedMessages = new LongAdder();
+    private final LongAdder decompressNanos = new LongAdder();
+
+    /**
+     * Moves {@code content} into {@code compressedContent} when it is over the
+     * threshold and compression actually saves space.
+     */
+    public void encode(Message message) {
+        String content = message.getContent();
+        if (!enabled || content == null || content.length() < thresholdBytes) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        byte[] raw = content.getBytes(StandardCharsets.UTF_8);
+        byte[] deflated = deflate(raw);
+        compressNanos.add(System.nanoTime() - start);
+
+        if (deflated.length >= raw.length) {
+            return;
+        }
+
+        message.setCompressedContent(deflated);
+        message.setContentEncoding(DEFLATE);
+        message.setContent(null);
+
+        compressedMessages.increment();
+        originalBytes.add(raw.length);
+        storedBytes.add(deflated.length);
+    }
+
+    public String decode(Message message) {
+        if (!DEFLATE.equals(message.getContentEncoding()) || message.getCompressedContent() == null) {
+            return message.getContent();
+        }
+
+        long start = System.nanoTime();
+        String content = new String(inflate(message.getCompressedContent()), StandardCharsets.UTF_8);
+        decompressNanos.add(System.nanoTime() - start);
+        decompressedMessages.increment();
+        return content;
+    }
+
+    public Map<String, Object> getStats() {
+        long original = originalBytes.sum();
+        long stored = storedBytes.sum();
+        long compressed = compressedMessages.sum();
+        long decompressed = decompressedMessages.sum();
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("thresholdBytes", thresholdBytes);
+        stats.put("compressedMessages", compressed);
+        stats.put("originalBytes", original);
+        stats.put("storedBytes", stored);
+        stats.put("bytesSaved", original - stored);
+        stats.put("compressionRatio", stored == 0 ? 0 : (double) original / stored);
+        stats.put("avgCompressMicros", compressed == 0 ? 0 : compressNanos.sum() / compressed / 1000);
+        stats.put("decompressedMessages", decompressed);
+        stats.put("avgDecompressMicros", decompressed == 0 ? 0 : decompressNanos.sum() / decompressed / 1000);
+        return stats;
+    }
+
+    private byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private byte[] inflate(byte[] deflated) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(deflated);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(deflated.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && inflater.needsInput()) {
+                    throw new RuntimeException("Truncated compressed message content");
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new RuntimeException("Corrupt compressed message content", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
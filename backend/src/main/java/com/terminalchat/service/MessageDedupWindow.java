@@ -0,0 +1,56 @@
+package com.terminalchat.service;
+
+import com.terminalchat.domain.dto.MessageDTO;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers the last few client idempotency keys per room so a retried send returns
+ * the original message instead of creating a new one. Both the per-room windows and
+ * the number of rooms tracked are bounded; the unique index on
+ * (roomId, clientMessageId) catches anything that falls out of the window.
+ */
+@Component
+public class MessageDedupWindow {
+
+    private static final int KEYS_PER_ROOM = 256;
+    private static final int MAX_ROOMS = 10000;
+
+    private final Map<String, Map<String, MessageDTO>> rooms = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Map<String, MessageDTO>> eldest) {
+            return size() > MAX_ROOMS;
+        }
+    };
+
+    /**
+     * Records {@code message} under its key, or returns the message already recorded
+     * for that key.
+     */
+    public synchronized MessageDTO putIfAbsent(String roomId, String clientMessageId, MessageDTO message) {
+        Map<String, MessageDTO> window = rooms.computeIfAbsent(roomId, id -> new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, MessageDTO> eldest) {
+                return size() > KEYS_PER_ROOM;
+            }
+        });
+        return window.putIfAbsent(clientMessageId, message);
+    }
+
+    /** Swaps the message recorded for a key that is still in the window. */
+    public synchronized void replace(String roomId, String clientMessageId, MessageDTO message) {
+        Map<String, MessageDTO> window = rooms.get(roomId);
+        if (window != null) {
+            window.replace(clientMessageId, message);
+        }
+    }
+
+    public synchronized void remove(String roomId, String clientMessageId) {
+        Map<String, MessageDTO> window = rooms.get(roomId);
+        if (window != null) {
+            window.remove(clientMessageId);
+        }
+    }
+}
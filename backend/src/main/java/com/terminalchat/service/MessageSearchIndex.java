@@ -0,0 +1,339 @@
+package com.terminalchat.service;
+
+import com.terminalchat.domain.entity.Message;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-room inverted index over message content (token -> message ordinals). Only ids
+ * and expiry times are held in memory; the messages themselves are fetched by id.
+ * A room's index is built from Mongo on its first search and kept current by
+ * {@link MessageService} afterwards. The build runs outside the map's locks; messages
+ * added meanwhile are buffered and applied once the load is in.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MessageSearchIndex {
+
+    private static final int MAX_MESSAGES_PER_ROOM = 20000;
+    // Trimming rewrites every posting list, so let a room run this far over before doing it
+    private static final int TRIM_SLACK = MAX_MESSAGES_PER_ROOM / 10;
+    private static final int MAX_TOKEN_LENGTH = 64;
+    private static final long IDLE_EVICTION_MILLIS = 30 * 60 * 1000;
+
+    private final MessageStore messageStore;
+    private final MessageContentCodec messageContentCodec;
+
+    // Same retention the message store applies; entries past it are pruned
+    @Value("${message.storage.retention-hours:24}")
+    private int retentionHours;
+
+    private final Map<String, RoomIndex> rooms = new ConcurrentHashMap<>();
+
+    /**
+     * Adds a freshly saved message to its room's index. Rooms nobody has searched yet
+     * are skipped; they are built in full on the first query.
+     */
+    public void add(Message message, String content) {
+        RoomIndex index = rooms.get(message.getRoomId());
+        if (index != null) {
+            index.add(message, content);
+        }
+    }
+
+    /**
+     * Returns ids of messages containing every query token, newest first.
+     */
+    public List<String> search(String roomId, String query, int limit) {
+        List<String> tokens = new ArrayList<>(tokenize(query));
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+
+        RoomIndex index = rooms.get(roomId);
+        if (index == null) {
+            RoomIndex created = new RoomIndex(retentionHours);
+            index = rooms.putIfAbsent(roomId, created);
+            if (index == null) {
+                index = created;
+                build(roomId, created);
+            }
+        }
+        try {
+            index.loaded.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+        return index.search(tokens, limit, System.currentTimeMillis());
+    }
+
+    /**
+     * Drops postings for messages past their TTL and forgets rooms that haven't been
+     * searched for a while.
+     */
+    public void pruneExpired() {
+        long now = System.currentTimeMillis();
+        rooms.entrySet().removeIf(entry -> {
+            RoomIndex index = entry.getValue();
+            if (now - index.lastAccess > IDLE_EVICTION_MILLIS) {
+                return true;
+            }
+            index.prune(now);
+            return index.isEmpty();
+        });
+    }
+
+    private void build(String roomId, RoomIndex index) {
+        long start = System.currentTimeMillis();
+        try {
+            List<Message> messages = messageStore.findByRoom(roomId);
+            List<String> contents = new ArrayList<>(messages.size());
+            messages.forEach(message -> contents.add(messageContentCodec.decode(message)));
+            index.load(messages, contents);
+            log.debug("Search index built for room {} ({} messages in {} ms)",
+                    roomId, messages.size(), System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            rooms.remove(roomId, index);
+            index.loaded.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    static Set<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null) {
+            return tokens;
+        }
+
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c) || c == '_') {
+                if (current.length() < MAX_TOKEN_LENGTH) {
+                    current.append(Character.toLowerCase(c));
+                }
+            } else if (current.length() > 0) {
+                if (current.length() > 1) {
+                    tokens.add(current.toString());
+                }
+                current.setLength(0);
+            }
+        }
+        return tokens;
+    }
+
+    private static long expiresAt(Message message, int retentionHours) {
+        LocalDateTime createdAt = message.getCreatedAt();
+        return createdAt == null
+                ? Long.MAX_VALUE
+                : createdAt.plusHours(retentionHours).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static final class Entry {
+        private final int ordinal;
+        private final String messageId;
+        private final long expiresAt;
+
+        private Entry(int ordinal, String messageId, long expiresAt) {
+            this.ordinal = ordinal;
+            this.messageId = messageId;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Messages are appended in creation order with a fixed TTL, so expired entries are
+     * always a prefix and every posting list stays sorted by ordinal.
+     */
+    private static final class RoomIndex {
+        private final int retentionHours;
+        private final List<Entry> entries = new ArrayList<>();
+        private final Map<String, Postings> postings = new HashMap<>();
+        private int nextOrdinal;
+        private volatile long lastAccess = System.currentTimeMillis();
+
+        // Completes once the initial load is in; until then adds go to buffered
+        private final CompletableFuture<Void> loaded = new CompletableFuture<>();
+        private List<Buffered> buffered = new ArrayList<>();
+
+        private RoomIndex(int retentionHours) {
+            this.retentionHours = retentionHours;
+        }
+
+        synchronized void add(Message message, String content) {
+            if (message.getId() == null) {
+                return;
+            }
+            if (buffered != null) {
+                buffered.add(new Buffered(message, content));
+                return;
+            }
+            append(message, content);
+        }
+
+        /**
+         * Applies the initial load, then whatever was added while it ran. A buffered
+         * message may also be in the load if it was saved before the read.
+         */
+        synchronized void load(List<Message> messages, List<String> contents) {
+            Set<String> loadedIds = new HashSet<>(messages.size() * 2);
+            for (int i = 0; i < messages.size(); i++) {
+                Message message = messages.get(i);
+                if (message.getId() != null) {
+                    loadedIds.add(message.getId());
+                    append(message, contents.get(i));
+                }
+            }
+            for (Buffered pending : buffered) {
+                if (!loadedIds.contains(pending.message().getId())) {
+                    append(pending.message(), pending.content());
+                }
+            }
+            buffered = null;
+            loaded.complete(null);
+        }
+
+        private void append(Message message, String content) {
+            int ordinal = nextOrdinal++;
+            entries.add(new Entry(ordinal, message.getId(), expiresAt(message, retentionHours)));
+            for (String token : tokenize(content)) {
+                postings.computeIfAbsent(token, t -> new Postings()).add(ordinal);
+            }
+            if (entries.size() > MAX_MESSAGES_PER_ROOM + TRIM_SLACK) {
+                dropBefore(entries.get(entries.size() - MAX_MESSAGES_PER_ROOM).ordinal);
+            }
+        }
+
+        synchronized List<String> search(List<String> tokens, int limit, long now) {
+            lastAccess = now;
+
+            List<Postings> lists = new ArrayList<>(tokens.size());
+            for (String token : tokens) {
+                Postings p = postings.get(token);
+                if (p == null) {
+                    return List.of();
+                }
+                lists.add(p);
+            }
+            lists.sort(Comparator.comparingInt(Postings::size));
+
+            int firstOrdinal = entries.isEmpty() ? 0 : entries.get(0).ordinal;
+            List<String> result = new ArrayList<>();
+            Postings smallest = lists.get(0);
+            for (int i = smallest.size() - 1; i >= 0 && result.size() < limit; i--) {
+                int ordinal = smallest.get(i);
+                if (ordinal < firstOrdinal) {
+                    break;
+                }
+                if (!containsAll(lists, ordinal)) {
+                    continue;
+                }
+                Entry entry = entries.get(ordinal - firstOrdinal);
+                if (entry.expiresAt > now) {
+                    result.add(entry.messageId);
+                }
+            }
+            return result;
+        }
+
+        synchronized void prune(long now) {
+            int firstLive = 0;
+            while (firstLive < entries.size() && entries.get(firstLive).expiresAt <= now) {
+                firstLive++;
+            }
+            if (firstLive > 0) {
+                dropBefore(firstLive < entries.size() ? entries.get(firstLive).ordinal : nextOrdinal);
+            }
+        }
+
+        synchronized boolean isEmpty() {
+            return buffered == null && entries.isEmpty();
+        }
+
+        private void dropBefore(int ordinal) {
+            int firstOrdinal = entries.isEmpty() ? ordinal : entries.get(0).ordinal;
+            entries.subList(0, Math.min(entries.size(), ordinal - firstOrdinal)).clear();
+
+            Iterator<Postings> it = postings.values().iterator();
+            while (it.hasNext()) {
+                Postings p = it.next();
+                p.dropBefore(ordinal);
+                if (p.size() == 0) {
+                    it.remove();
+                }
+            }
+        }
+
+        private boolean containsAll(List<Postings> lists, int ordinal) {
+            for (int i = 1; i < lists.size(); i++) {
+                if (!lists.get(i).contains(ordinal)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private record Buffered(Message message, String content) {
+    }
+
+    /**
+     * Sorted, growable int array of message ordinals.
+     */
+    private static final class Postings {
+        private int[] ordinals = new int[4];
+        private int size;
+
+        void add(int ordinal) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+            }
+            ordinals[size++] = ordinal;
+        }
+
+        int get(int i) {
+            return ordinals[i];
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean contains(int ordinal) {
+            return Arrays.binarySearch(ordinals, 0, size, ordinal) >= 0;
+        }
+
+        void dropBefore(int ordinal) {
+            int from = Arrays.binarySearch(ordinals, 0, size, ordinal);
+            if (from < 0) {
+                from = -from - 1;
+            }
+            if (from == 0) {
+                return;
+            }
+            size -= from;
+            int[] trimmed = new int[Math.max(4, size)];
+            System.arraycopy(ordinals, from, trimmed, 0, size);
+            ordinals = trimmed;
+        }
+    }
+}
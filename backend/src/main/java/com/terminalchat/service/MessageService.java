@@ -2,13 +2,22 @@ package com.terminalchat.service;
 
 import com.terminalchat.domain.dto.MessageDTO;
 import com.terminalchat.domain.entity.Message;
-import com.terminalchat.domain.repository.MessageRepository;
+import com.terminalchat.domain.entity.User;
+import com.fasterxml.uuid.Generators;
+import com.fasterxml.uuid.impl.TimeBasedEpochGenerator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -16,60 +25,215 @@ import java.util.stream.Collectors;
 @Slf4j
 public class MessageService {
 
-    private final MessageRepository messageRepository;
-    private static final long MESSAGE_TTL_HOURS = 24;
+    private final MessageStore messageStore;
+    private final MessageSearchIndex messageSearchIndex;
+    private final MessageContentCodec messageContentCodec;
+    private final MessageDedupWindow messageDedupWindow;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final OfflineMessageQueue offlineMessageQueue;
+    private final AuthService authService;
+
+    private static final String SYSTEM_SENDER = "SYSTEM";
+    private static final String UNKNOWN_SENDER = "Unknown";
+
+    // UUIDv7: ids sort by creation time, so they can be assigned before the write
+    private static final TimeBasedEpochGenerator ID_GENERATOR = Generators.timeBasedEpochGenerator();
+
+    /**
+     * Chat send path. The message gets its id up front and its {@code clientMessageId}
+     * is reserved in the dedup window; it is broadcast only once the insert has
+     * succeeded, so a retry whose key has already left the window hits the unique
+     * index and is dropped instead of reaching the room twice. A retry caught by the
+     * window gets the original message back and is neither broadcast nor stored again.
+     */
+    public MessageDTO sendChatMessage(String roomId, String senderId, String senderUsername,
+            String content, String clientMessageId) {
+        LocalDateTime now = LocalDateTime.now();
+
+        Message message = Message.builder()
+                .id(newMessageId())
+                .clientMessageId(clientMessageId)
+                .roomId(roomId)
+                .senderId(senderId)
+                .content(content)
+                .type("TEXT")
+                .createdAt(now)
+                .build();
+        MessageDTO messageDTO = convertToDTO(message, senderUsername);
+
+        if (clientMessageId != null) {
+            MessageDTO original = messageDedupWindow.putIfAbsent(roomId, clientMessageId, messageDTO);
+            if (original != null) {
+                log.debug("Duplicate send {} in room {} ignored", clientMessageId, roomId);
+                return original;
+            }
+        }
+
+        messageContentCodec.encode(message);
+        try {
+            messageStore.insert(message);
+        } catch (DuplicateKeyException e) {
+            // Retry arrived after the key left the in-memory window; the original was already
+            // broadcast. Answer with the stored message, whose id and timestamp are the real ones
+            MessageDTO original = messageStore.findByRoomAndClientMessageId(roomId, clientMessageId)
+                    .map(stored -> convertToDTO(stored, senderUsername))
+                    .orElseThrow(() -> e);
+            messageDedupWindow.replace(roomId, clientMessageId, original);
+            log.info("Duplicate client message {} in room {} not stored or broadcast", clientMessageId, roomId);
+            return original;
+        } catch (RuntimeException e) {
+            if (clientMessageId != null) {
+                messageDedupWindow.remove(roomId, clientMessageId);
+            }
+            throw e;
+        }
+        messageSearchIndex.add(message, content);
+        log.info("Message saved to room {}: {}", roomId, message.getId());
+
+        broadcastToRoom(roomId, messageDTO);
+        return messageDTO;
+    }
 
     public MessageDTO saveMessage(String roomId, String senderId, String senderUsername, String content) {
         LocalDateTime now = LocalDateTime.now();
         
         Message message = Message.builder()
+                .id(newMessageId())
                 .roomId(roomId)
                 .senderId(senderId)
-                .senderUsername(senderUsername)
                 .content(content)
                 .type("TEXT")
                 .createdAt(now)
-                .expiresAt(now.plusHours(MESSAGE_TTL_HOURS))
                 .build();
+        messageContentCodec.encode(message);
 
-        Message savedMessage = messageRepository.save(message);
+        Message savedMessage = messageStore.insert(message);
+        messageSearchIndex.add(savedMessage, content);
         log.info("Message saved to room {}: {}", roomId, savedMessage.getId());
 
-        return convertToDTO(savedMessage);
+        return convertToDTO(savedMessage, senderUsername);
     }
 
     public MessageDTO saveSystemMessage(String roomId, String content) {
         LocalDateTime now = LocalDateTime.now();
         
         Message message = Message.builder()
+                .id(newMessageId())
                 .roomId(roomId)
-                .senderUsername("SYSTEM")
                 .content(content)
                 .type("SYSTEM")
                 .createdAt(now)
-                .expiresAt(now.plusHours(MESSAGE_TTL_HOURS))
+                .build();
+        messageContentCodec.encode(message);
+
+        Message savedMessage = messageStore.insert(message);
+        messageSearchIndex.add(savedMessage, content);
+        return convertToDTO(savedMessage, SYSTEM_SENDER);
+    }
+
+    public MessageDTO saveFileMessage(String roomId, String senderId, String senderUsername, String fileReference) {
+        LocalDateTime now = LocalDateTime.now();
+
+        Message message = Message.builder()
+                .id(newMessageId())
+                .roomId(roomId)
+                .senderId(senderId)
+                .content(fileReference)
+                .type("FILE")
+                .createdAt(now)
                 .build();
 
-        Message savedMessage = messageRepository.save(message);
-        return convertToDTO(savedMessage);
+        Message savedMessage = messageStore.insert(message);
+        log.info("File message saved to room {}: {}", roomId, savedMessage.getId());
+        return convertToDTO(savedMessage, senderUsername);
+    }
+
+    /**
+     * Publishes to the room's live subscribers and queues a copy for members who are
+     * briefly disconnected.
+     */
+    public void broadcastToRoom(String roomId, MessageDTO messageDTO) {
+        messagingTemplate.convertAndSend("/room/" + roomId + "/messages", messageDTO);
+        offlineMessageQueue.offer(roomId, messageDTO);
+    }
+
+    /**
+     * Messages the user missed in the room while disconnected, oldest first. Empty
+     * when nothing was queued for them.
+     */
+    public List<MessageDTO> drainMissedMessages(String roomId, String userId) {
+        OfflineMessageQueue.Backlog backlog = offlineMessageQueue.drain(roomId, userId);
+        if (backlog == null) {
+            return List.of();
+        }
+        if (!backlog.spilled()) {
+            return backlog.messages();
+        }
+
+        return convertToDTOs(messageStore.findByRoomInIdRange(roomId, backlog.spillFromId(), backlog.spillToId()));
     }
 
     public List<MessageDTO> getRoomMessages(String roomId) {
-        List<Message> messages = messageRepository.findByRoomIdOrderByCreatedAtAsc(roomId);
+        return convertToDTOs(messageStore.findByRoom(roomId));
+    }
+
+    /**
+     * The newest {@code limit} messages of the room, oldest first.
+     */
+    public List<MessageDTO> getRecentMessages(String roomId, int limit) {
+        List<MessageDTO> messages = convertToDTOs(messageStore.findRecentByRoom(roomId, limit));
+        Collections.reverse(messages);
+        return messages;
+    }
+
+    public List<MessageDTO> searchRoomMessages(String roomId, String query, int limit) {
+        List<String> ids = messageSearchIndex.search(roomId, query, limit);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        Map<String, Message> byId = messageStore.findByRoomAndIds(roomId, ids).stream()
+                .collect(Collectors.toMap(Message::getId, Function.identity()));
+
+        return convertToDTOs(ids.stream()
+                .map(byId::get)
+                .filter(message -> message != null)
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Sender names aren't stored with messages; they come from the user profiles,
+     * fetched once per batch and mostly served by the user cache.
+     */
+    private List<MessageDTO> convertToDTOs(List<Message> messages) {
+        Set<String> senderIds = messages.stream()
+                .map(Message::getSenderId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<String, String> names = authService.getUsersByIds(senderIds).stream()
+                .collect(Collectors.toMap(User::getId, User::getDisplayName, (a, b) -> a));
+
         return messages.stream()
-                .map(this::convertToDTO)
+                .map(message -> convertToDTO(message, "SYSTEM".equals(message.getType())
+                        ? SYSTEM_SENDER
+                        : names.getOrDefault(message.getSenderId(), UNKNOWN_SENDER)))
                 .collect(Collectors.toList());
     }
 
-    private MessageDTO convertToDTO(Message message) {
+    private MessageDTO convertToDTO(Message message, String senderUsername) {
         return MessageDTO.builder()
                 .id(message.getId())
+                .clientMessageId(message.getClientMessageId())
                 .roomId(message.getRoomId())
                 .senderId(message.getSenderId())
-                .senderUsername(message.getSenderUsername())
-                .content(message.getContent())
+                .senderUsername(senderUsername)
+                .content(messageContentCodec.decode(message))
                 .type(message.getType())
                 .createdAt(message.getCreatedAt())
                 .build();
     }
+
+    private String newMessageId() {
+        return ID_GENERATOR.generate().toString();
+    }
 }
@@ -0,0 +1,44 @@
+package com.terminalchat.service;
+
+import com.terminalchat.domain.entity.Message;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Where {@link MessageService} persists messages. The implementation is picked
+ * with {@code message.storage.mode}; all of them rely on message ids being
+ * UUIDv7, so id order is creation order.
+ */
+public interface MessageStore {
+
+    Message insert(Message message);
+
+    /** Every message of the room, oldest first. */
+    List<Message> findByRoom(String roomId);
+
+    /** Messages of the room with {@code fromId <= id <= toId}, oldest first. */
+    List<Message> findByRoomInIdRange(String roomId, String fromId, String toId);
+
+    /** The newest {@code limit} messages of the room, newest first. */
+    List<Message> findRecentByRoom(String roomId, int limit);
+
+    /** The room's messages with the given ids, in no particular order. */
+    List<Message> findByRoomAndIds(String roomId, Collection<String> ids);
+
+    /** The stored message a client idempotency key was first used for, if still retained. */
+    Optional<Message> findByRoomAndClientMessageId(String roomId, String clientMessageId);
+
+    /** Removes messages past retention, if the store doesn't leave that to Mongo. */
+    void evictExpired();
+
+    Map<String, Object> getStats();
+
+    /** Creation time of a message, read from the Unix-millisecond prefix of its UUIDv7 id. */
+    static long timestampOf(String messageId) {
+        return UUID.fromString(messageId).getMostSignificantBits() >>> 16;
+    }
+}
@@ -0,0 +1,144 @@
+package com.terminalchat.service;
+
+import com.terminalchat.domain.dto.MessageDTO;
+import com.terminalchat.websocket.PresenceRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Holds room broadcasts for members whose connection dropped recently, so they can
+ * be replayed in order when the member resubscribes. Each queue is bounded, and so
+ * is the total across all queues; when either cap is hit the queue spills: its
+ * entries are dropped and only the id of the oldest missed message is kept. Messages
+ * are already in Mongo, so a spilled queue is replayed from there on reconnect.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OfflineMessageQueue {
+
+    private final RoomService roomService;
+    private final PresenceRegistry presenceRegistry;
+
+    @Value("${offline-queue.grace-seconds:300}")
+    private long graceSeconds;
+
+    @Value("${offline-queue.max-per-user:200}")
+    private int maxPerUser;
+
+    @Value("${offline-queue.max-total:50000}")
+    private int maxTotal;
+
+    // roomId:userId -> pending broadcasts
+    private final Map<String, Pending> queues = new ConcurrentHashMap<>();
+    private final AtomicInteger totalQueued = new AtomicInteger();
+
+    /**
+     * Queues the message for every room member that isn't currently subscribed but
+     * was within the grace window.
+     */
+    public void offer(String roomId, MessageDTO message) {
+        long graceMillis = graceSeconds * 1000;
+        for (String userId : roomService.getMembers(roomId)) {
+            if (userId.equals(message.getSenderId())
+                    || !presenceRegistry.isTemporarilyDisconnected(roomId, userId, graceMillis)) {
+                continue;
+            }
+            // compute() so a concurrent drain can't detach the queue mid-append
+            queues.compute(key(roomId, userId), (k, pending) -> {
+                Pending target = pending == null ? new Pending() : pending;
+                target.append(message);
+                return target;
+            });
+        }
+    }
+
+    /**
+     * Removes and returns whatever is pending for the user in the room, or null.
+     */
+    public Backlog drain(String roomId, String userId) {
+        Pending pending = queues.remove(key(roomId, userId));
+        return pending == null ? null : pending.close();
+    }
+
+    /**
+     * Forgets queues of users who didn't come back within the grace window.
+     */
+    public void evictExpired() {
+        long cutoff = System.currentTimeMillis() - graceSeconds * 1000;
+        queues.entrySet().removeIf(entry -> {
+            if (entry.getValue().lastAppend < cutoff) {
+                entry.getValue().close();
+                return true;
+            }
+            return false;
+        });
+        presenceRegistry.evictStale(graceSeconds * 1000);
+    }
+
+    public Map<String, Object> getStats() {
+        return Map.of("queues", queues.size(), "queuedMessages", totalQueued.get());
+    }
+
+    private static String key(String roomId, String userId) {
+        return roomId + ":" + userId;
+    }
+
+    /**
+     * Missed messages: either the queued broadcasts themselves, or, after a spill, the
+     * id range to reload from Mongo.
+     */
+    public record Backlog(List<MessageDTO> messages, String spillFromId, String spillToId) {
+        public boolean spilled() {
+            return spillFromId != null;
+        }
+    }
+
+    private final class Pending {
+        private final Deque<MessageDTO> messages = new ArrayDeque<>();
+        private String spillFromId;
+        private String lastId;
+        private volatile long lastAppend = System.currentTimeMillis();
+
+        synchronized void append(MessageDTO message) {
+            lastAppend = System.currentTimeMillis();
+            lastId = message.getId();
+            if (spillFromId != null) {
+                return;
+            }
+            if (messages.size() >= maxPerUser || totalQueued.incrementAndGet() > maxTotal) {
+                if (messages.size() < maxPerUser) {
+                    totalQueued.decrementAndGet();
+                }
+                spill(message);
+                return;
+            }
+            messages.addLast(message);
+        }
+
+        synchronized Backlog close() {
+            totalQueued.addAndGet(-messages.size());
+            Backlog backlog = new Backlog(new ArrayList<>(messages), spillFromId, spillFromId == null ? null : lastId);
+            messages.clear();
+            return backlog;
+        }
+
+        private void spill(MessageDTO incoming) {
+            MessageDTO oldest = messages.peekFirst();
+            spillFromId = oldest != null ? oldest.getId() : incoming.getId();
+            totalQueued.addAndGet(-messages.size());
+            messages.clear();
+            log.debug("Offline queue spilled to store from message {}", spillFromId);
+        }
+    }
+}
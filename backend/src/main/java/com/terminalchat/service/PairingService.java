@@ -68,23 +68,16 @@ public class PairingService {
     }
 
     public boolean validatePairingConsent(String userId, String roomId) {
-        Optional<Room> room = roomRepository.findById(roomId);
-        if (room.isEmpty()) {
-            return false;
-        }
-
-        return room.get().getParticipantIds().contains(userId);
+        return roomService.validateRoomParticipants(roomId, userId);
     }
 
     @Transactional
     public void closePairing(String roomId, String userId) {
-        Optional<Room> room = roomRepository.findById(roomId);
-        if (room.isEmpty()) {
+        if (roomService.getRoomById(roomId).isEmpty()) {
             return;
         }
 
-        Room roomEntity = room.get();
-        if (!roomEntity.getParticipantIds().contains(userId)) {
+        if (!roomService.validateRoomParticipants(roomId, userId)) {
             throw new RuntimeException("User not authorized to close this room");
         }
 
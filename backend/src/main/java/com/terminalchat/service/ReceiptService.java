@@ -0,0 +1,288 @@
+package com.terminalchat.service;
+
+import com.terminalchat.domain.entity.ReadReceipt;
+import com.terminalchat.domain.repository.ReadReceiptRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Delivery and read receipts as per-(room, user) high-water marks. Acks only move the
+ * marks forward in memory; changes are coalesced and broadcast to the room a few times
+ * a second and written to Mongo in bulk every few seconds, so acking every message
+ * costs neither a STOMP frame per receiver nor a write per message. A mark is only
+ * accepted if it is the id of a message in the room; since marks are compared as
+ * strings, a malformed one would otherwise pin the mark for good.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReceiptService {
+
+    private static final long IDLE_EVICTION_MILLIS = 60 * 60 * 1000;
+    private static final long MAX_CLOCK_SKEW_MILLIS = 60 * 1000;
+
+    private final ReadReceiptRepository readReceiptRepository;
+    private final MongoTemplate mongoTemplate;
+    private final MessageStore messageStore;
+    private final SimpMessagingTemplate messagingTemplate;
+
+    private final Map<String, ReceiptState> receipts = new ConcurrentHashMap<>();
+    private final Set<String> pendingBroadcast = ConcurrentHashMap.newKeySet();
+    private final Set<String> pendingPersist = ConcurrentHashMap.newKeySet();
+
+    public void acknowledge(String roomId, String userId, String deliveredUpTo, String readUpTo) {
+        if (roomId == null || userId == null) {
+            return;
+        }
+
+        String delivered = wellFormedMark(deliveredUpTo);
+        String read = wellFormedMark(readUpTo);
+        String key = roomId + ":" + userId;
+
+        // Only look the marks up when they would move something
+        ReceiptState current = receipts.get(key);
+        if ((delivered == null && read == null) || (current != null && !current.wouldAdvance(delivered, read))) {
+            return;
+        }
+        Set<String> existing = existingIds(roomId, delivered, read);
+        delivered = existing.contains(delivered) ? delivered : null;
+        read = existing.contains(read) ? read : null;
+        if (delivered == null && read == null) {
+            return;
+        }
+
+        while (true) {
+            ReceiptState state = receipts.computeIfAbsent(key, k -> new ReceiptState(roomId, userId));
+            synchronized (state) {
+                if (state.evicted) {
+                    // Evicted between the lookup and the lock; start over with a fresh state
+                    continue;
+                }
+                if (state.advance(delivered, read)) {
+                    pendingBroadcast.add(key);
+                    pendingPersist.add(key);
+                }
+                return;
+            }
+        }
+    }
+
+    public List<Map<String, Object>> getRoomReceipts(String roomId) {
+        Map<String, Map<String, Object>> byUser = new HashMap<>();
+        for (ReadReceipt receipt : readReceiptRepository.findByRoomId(roomId)) {
+            byUser.put(receipt.getUserId(), toEvent(receipt.getUserId(), receipt.getDeliveredUpTo(), receipt.getReadUpTo()));
+        }
+        for (ReceiptState state : receipts.values()) {
+            if (state.roomId.equals(roomId)) {
+                Map<String, Object> stored = byUser.get(state.userId);
+                synchronized (state) {
+                    byUser.put(state.userId, toEvent(state.userId,
+                            max(state.deliveredUpTo, stored == null ? null : (String) stored.get("deliveredUpTo")),
+                            max(state.readUpTo, stored == null ? null : (String) stored.get("readUpTo"))));
+                }
+            }
+        }
+        return new ArrayList<>(byUser.values());
+    }
+
+    /**
+     * Sends one receipts frame per room with every mark that moved since the last flush.
+     */
+    @Scheduled(fixedDelayString = "${receipts.broadcast-interval-ms:250}")
+    public void flushBroadcasts() {
+        if (pendingBroadcast.isEmpty()) {
+            return;
+        }
+
+        Map<String, List<Map<String, Object>>> byRoom = new HashMap<>();
+        for (Iterator<String> it = pendingBroadcast.iterator(); it.hasNext(); ) {
+            ReceiptState state = receipts.get(it.next());
+            it.remove();
+            if (state == null) {
+                continue;
+            }
+            synchronized (state) {
+                byRoom.computeIfAbsent(state.roomId, r -> new ArrayList<>())
+                        .add(toEvent(state.userId, state.deliveredUpTo, state.readUpTo));
+            }
+        }
+
+        byRoom.forEach((roomId, events) -> messagingTemplate.convertAndSend("/room/" + roomId + "/receipts", events));
+    }
+
+    /**
+     * Upserts every changed receipt in one unordered bulk write. {@code $max} keeps the
+     * stored marks monotonic even if an older value is flushed late.
+     */
+    @Scheduled(fixedDelayString = "${receipts.persist-interval-ms:5000}")
+    public void flushPersistence() {
+        evictIdle(System.currentTimeMillis());
+
+        if (pendingPersist.isEmpty()) {
+            return;
+        }
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ReadReceipt.class);
+        List<String> keys = new ArrayList<>();
+        for (Iterator<String> it = pendingPersist.iterator(); it.hasNext(); ) {
+            String key = it.next();
+            it.remove();
+            ReceiptState state = receipts.get(key);
+            if (state == null) {
+                continue;
+            }
+
+            Update update = new Update()
+                    .setOnInsert("roomId", state.roomId)
+                    .setOnInsert("userId", state.userId)
+                    .set("updatedAt", LocalDateTime.now());
+            synchronized (state) {
+                if (state.deliveredUpTo != null) {
+                    update.max("deliveredUpTo", state.deliveredUpTo);
+                }
+                if (state.readUpTo != null) {
+                    update.max("readUpTo", state.readUpTo);
+                }
+            }
+            bulk.upsert(Query.query(Criteria.where("_id").is(key)), update);
+            keys.add(key);
+        }
+
+        if (keys.isEmpty()) {
+            return;
+        }
+        try {
+            bulk.execute();
+            log.debug("Persisted {} receipts", keys.size());
+        } catch (RuntimeException e) {
+            // $max makes replaying these harmless; the states stay in memory until they land
+            pendingPersist.addAll(keys);
+            log.error("Persisting {} receipts failed, retrying on the next flush", keys.size(), e);
+        }
+    }
+
+    /**
+     * Drops states idle for an hour with nothing pending. The state is marked under its
+     * own lock and removed only if it is still the mapped one, so an ack racing the
+     * eviction retries on a fresh state instead of advancing a detached one.
+     */
+    private void evictIdle(long now) {
+        for (Map.Entry<String, ReceiptState> entry : receipts.entrySet()) {
+            ReceiptState state = entry.getValue();
+            if (now - state.lastUpdated <= IDLE_EVICTION_MILLIS) {
+                continue;
+            }
+            synchronized (state) {
+                if (now - state.lastUpdated > IDLE_EVICTION_MILLIS
+                        && !pendingPersist.contains(entry.getKey())
+                        && !pendingBroadcast.contains(entry.getKey())) {
+                    state.evicted = true;
+                    receipts.remove(entry.getKey(), state);
+                }
+            }
+        }
+    }
+
+    // Canonical UUIDv7 not from the future, or null
+    private static String wellFormedMark(String mark) {
+        if (mark == null) {
+            return null;
+        }
+        try {
+            UUID uuid = UUID.fromString(mark);
+            if (uuid.version() != 7 || !uuid.toString().equals(mark)
+                    || MessageStore.timestampOf(mark) > System.currentTimeMillis() + MAX_CLOCK_SKEW_MILLIS) {
+                return null;
+            }
+            return mark;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private Set<String> existingIds(String roomId, String delivered, String read) {
+        Set<String> ids = new HashSet<>();
+        if (delivered != null) {
+            ids.add(delivered);
+        }
+        if (read != null) {
+            ids.add(read);
+        }
+        Set<String> existing = new HashSet<>();
+        messageStore.findByRoomAndIds(roomId, ids).forEach(message -> existing.add(message.getId()));
+        return existing;
+    }
+
+    private static Map<String, Object> toEvent(String userId, String deliveredUpTo, String readUpTo) {
+        Map<String, Object> event = new HashMap<>();
+        event.put("userId", userId);
+        event.put("deliveredUpTo", deliveredUpTo);
+        event.put("readUpTo", readUpTo);
+        return event;
+    }
+
+    // UUIDv7 strings sort in creation order
+    private static String max(String a, String b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        return a.compareTo(b) >= 0 ? a : b;
+    }
+
+    private static final class ReceiptState {
+        private final String roomId;
+        private final String userId;
+        private String deliveredUpTo;
+        private String readUpTo;
+        private volatile long lastUpdated = System.currentTimeMillis();
+        // Set under the lock when the state leaves the map; it must not be advanced after
+        private boolean evicted;
+
+        private ReceiptState(String roomId, String userId) {
+            this.roomId = roomId;
+            this.userId = userId;
+        }
+
+        synchronized boolean wouldAdvance(String delivered, String read) {
+            return !Objects.equals(max(max(deliveredUpTo, delivered), read), deliveredUpTo)
+                    || !Objects.equals(max(readUpTo, read), readUpTo);
+        }
+
+        synchronized boolean advance(String delivered, String read) {
+            // Reading a message implies it was delivered
+            String newDelivered = max(max(deliveredUpTo, delivered), read);
+            String newRead = max(readUpTo, read);
+            boolean changed = !Objects.equals(newDelivered, deliveredUpTo)
+                    || !Objects.equals(newRead, readUpTo);
+            deliveredUpTo = newDelivered;
+            readUpTo = newRead;
+            if (changed) {
+                lastUpdated = System.currentTimeMillis();
+            }
+            return changed;
+        }
+    }
+}
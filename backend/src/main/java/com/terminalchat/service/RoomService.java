@@ -1,15 +1,29 @@
 package com.terminalchat.service;
 
 import com.terminalchat.domain.entity.Room;
+import com.terminalchat.domain.entity.RoomMember;
+import com.terminalchat.domain.repository.RoomMemberRepository;
 import com.terminalchat.domain.repository.RoomRepository;
+import com.terminalchat.websocket.SignalingStateCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 @RequiredArgsConstructor
@@ -17,7 +31,26 @@ import java.util.UUID;
 public class RoomService {
 
     private final RoomRepository roomRepository;
+    private final RoomMemberRepository roomMemberRepository;
+    private final SignalingStateCache signalingStateCache;
+    private final MongoTemplate mongoTemplate;
     private static final long ROOM_EXPIRY_MINUTES = 120;
+    private static final int MAX_GROUP_PARTICIPANTS = 500;
+
+    private static final int MAX_CACHED_ROOMS = 10000;
+    private static final long MEMBERS_TTL_MILLIS = 10 * 60 * 1000;
+
+    // roomId -> member ids, loaded on first check so membership tests are a hash lookup.
+    // LRU-bounded with a TTL, so rooms nobody touches any more don't stay in memory
+    private final Map<String, CachedMembers> membersByRoom = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedMembers> eldest) {
+            return size() > MAX_CACHED_ROOMS;
+        }
+    };
+
+    // Bumped on every membership change; a load that raced one isn't cached
+    private final AtomicLong membershipChanges = new AtomicLong();
 
     public Room createRoom(String roomType, String participant1, String participant2) {
         Room room = Room.builder()
@@ -33,10 +66,122 @@ public class RoomService {
         return savedRoom;
     }
 
+    public Room createGroupRoom(String roomType, String ownerId) {
+        Room room = Room.builder()
+                .roomType(roomType)
+                .status("ACTIVE")
+                .group(true)
+                .ownerId(ownerId)
+                .maxParticipants(MAX_GROUP_PARTICIPANTS)
+                .memberCount(1)
+                .createdAt(LocalDateTime.now())
+                .expiresAt(LocalDateTime.now().plusMinutes(ROOM_EXPIRY_MINUTES))
+                .build();
+
+        Room savedRoom = roomRepository.save(room);
+        addMember(savedRoom.getId(), ownerId);
+        log.info("Group room created: {} (type: {}, owner: {})", savedRoom.getId(), roomType, ownerId);
+        return savedRoom;
+    }
+
     public Optional<Room> getRoomById(String roomId) {
         return roomRepository.findById(roomId);
     }
 
+    public void joinRoom(String roomId, String userId) {
+        Room room = roomRepository.findById(roomId)
+                .orElseThrow(() -> new RuntimeException("Room not found: " + roomId));
+
+        if (!room.isGroup()) {
+            throw new RuntimeException("Only group rooms can be joined");
+        }
+        if (!"ACTIVE".equals(room.getStatus())) {
+            throw new RuntimeException("Room is not active");
+        }
+
+        Set<String> members = getMembers(roomId);
+        if (members.contains(userId)) {
+            return;
+        }
+        if (room.getMemberCount() == 0) {
+            // No-op unless the room was created before the counter existed
+            mongoTemplate.updateFirst(
+                    Query.query(Criteria.where("_id").is(roomId).and("memberCount").exists(false)),
+                    new Update().set("memberCount", members.size()),
+                    Room.class);
+        }
+        if (!reserveSlot(roomId, room.getMaxParticipants())) {
+            throw new RuntimeException("Room is full");
+        }
+
+        boolean added;
+        try {
+            added = addMember(roomId, userId);
+        } catch (RuntimeException e) {
+            releaseSlot(roomId);
+            throw e;
+        }
+        if (!added) {
+            // A concurrent join by the same user got there first
+            releaseSlot(roomId);
+            return;
+        }
+        log.info("User {} joined group room {}", userId, roomId);
+    }
+
+    public void leaveRoom(String roomId, String userId) {
+        Room room = roomRepository.findById(roomId)
+                .orElseThrow(() -> new RuntimeException("Room not found: " + roomId));
+
+        // Direct rooms' members are the room's participantIds; there is nothing to leave
+        if (!room.isGroup()) {
+            throw new RuntimeException("Only group rooms can be left");
+        }
+
+        if (roomMemberRepository.deleteByRoomIdAndUserId(roomId, userId) > 0) {
+            releaseSlot(roomId);
+        }
+        membershipChanges.incrementAndGet();
+        synchronized (membersByRoom) {
+            CachedMembers cached = membersByRoom.get(roomId);
+            if (cached != null) {
+                cached.members().remove(userId);
+            }
+        }
+        log.info("User {} left room {}", userId, roomId);
+    }
+
+    /**
+     * Member ids of the room, empty if it doesn't exist. Served from the cache; a miss
+     * reads Mongo without holding the cache lock.
+     */
+    public Set<String> getMembers(String roomId) {
+        long now = System.currentTimeMillis();
+        synchronized (membersByRoom) {
+            CachedMembers cached = membersByRoom.get(roomId);
+            if (cached != null && cached.expiresAt() > now) {
+                return Collections.unmodifiableSet(cached.members());
+            }
+        }
+
+        long changesBefore = membershipChanges.get();
+        Set<String> members = loadMembers(roomId);
+        if (members == null) {
+            return Collections.emptySet();
+        }
+        synchronized (membersByRoom) {
+            CachedMembers cached = membersByRoom.get(roomId);
+            if (cached != null && cached.expiresAt() > now) {
+                // Another caller loaded it meanwhile
+                return Collections.unmodifiableSet(cached.members());
+            }
+            if (membershipChanges.get() == changesBefore) {
+                membersByRoom.put(roomId, new CachedMembers(members, now + MEMBERS_TTL_MILLIS));
+            }
+        }
+        return Collections.unmodifiableSet(members);
+    }
+
     public void closeRoom(String roomId) {
         Optional<Room> optionalRoom = roomRepository.findById(roomId);
         if (optionalRoom.isPresent()) {
@@ -44,6 +189,8 @@ public class RoomService {
             room.setStatus("CLOSED");
             room.setClosedAt(LocalDateTime.now());
             roomRepository.save(room);
+            evictMembers(roomId);
+            signalingStateCache.clear(roomId);
             log.info("Room closed: {}", roomId);
         }
     }
@@ -55,16 +202,79 @@ public class RoomService {
             room.setStatus("EXPIRED");
             room.setClosedAt(LocalDateTime.now());
             roomRepository.save(room);
+            evictMembers(roomId);
+            signalingStateCache.clear(roomId);
             log.info("Room marked expired: {}", roomId);
         }
     }
 
     public boolean validateRoomParticipants(String roomId, String userId) {
+        return userId != null && getMembers(roomId).contains(userId);
+    }
+
+    // Takes a member slot with a conditional increment, so the check and the
+    // update are one atomic step however many joins race for the last slot
+    private boolean reserveSlot(String roomId, int maxParticipants) {
+        return mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(roomId).and("memberCount").lt(maxParticipants)),
+                new Update().inc("memberCount", 1),
+                Room.class).getModifiedCount() > 0;
+    }
+
+    private void releaseSlot(String roomId) {
+        mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(roomId).and("memberCount").gt(0)),
+                new Update().inc("memberCount", -1),
+                Room.class);
+    }
+
+    // False if the user was already a member
+    private boolean addMember(String roomId, String userId) {
+        boolean added = true;
+        try {
+            roomMemberRepository.save(RoomMember.builder()
+                    .roomId(roomId)
+                    .userId(userId)
+                    .joinedAt(LocalDateTime.now())
+                    .build());
+        } catch (DuplicateKeyException e) {
+            log.debug("User {} already a member of room {}", userId, roomId);
+            added = false;
+        }
+        membershipChanges.incrementAndGet();
+        synchronized (membersByRoom) {
+            CachedMembers cached = membersByRoom.get(roomId);
+            if (cached != null) {
+                cached.members().add(userId);
+            }
+        }
+        return added;
+    }
+
+    private void evictMembers(String roomId) {
+        membershipChanges.incrementAndGet();
+        synchronized (membersByRoom) {
+            membersByRoom.remove(roomId);
+        }
+    }
+
+    private Set<String> loadMembers(String roomId) {
         Optional<Room> optionalRoom = roomRepository.findById(roomId);
-        if (optionalRoom.isPresent()) {
-            Room room = optionalRoom.get();
-            return room.getParticipantIds().contains(userId);
+        if (optionalRoom.isEmpty()) {
+            return null;
         }
-        return false;
+
+        Set<String> members = ConcurrentHashMap.newKeySet();
+        Room room = optionalRoom.get();
+        if (room.isGroup()) {
+            List<RoomMember> roomMembers = roomMemberRepository.findByRoomId(roomId);
+            roomMembers.forEach(member -> members.add(member.getUserId()));
+        } else {
+            members.addAll(room.getParticipantIds());
+        }
+        return members;
+    }
+
+    private record CachedMembers(Set<String> members, long expiresAt) {
     }
 }
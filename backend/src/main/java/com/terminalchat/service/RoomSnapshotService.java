@@ -0,0 +1,104 @@
+package com.terminalchat.service;
+
+import com.terminalchat.domain.dto.MessageDTO;
+import com.terminalchat.domain.entity.Room;
+import com.terminalchat.domain.entity.User;
+import com.terminalchat.websocket.PresenceRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Everything a client needs to open a room tab in one response: the room record,
+ * member profiles with presence, recent messages and read receipts. The caller
+ * checks membership once; the independent reads then run in parallel.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RoomSnapshotService {
+
+    private static final int THREADS = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+    private final RoomService roomService;
+    private final AuthService authService;
+    private final MessageService messageService;
+    private final ReceiptService receiptService;
+    private final PresenceRegistry presenceRegistry;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(THREADS, new SnapshotThreadFactory());
+
+    /**
+     * Returns the snapshot, or empty if the room doesn't exist. Membership must be
+     * checked before calling.
+     */
+    public Optional<Map<String, Object>> getSnapshot(String roomId, int messageLimit) {
+        Set<String> members = roomService.getMembers(roomId);
+
+        CompletableFuture<Optional<Room>> room =
+                CompletableFuture.supplyAsync(() -> roomService.getRoomById(roomId), executor);
+        CompletableFuture<List<User>> profiles =
+                CompletableFuture.supplyAsync(() -> authService.getUsersByIds(members), executor);
+        CompletableFuture<List<MessageDTO>> messages =
+                CompletableFuture.supplyAsync(() -> messageService.getRecentMessages(roomId, messageLimit), executor);
+        CompletableFuture<List<Map<String, Object>>> receipts =
+                CompletableFuture.supplyAsync(() -> receiptService.getRoomReceipts(roomId), executor);
+
+        try {
+            CompletableFuture.allOf(room, profiles, messages, receipts).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+
+        if (room.join().isEmpty()) {
+            return Optional.empty();
+        }
+
+        List<Map<String, Object>> participants = new ArrayList<>();
+        for (User user : profiles.join()) {
+            Map<String, Object> participant = new HashMap<>();
+            participant.put("userId", user.getId());
+            participant.put("displayName", user.getDisplayName());
+            participant.put("profilePicture", user.getProfilePicture());
+            participant.put("online", presenceRegistry.isConnected(roomId, user.getId()));
+            participants.add(participant);
+        }
+
+        Map<String, Object> snapshot = new HashMap<>();
+        snapshot.put("room", room.join().get());
+        snapshot.put("participants", participants);
+        snapshot.put("messages", messages.join());
+        snapshot.put("receipts", receipts.join());
+        return Optional.of(snapshot);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private static final class SnapshotThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "room-snapshot-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,468 @@
+package com.terminalchat.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Relays one participant's terminal screen to the rest of the room as binary
+ * frames. The server keeps the current cell grid and the grid as of the last
+ * keyframe; viewers receive either a KEYFRAME (the whole grid) or a DELTA (runs of
+ * cells that differ from that keyframe). Because every delta is relative to the
+ * keyframe, a viewer that drops a delta recovers with the next one, and a late
+ * joiner needs only the last keyframe plus the last delta.
+ *
+ * Wire format, big-endian; a cell is a UTF-16 code unit (u16) plus an attribute
+ * byte (colour/style, opaque to the server):
+ * <pre>
+ * host -> server
+ *   SCREEN   0x10 cols:u16 rows:u16 cell[cols*rows]         full screen, also on resize
+ *   UPDATE   0x11 runs:u16 (offset:u32 length:u16 cell[length])*
+ * server -> viewers
+ *   KEYFRAME 0x01 seq:u32 cols:u16 rows:u16 cell[cols*rows]
+ *   DELTA    0x02 seq:u32 keyframeSeq:u32 runs:u16 (offset:u32 length:u16 cell[length])*
+ *   END      0x03                                           host left
+ * </pre>
+ *
+ * Flushes run on their own thread rather than the shared {@code @Scheduled} pool,
+ * so the 33 ms cadence doesn't queue behind (or hold up) the cleanup jobs. Every
+ * send to a viewer (catch-up for joiners, END, regular frames) happens on that
+ * thread outside the stream lock, so a slow viewer never blocks the host and each
+ * viewer sees frames in order.
+ */
+@Service
+@Slf4j
+public class TerminalMirrorService {
+
+    static final byte HOST_SCREEN = 0x10;
+    static final byte HOST_UPDATE = 0x11;
+    static final byte KEYFRAME = 0x01;
+    static final byte DELTA = 0x02;
+    static final byte END = 0x03;
+
+    private static final int CELL_BYTES = 3;
+    private static final int RUN_HEADER_BYTES = 6;
+    // Unchanged cells shorter than a run header are cheaper to resend than to split on
+    private static final int MERGE_GAP_CELLS = RUN_HEADER_BYTES / CELL_BYTES;
+
+    @Value("${terminal.flush-interval-ms:33}")
+    private long flushIntervalMillis;
+
+    @Value("${terminal.keyframe-interval-ms:2000}")
+    private long keyframeIntervalMillis;
+
+    @Value("${terminal.max-cols:500}")
+    private int maxCols;
+
+    @Value("${terminal.max-rows:200}")
+    private int maxRows;
+
+    @Value("${terminal.viewer-buffer-bytes:524288}")
+    private int viewerBufferBytes;
+
+    private final Map<String, Stream> streams = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "terminal-mirror-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    void startFlusher() {
+        flusher.scheduleAtFixedRate(this::flushSafely, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdownNow();
+    }
+
+    /**
+     * Registers the session as the room's host. Only one host per room.
+     */
+    public boolean attachHost(String roomId, WebSocketSession session) {
+        Stream stream = streams.computeIfAbsent(roomId, id -> new Stream());
+        synchronized (stream) {
+            if (stream.host != null && stream.host.isOpen()) {
+                return false;
+            }
+            stream.host = session;
+            return true;
+        }
+    }
+
+    /**
+     * Adds a viewer; the next flush brings it up to date with the last keyframe and
+     * delta before it gets regular frames.
+     */
+    public void attachViewer(String roomId, WebSocketSession session) {
+        Stream stream = streams.computeIfAbsent(roomId, id -> new Stream());
+        WebSocketSession viewer = new ConcurrentWebSocketSessionDecorator(session, 5000, viewerBufferBytes,
+                ConcurrentWebSocketSessionDecorator.OverflowStrategy.DROP);
+        synchronized (stream) {
+            stream.joining.put(session.getId(), viewer);
+        }
+    }
+
+    public void detach(String roomId, WebSocketSession session) {
+        Stream stream = streams.get(roomId);
+        if (stream == null) {
+            return;
+        }
+        synchronized (stream) {
+            stream.viewers.remove(session.getId());
+            stream.joining.remove(session.getId());
+            if (stream.host == session) {
+                stream.host = null;
+                // Sent by the next flush, after any frame already on its way
+                stream.endPending = true;
+                stream.resetScreen();
+            }
+            if (stream.host == null && stream.viewers.isEmpty() && stream.joining.isEmpty()) {
+                streams.remove(roomId, stream);
+            }
+        }
+    }
+
+    /**
+     * Applies a host frame to the room's grid. Viewers get the result on the next
+     * flush, so a fast-typing host is coalesced to the flush rate.
+     */
+    public void onHostFrame(String roomId, WebSocketSession host, ByteBuffer frame) {
+        Stream stream = streams.get(roomId);
+        if (stream == null || frame.remaining() < 1) {
+            return;
+        }
+        synchronized (stream) {
+            if (stream.host != host) {
+                return;
+            }
+            stream.bytesIn.add(frame.remaining());
+            byte type = frame.get();
+            if (type == HOST_SCREEN) {
+                applyScreen(stream, frame);
+            } else if (type == HOST_UPDATE) {
+                applyUpdate(stream, frame);
+            } else {
+                throw new IllegalArgumentException("Unknown terminal frame type " + type);
+            }
+        }
+    }
+
+    // An exception escaping a fixed-rate task would cancel every later flush
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Terminal mirror flush failed", e);
+        }
+    }
+
+    /**
+     * Encodes each dirty stream and picks up joiners under its lock, then sends
+     * outside it, so a slow viewer never holds up the host's next frame or the other
+     * rooms.
+     */
+    public void flush() {
+        long now = System.currentTimeMillis();
+        streams.values().forEach(stream -> {
+            byte[] frame = null;
+            List<WebSocketSession> ended;
+            List<WebSocketSession> joiners;
+            List<byte[]> catchUp = new ArrayList<>(2);
+            List<WebSocketSession> viewers;
+            synchronized (stream) {
+                ended = stream.endPending ? new ArrayList<>(stream.viewers.values()) : List.of();
+                stream.endPending = false;
+                if (stream.dirty && stream.cols > 0) {
+                    frame = encodeFrame(stream, now);
+                }
+                stream.rollWindow(now);
+
+                // Joiners need the keyframe this flush's frame builds on, unless it is one
+                joiners = new ArrayList<>(stream.joining.values());
+                if (!joiners.isEmpty() && stream.lastKeyframe != null && frame != stream.lastKeyframe) {
+                    catchUp.add(stream.lastKeyframe);
+                    if (frame == null && stream.lastDelta != null) {
+                        catchUp.add(stream.lastDelta);
+                    }
+                }
+                stream.viewers.putAll(stream.joining);
+                stream.joining.clear();
+                viewers = frame != null ? new ArrayList<>(stream.viewers.values()) : List.of();
+            }
+            byte[] end = {END};
+            for (WebSocketSession viewer : ended) {
+                send(stream, viewer, end);
+            }
+            for (WebSocketSession joiner : joiners) {
+                catchUp.forEach(catchUpFrame -> send(stream, joiner, catchUpFrame));
+            }
+            for (WebSocketSession viewer : viewers) {
+                send(stream, viewer, frame);
+            }
+        });
+    }
+
+    public Map<String, Object> getStats(String roomId) {
+        Stream stream = streams.get(roomId);
+        if (stream == null) {
+            return null;
+        }
+        synchronized (stream) {
+            return stream.stats();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        streams.forEach((roomId, stream) -> {
+            synchronized (stream) {
+                stats.put(roomId, stream.stats());
+            }
+        });
+        return stats;
+    }
+
+    private void applyScreen(Stream stream, ByteBuffer frame) {
+        int cols = Short.toUnsignedInt(frame.getShort());
+        int rows = Short.toUnsignedInt(frame.getShort());
+        if (cols == 0 || rows == 0 || cols > maxCols || rows > maxRows
+                || frame.remaining() != cols * rows * CELL_BYTES) {
+            throw new IllegalArgumentException("Bad terminal screen " + cols + "x" + rows);
+        }
+        if (cols != stream.cols || rows != stream.rows) {
+            stream.resize(cols, rows);
+        }
+        for (int i = 0; i < cols * rows; i++) {
+            stream.chars[i] = frame.getChar();
+            stream.attrs[i] = frame.get();
+        }
+        stream.forceKeyframe = true;
+        stream.dirty = true;
+    }
+
+    private void applyUpdate(Stream stream, ByteBuffer frame) {
+        if (stream.cols == 0) {
+            // No screen yet; wait for the host's SCREEN frame
+            return;
+        }
+        int runs = Short.toUnsignedInt(frame.getShort());
+        int cells = stream.chars.length;
+        for (int r = 0; r < runs; r++) {
+            long offset = Integer.toUnsignedLong(frame.getInt());
+            int length = Short.toUnsignedInt(frame.getShort());
+            if (offset + length > cells) {
+                throw new IllegalArgumentException("Terminal update outside the screen");
+            }
+            for (int i = (int) offset; i < offset + length; i++) {
+                stream.chars[i] = frame.getChar();
+                stream.attrs[i] = frame.get();
+            }
+        }
+        stream.dirty = true;
+    }
+
+    private byte[] encodeFrame(Stream stream, long now) {
+        byte[] frame = null;
+        if (!stream.forceKeyframe && now - stream.lastKeyframeAt < keyframeIntervalMillis) {
+            frame = encodeDelta(stream);
+        }
+        if (frame == null) {
+            frame = encodeKeyframe(stream, now);
+            stream.keyframes.increment();
+        } else {
+            stream.deltas.increment();
+            stream.lastDelta = frame;
+        }
+        stream.dirty = false;
+        stream.framesOut.increment();
+        stream.windowFrames++;
+        return frame;
+    }
+
+    private byte[] encodeKeyframe(Stream stream, long now) {
+        int cells = stream.chars.length;
+        ByteBuffer out = ByteBuffer.allocate(1 + 4 + 4 + cells * CELL_BYTES);
+        stream.seq++;
+        out.put(KEYFRAME).putInt(stream.seq).putShort((short) stream.cols).putShort((short) stream.rows);
+        for (int i = 0; i < cells; i++) {
+            out.putChar(stream.chars[i]).put(stream.attrs[i]);
+        }
+
+        System.arraycopy(stream.chars, 0, stream.keyChars, 0, cells);
+        System.arraycopy(stream.attrs, 0, stream.keyAttrs, 0, cells);
+        stream.keyframeSeq = stream.seq;
+        stream.lastKeyframeAt = now;
+        stream.forceKeyframe = false;
+        stream.lastKeyframe = out.array();
+        stream.lastDelta = null;
+        return stream.lastKeyframe;
+    }
+
+    /**
+     * Runs of cells that differ from the last keyframe, or null once that would take
+     * more than half a keyframe; the caller then sends a fresh keyframe instead, so
+     * deltas stay small as the screen drifts away from its keyframe.
+     */
+    private byte[] encodeDelta(Stream stream) {
+        int cells = stream.chars.length;
+        int keyframeBytes = cells * CELL_BYTES;
+        ByteBuffer out = ByteBuffer.allocate(1 + 4 + 4 + 2 + keyframeBytes / 2);
+        out.put(DELTA).putInt(stream.seq + 1).putInt(stream.keyframeSeq);
+        int runsPosition = out.position();
+        out.putShort((short) 0);
+
+        int runs = 0;
+        int i = 0;
+        while (i < cells) {
+            if (!differs(stream, i)) {
+                i++;
+                continue;
+            }
+            int start = i;
+            int end = i + 1;
+            int gap = 0;
+            for (int j = i + 1; j < cells && gap <= MERGE_GAP_CELLS; j++) {
+                if (differs(stream, j)) {
+                    end = j + 1;
+                    gap = 0;
+                } else {
+                    gap++;
+                }
+            }
+            int length = Math.min(end - start, 0xFFFF);
+            if (runs == 0xFFFF || out.remaining() < RUN_HEADER_BYTES + length * CELL_BYTES) {
+                return null;
+            }
+            out.putInt(start).putShort((short) length);
+            for (int c = start; c < start + length; c++) {
+                out.putChar(stream.chars[c]).put(stream.attrs[c]);
+            }
+            runs++;
+            i = start + length;
+        }
+
+        stream.seq++;
+        out.putShort(runsPosition, (short) runs);
+        byte[] frame = new byte[out.position()];
+        out.flip();
+        out.get(frame);
+        return frame;
+    }
+
+    private static boolean differs(Stream stream, int i) {
+        return stream.chars[i] != stream.keyChars[i] || stream.attrs[i] != stream.keyAttrs[i];
+    }
+
+    private void send(Stream stream, WebSocketSession viewer, byte[] frame) {
+        if (!viewer.isOpen()) {
+            return;
+        }
+        try {
+            viewer.sendMessage(new BinaryMessage(frame));
+            stream.bytesOut.add(frame.length);
+        } catch (IOException | RuntimeException e) {
+            log.debug("Dropping terminal frame for viewer {}: {}", viewer.getId(), e.getMessage());
+        }
+    }
+
+    private static final class Stream {
+        private WebSocketSession host;
+        private final Map<String, WebSocketSession> viewers = new ConcurrentHashMap<>();
+        // Attached since the last flush, which sends their catch-up frames
+        private final Map<String, WebSocketSession> joining = new HashMap<>();
+        private boolean endPending;
+
+        private int cols;
+        private int rows;
+        private char[] chars = new char[0];
+        private byte[] attrs = new byte[0];
+        private char[] keyChars = new char[0];
+        private byte[] keyAttrs = new byte[0];
+
+        private int seq;
+        private int keyframeSeq;
+        private long lastKeyframeAt;
+        private boolean dirty;
+        private boolean forceKeyframe;
+        private byte[] lastKeyframe;
+        private byte[] lastDelta;
+
+        private final LongAdder bytesIn = new LongAdder();
+        private final LongAdder bytesOut = new LongAdder();
+        private final LongAdder framesOut = new LongAdder();
+        private final LongAdder keyframes = new LongAdder();
+        private final LongAdder deltas = new LongAdder();
+        private long windowStart = System.currentTimeMillis();
+        private int windowFrames;
+        private long windowStartBytesOut;
+        private double framesPerSecond;
+        private double bytesOutPerSecond;
+
+        void resize(int newCols, int newRows) {
+            cols = newCols;
+            rows = newRows;
+            int cells = newCols * newRows;
+            chars = new char[cells];
+            attrs = new byte[cells];
+            keyChars = new char[cells];
+            keyAttrs = new byte[cells];
+        }
+
+        void resetScreen() {
+            resize(0, 0);
+            lastKeyframe = null;
+            lastDelta = null;
+            dirty = false;
+        }
+
+        void rollWindow(long now) {
+            long elapsed = now - windowStart;
+            if (elapsed < 1000) {
+                return;
+            }
+            long totalBytesOut = bytesOut.sum();
+            framesPerSecond = windowFrames * 1000.0 / elapsed;
+            bytesOutPerSecond = (totalBytesOut - windowStartBytesOut) * 1000.0 / elapsed;
+            windowStartBytesOut = totalBytesOut;
+            windowFrames = 0;
+            windowStart = now;
+        }
+
+        Map<String, Object> stats() {
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("hosting", host != null);
+            stats.put("viewers", viewers.size() + joining.size());
+            stats.put("cols", cols);
+            stats.put("rows", rows);
+            stats.put("keyframeBytes", cols * rows * CELL_BYTES + 9);
+            stats.put("bytesIn", bytesIn.sum());
+            stats.put("bytesOut", bytesOut.sum());
+            stats.put("framesOut", framesOut.sum());
+            stats.put("keyframes", keyframes.sum());
+            stats.put("deltas", deltas.sum());
+            stats.put("framesPerSecond", framesPerSecond);
+            stats.put("bytesOutPerSecond", bytesOutPerSecond);
+            return stats;
+        }
+    }
+}
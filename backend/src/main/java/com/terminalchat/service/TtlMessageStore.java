@@ -0,0 +1,73 @@
+package com.terminalchat.service;
+
+import com.terminalchat.domain.entity.Message;
+import com.terminalchat.domain.repository.MessageRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * All messages in the single {@code messages} collection. Retention is the
+ * {@code message_created_ttl} index on the creation time, so Mongo's TTL monitor
+ * deletes expired messages one document at a time.
+ */
+@Component
+@ConditionalOnProperty(name = "message.storage.mode", havingValue = "ttl", matchIfMissing = true)
+@RequiredArgsConstructor
+public class TtlMessageStore implements MessageStore {
+
+    private final MessageRepository messageRepository;
+
+    @Override
+    public Message insert(Message message) {
+        return messageRepository.insert(message);
+    }
+
+    @Override
+    public List<Message> findByRoom(String roomId) {
+        return messageRepository.findByRoomIdOrderByCreatedAtAsc(roomId);
+    }
+
+    @Override
+    public List<Message> findByRoomInIdRange(String roomId, String fromId, String toId) {
+        return messageRepository.findByRoomIdInIdRange(roomId, fromId, toId, Sort.by(Sort.Direction.ASC, "id"));
+    }
+
+    @Override
+    public List<Message> findRecentByRoom(String roomId, int limit) {
+        return messageRepository.findByRoomIdOrderByIdDesc(roomId, PageRequest.of(0, limit));
+    }
+
+    @Override
+    public List<Message> findByRoomAndIds(String roomId, Collection<String> ids) {
+        return messageRepository.findAllById(ids).stream()
+                .filter(message -> roomId.equals(message.getRoomId()))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Optional<Message> findByRoomAndClientMessageId(String roomId, String clientMessageId) {
+        return messageRepository.findByRoomIdAndClientMessageId(roomId, clientMessageId);
+    }
+
+    @Override
+    public void evictExpired() {
+        // The TTL index does this
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("mode", "ttl");
+        return stats;
+    }
+}
@@ -0,0 +1,84 @@
+package com.terminalchat.service;
+
+import com.terminalchat.domain.entity.User;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded LRU near cache of user documents with a TTL. AuthService writes through it
+ * with the document each login and profile update returns, so readers on this node
+ * see their own changes at once and other nodes' within the TTL. {@link User} is mutable, so entries are copied on the way in and
+ * out: a caller changing its copy can't change what other readers see.
+ */
+@Component
+public class UserProfileCache {
+
+    private final int maxSize;
+    private final long ttlMillis;
+
+    private final Map<String, CachedUser> byId;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public UserProfileCache(@Value("${user-cache.max-size:10000}") int maxSize,
+                            @Value("${user-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.byId = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedUser> eldest) {
+                if (size() > UserProfileCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public synchronized Optional<User> get(String userId) {
+        CachedUser cached = byId.get(userId);
+        if (cached == null || cached.expiresAt < System.currentTimeMillis()) {
+            if (cached != null) {
+                byId.remove(userId);
+            }
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(cached.user.toBuilder().build());
+    }
+
+    public synchronized void put(User user) {
+        if (user.getId() == null) {
+            return;
+        }
+        byId.put(user.getId(), new CachedUser(user.toBuilder().build(), System.currentTimeMillis() + ttlMillis));
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("size", byId.size());
+        stats.put("maxSize", maxSize);
+        stats.put("ttlSeconds", ttlMillis / 1000);
+        stats.put("hits", hitCount);
+        stats.put("misses", misses.sum());
+        stats.put("evictions", evictions.sum());
+        stats.put("hitRatio", total == 0 ? 0 : (double) hitCount / total);
+        return stats;
+    }
+
+    private record CachedUser(User user, long expiresAt) {
+    }
+}
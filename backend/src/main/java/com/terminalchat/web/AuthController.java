@@ -1,18 +1,20 @@
 package com.terminalchat.web;
 
 import com.terminalchat.domain.dto.AuthResponse;
+import com.terminalchat.security.JwtTokenProvider;
 import com.terminalchat.service.AuthService;
+import com.terminalchat.service.GoogleOAuthClient;
+import io.jsonwebtoken.JwtException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.http.*;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 // import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RestController
 @RequestMapping("/auth")
@@ -22,17 +24,9 @@ import java.util.Map;
 public class AuthController {
 
     private final AuthService authService;
-    private final RestTemplate restTemplate = new RestTemplate();
-    private final ObjectMapper objectMapper = new ObjectMapper();
-
-    @Value("${google.client.id}")
-    private String googleClientId;
-
-    @Value("${google.client.secret}")
-    private String googleClientSecret;
-
-    @Value("${google.redirect.uri.desktop}")
-    private String desktopRedirectUri;
+    // Desktop sign-in only; the client and its thread pool are created on first use
+    private final ObjectProvider<GoogleOAuthClient> googleOAuthClient;
+    private final JwtTokenProvider jwtTokenProvider;
 
     // ============================================================================
     // WEB OAUTH (YOUR EXISTING CODE - DON'T TOUCH)
@@ -56,6 +50,53 @@ public class AuthController {
         }
     }
 
+    // ============================================================================
+    // TOKEN REFRESH AND REVOCATION
+    // ============================================================================
+
+    /**
+     * Body: {"refreshToken": "..."}. Returns a new access and refresh token pair;
+     * the refresh token sent is revoked.
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<AuthResponse> refresh(@RequestBody Map<String, String> request) {
+        try {
+            return ResponseEntity.ok(authService.refresh(request.get("refreshToken")));
+        } catch (JwtException | IllegalArgumentException e) {
+            log.debug("Refresh rejected: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+    }
+
+    /**
+     * Revokes the access token in the Authorization header and the refresh token
+     * in the body ({"refreshToken": "..."}), whichever are present.
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(
+            @RequestHeader(value = "Authorization", required = false) String authorization,
+            @RequestBody(required = false) Map<String, String> request) {
+        authService.logout(bearerToken(authorization), request != null ? request.get("refreshToken") : null);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Signs the caller out everywhere: every token issued to them so far is revoked.
+     */
+    @PostMapping("/revoke-all")
+    public ResponseEntity<Void> revokeAll(@RequestHeader(value = "Authorization", required = false) String authorization) {
+        String token = bearerToken(authorization);
+        if (token == null || !jwtTokenProvider.validateToken(token)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        authService.revokeAllTokens(jwtTokenProvider.getUserIdFromToken(token));
+        return ResponseEntity.noContent().build();
+    }
+
+    private static String bearerToken(String authorization) {
+        return authorization != null && authorization.startsWith("Bearer ") ? authorization.substring(7) : null;
+    }
+
     // ============================================================================
     // DESKTOP OAUTH - FIXED VERSION
     // ============================================================================
@@ -66,111 +107,61 @@ public class AuthController {
      * 
      * CRITICAL: Returns HTML with JavaScript to trigger deep link.
      * HTTP Location redirects DON'T work for custom protocols (clype://)!
+     *
+     * The code exchange runs async, so the servlet thread is released while Google answers.
      */
     @GetMapping("/google/desktop")
-    public ResponseEntity<String> handleDesktopOAuthCallback(
+    public CompletableFuture<ResponseEntity<String>> handleDesktopOAuthCallback(
             @RequestParam(required = false) String code,
             @RequestParam(required = false) String error,
             @RequestParam(required = false) String state) {
 
         if (error != null) {
             log.error("OAuth error from Google: {}", error);
-            return ResponseEntity.ok()
+            return CompletableFuture.completedFuture(ResponseEntity.ok()
                     .contentType(MediaType.TEXT_HTML)
-                    .body(generateErrorHtml("OAuth authorization failed: " + error));
+                    .body(generateErrorHtml("OAuth authorization failed: " + error)));
         }
 
         if (code == null || code.isBlank()) {
             log.error("OAuth callback: missing authorization code");
-            return ResponseEntity.ok()
+            return CompletableFuture.completedFuture(ResponseEntity.ok()
                     .contentType(MediaType.TEXT_HTML)
-                    .body(generateErrorHtml("Missing authorization code"));
+                    .body(generateErrorHtml("Missing authorization code")));
         }
 
-        try {
-            log.info("Desktop OAuth callback received, exchanging code for token...");
-
-            // Step 1: Exchange authorization code for access token
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
-
-            String formData = "code=" + code +
-                    "&client_id=" + googleClientId +
-                    "&client_secret=" + googleClientSecret +
-                    "&redirect_uri=" + desktopRedirectUri +
-                    "&grant_type=authorization_code";
-
-            HttpEntity<String> entity = new HttpEntity<>(formData, headers);
-
-            log.debug("Requesting access token from Google...");
-            ResponseEntity<String> tokenResponse = restTemplate.exchange(
-                    "https://oauth2.googleapis.com/token",
-                    HttpMethod.POST,
-                    entity,
-                    String.class);
-
-            if (!tokenResponse.getStatusCode().is2xxSuccessful()) {
-                log.error("Failed to exchange code for token: {}", tokenResponse.getStatusCode());
-                return ResponseEntity.ok()
-                        .contentType(MediaType.TEXT_HTML)
-                        .body(generateErrorHtml("Failed to exchange authorization code"));
-            }
-
-            JsonNode tokenJson = objectMapper.readTree(tokenResponse.getBody());
-            String accessToken = tokenJson.get("access_token").asText();
-
-            log.info("Successfully obtained access token");
-
-            // Step 2: Get user info from Google
-            HttpHeaders userHeaders = new HttpHeaders();
-            userHeaders.setBearerAuth(accessToken);
-            HttpEntity<Void> userEntity = new HttpEntity<>(userHeaders);
-
-            log.debug("Fetching user info from Google...");
-            ResponseEntity<String> userResponse = restTemplate.exchange(
-                    "https://www.googleapis.com/oauth2/v2/userinfo",
-                    HttpMethod.GET,
-                    userEntity,
-                    String.class);
-
-            if (!userResponse.getStatusCode().is2xxSuccessful()) {
-                log.error("Failed to get user info: {}", userResponse.getStatusCode());
-                return ResponseEntity.ok()
-                        .contentType(MediaType.TEXT_HTML)
-                        .body(generateErrorHtml("Failed to retrieve user information"));
-            }
-
-            JsonNode userJson = objectMapper.readTree(userResponse.getBody());
-
-            // Extract user data
-            String googleId = userJson.get("id").asText();
-            String email = userJson.get("email").asText();
-            String name = userJson.has("name") ? userJson.get("name").asText() : email;
-            String avatar = userJson.has("picture") ? userJson.get("picture").asText() : "";
-
-            log.info("Desktop OAuth successful for user: {}", email);
-
-            // Step 3: Create/login user using your existing service
-            AuthResponse authResponse = authService.handleGoogleLogin(googleId, email, name, avatar);
-
-            // Step 4: Return HTML that triggers deep link via JavaScript
-            // CRITICAL: Must use HTML + JS, not HTTP Location header!
-            return ResponseEntity.ok()
-                    .contentType(MediaType.TEXT_HTML)
-                    .body(generateSuccessHtml(
-                            authResponse.getUserId(),
-                            email,
-                            name,
-                            avatar,
-                            authResponse.getToken(),
-                            authResponse.getDisplayName()));
-
-        } catch (Exception e) {
-            log.error("Desktop OAuth callback failed", e);
-            return ResponseEntity.ok()
-                    .contentType(MediaType.TEXT_HTML)
-                    .body(generateErrorHtml("OAuth processing failed: " + e.getMessage()));
-        }
+        log.info("Desktop OAuth callback received, exchanging code for token...");
+
+        GoogleOAuthClient oauthClient = googleOAuthClient.getObject();
+        return oauthClient.exchangeCode(code)
+                .thenApplyAsync(identity -> {
+                    log.info("Desktop OAuth successful for user: {}", identity.email());
+
+                    // Create/login user using the existing service
+                    AuthResponse authResponse = authService.handleGoogleLogin(
+                            identity.googleId(), identity.email(), identity.name(), identity.picture());
+
+                    // Return HTML that triggers deep link via JavaScript
+                    // CRITICAL: Must use HTML + JS, not HTTP Location header!
+                    return ResponseEntity.ok()
+                            .contentType(MediaType.TEXT_HTML)
+                            .body(generateSuccessHtml(
+                                    authResponse.getUserId(),
+                                    identity.email(),
+                                    identity.name(),
+                                    identity.picture(),
+                                    authResponse.getToken(),
+                                    authResponse.getRefreshToken(),
+                                    authResponse.getExpiresIn(),
+                                    authResponse.getDisplayName()));
+                }, oauthClient.executor())
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    log.error("Desktop OAuth callback failed", cause);
+                    return ResponseEntity.ok()
+                            .contentType(MediaType.TEXT_HTML)
+                            .body(generateErrorHtml("OAuth processing failed: " + cause.getMessage()));
+                });
     }
 
     // ============================================================================
@@ -178,13 +169,14 @@ public class AuthController {
     // ============================================================================
 
     private String generateSuccessHtml(String userId, String email, String name, String avatar, String token,
-            String displayName) {
+            String refreshToken, long expiresIn, String displayName) {
         // Escape special characters for JSON
         String safeUserId = escapeJson(userId);
         String safeEmail = escapeJson(email);
         String safeName = escapeJson(name);
         String safeAvatar = escapeJson(avatar);
         String safeToken = escapeJson(token);
+        String safeRefreshToken = escapeJson(refreshToken);
         String safeDisplayName = escapeJson(displayName);
 
         return "<!DOCTYPE html>" +
@@ -299,6 +291,8 @@ public class AuthController {
                 "      name: \"" + safeName + "\"," +
                 "      avatar: \"" + safeAvatar + "\"," +
                 "      token: \"" + safeToken + "\"," +
+                "      refreshToken: \"" + safeRefreshToken + "\"," +
+                "      expiresIn: " + expiresIn + "," +
                 "      displayName: \"" + safeDisplayName + "\"" +
                 "    };" +
                 "" +
@@ -476,7 +470,7 @@ public class AuthController {
 
     private String extractUserIdFromToken(String token) {
         if (token != null && token.startsWith("Bearer ")) {
-            return token.substring(7);
+            return jwtTokenProvider.getUserIdFromToken(token.substring(7));
         }
         return null;
     }
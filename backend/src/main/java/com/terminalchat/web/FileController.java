@@ -0,0 +1,183 @@
+package com.terminalchat.web;
+
+import com.terminalchat.domain.entity.SharedFile;
+import com.terminalchat.domain.entity.User;
+import com.terminalchat.security.JwtTokenProvider;
+import com.terminalchat.service.AuthService;
+import com.terminalchat.service.FileTransferService;
+import com.terminalchat.service.RoomService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/rooms/{roomId}/files")
+@RequiredArgsConstructor
+@Slf4j
+@CrossOrigin(origins = "*")
+public class FileController {
+
+    // Tomcat's sendfile request attributes (org.apache.catalina.Globals)
+    static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final FileTransferService fileTransferService;
+    private final RoomService roomService;
+    private final AuthService authService;
+    private final JwtTokenProvider jwtTokenProvider;
+
+    /**
+     * Raw request body upload (not multipart) so the body can be streamed to disk
+     * as it arrives, including chunked transfer-encoding.
+     */
+    @PostMapping
+    public ResponseEntity<?> uploadFile(
+            @RequestHeader("Authorization") String token,
+            @PathVariable String roomId,
+            @RequestParam String filename,
+            HttpServletRequest request) {
+        try {
+            String userId = extractUserIdFromToken(token);
+            if (userId == null) {
+                return ResponseEntity.badRequest().body("Invalid token");
+            }
+
+            if (!roomService.validateRoomParticipants(roomId, userId)) {
+                return ResponseEntity.status(403).body("Not authorized");
+            }
+
+            // The name shown in the room is the uploader's own, not anything the client claims
+            String senderUsername = authService.getUserById(userId)
+                    .map(User::getDisplayName)
+                    .orElse("Unknown");
+
+            String contentType = request.getContentType() != null
+                    ? request.getContentType()
+                    : MediaType.APPLICATION_OCTET_STREAM_VALUE;
+
+            SharedFile file = fileTransferService.upload(
+                    roomId, userId, senderUsername, filename, contentType, request.getInputStream());
+            return ResponseEntity.ok(file);
+        } catch (Exception e) {
+            log.error("Failed to upload file", e);
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Sends the file (or the single byte range asked for) with Tomcat's sendfile, so
+     * the bytes go from the page cache to the socket without passing through the JVM.
+     * Without sendfile support it falls back to FileChannel.transferTo.
+     */
+    @GetMapping("/{fileId}")
+    public ResponseEntity<?> downloadFile(
+            @RequestHeader("Authorization") String token,
+            @PathVariable String roomId,
+            @PathVariable String fileId,
+            HttpServletRequest request,
+            HttpServletResponse response) {
+        try {
+            String userId = extractUserIdFromToken(token);
+            if (userId == null) {
+                return ResponseEntity.badRequest().body("Invalid token");
+            }
+
+            if (!roomService.validateRoomParticipants(roomId, userId)) {
+                return ResponseEntity.status(403).body("Not authorized");
+            }
+
+            Optional<SharedFile> file = fileTransferService.getFile(roomId, fileId);
+            if (file.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+
+            Path path = fileTransferService.pathOf(file.get());
+            long size = Files.size(path);
+            long start = 0;
+            long end = size - 1;
+            // Multi-range requests are rare for downloads; they get the whole file
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(request.getHeader(HttpHeaders.RANGE));
+                if (ranges.size() == 1) {
+                    start = ranges.get(0).getRangeStart(size);
+                    end = ranges.get(0).getRangeEnd(size);
+                    if (start >= size || start > end) {
+                        throw new IllegalArgumentException("Range starts past the end of the file");
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                        .header(HttpHeaders.CONTENT_RANGE, "bytes */" + size)
+                        .build();
+            }
+            if (ranges.size() == 1) {
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+            }
+
+            response.setContentType(file.get().getContentType());
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                    .filename(file.get().getFilename(), StandardCharsets.UTF_8)
+                    .build()
+                    .toString());
+            response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+            response.setContentLengthLong(end - start + 1);
+            sendFile(path, start, end + 1, request, response);
+            // Written directly; a null ResponseEntity tells Spring the response is handled
+            return null;
+        } catch (Exception e) {
+            log.error("Failed to download file", e);
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    private static void sendFile(Path path, long start, long end, HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            // Tomcat sends the region once this handler returns
+            request.setAttribute(SENDFILE_FILENAME, path.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end);
+            return;
+        }
+        try (FileChannel in = FileChannel.open(path);
+             WritableByteChannel out = Channels.newChannel(response.getOutputStream())) {
+            long position = start;
+            while (position < end) {
+                long sent = in.transferTo(position, end - position, out);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+            }
+        }
+    }
+
+    private String extractUserIdFromToken(String token) {
+        if (token != null && token.startsWith("Bearer ")) {
+            return jwtTokenProvider.getUserIdFromToken(token.substring(7));
+        }
+        return null;
+    }
+}
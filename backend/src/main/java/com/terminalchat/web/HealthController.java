@@ -1,5 +1,38 @@
 package com.terminalchat.web;
 
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.LivenessState;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * Probe endpoints for the orchestrator. Readiness stays OUT_OF_SERVICE until the
+ * warm-up in {@link com.terminalchat.config.WarmupRunner} has finished.
+ */
+@RestController
+@RequestMapping("/health")
+@RequiredArgsConstructor
 public class HealthController {
-    
+
+    private final ApplicationAvailability applicationAvailability;
+
+    @GetMapping("/readiness")
+    public ResponseEntity<?> readiness() {
+        boolean ready = applicationAvailability.getReadinessState() == ReadinessState.ACCEPTING_TRAFFIC;
+        return ResponseEntity.status(ready ? 200 : 503)
+                .body(Map.of("status", ready ? "UP" : "OUT_OF_SERVICE"));
+    }
+
+    @GetMapping("/liveness")
+    public ResponseEntity<?> liveness() {
+        boolean live = applicationAvailability.getLivenessState() == LivenessState.CORRECT;
+        return ResponseEntity.status(live ? 200 : 503)
+                .body(Map.of("status", live ? "UP" : "DOWN"));
+    }
 }
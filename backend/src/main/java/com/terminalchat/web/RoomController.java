@@ -3,15 +3,25 @@ package com.terminalchat.web;
 import com.terminalchat.domain.dto.SessionCodeResponse;
 import com.terminalchat.domain.entity.Room;
 import com.terminalchat.domain.entity.Session;
+import com.terminalchat.domain.entity.User;
 import com.terminalchat.security.JwtTokenProvider;  // 🔥 ADD THIS
+import com.terminalchat.service.AuthService;
+import com.terminalchat.service.IceServerService;
+import com.terminalchat.service.MatchmakingService;
+import com.terminalchat.service.MessageService;
+import com.terminalchat.service.ReceiptService;
 import com.terminalchat.service.RoomService;
+import com.terminalchat.service.RoomSnapshotService;
 import com.terminalchat.service.SessionService;
+import com.terminalchat.service.TerminalMirrorService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -24,6 +34,13 @@ public class RoomController {
 
     private final RoomService roomService;
     private final SessionService sessionService;
+    private final MatchmakingService matchmakingService;
+    private final IceServerService iceServerService;
+    private final MessageService messageService;
+    private final AuthService authService;
+    private final ReceiptService receiptService;
+    private final RoomSnapshotService roomSnapshotService;
+    private final TerminalMirrorService terminalMirrorService;
     private final JwtTokenProvider jwtTokenProvider;  
 
     @PostMapping("/my-address/{sessionType}")
@@ -103,6 +120,61 @@ public class RoomController {
         }
     }
 
+    @PostMapping("/random/{sessionType}")
+    public ResponseEntity<?> connectWithRandomMate(
+            @RequestHeader("Authorization") String token,
+            @PathVariable String sessionType) {
+
+        try {
+            String userId = extractUserIdFromToken(token);
+            if (userId == null) {
+                return ResponseEntity.badRequest().body("Invalid token");
+            }
+
+            return ResponseEntity.ok(matchmakingService.enqueue(userId, sessionType.toUpperCase()));
+        } catch (Exception e) {
+            log.error("Failed to enter matchmaking", e);
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @DeleteMapping("/random")
+    public ResponseEntity<?> cancelRandomMate(@RequestHeader("Authorization") String token) {
+        try {
+            String userId = extractUserIdFromToken(token);
+            if (userId == null) {
+                return ResponseEntity.badRequest().body("Invalid token");
+            }
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("cancelled", matchmakingService.cancel(userId));
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            log.error("Failed to cancel matchmaking", e);
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/random/stats")
+    public ResponseEntity<?> getMatchmakingStats() {
+        return ResponseEntity.ok(matchmakingService.getStats());
+    }
+
+    @GetMapping("/ice-servers")
+    public ResponseEntity<?> getIceServers(@RequestHeader("Authorization") String token) {
+        try {
+            String userId = extractUserIdFromToken(token);
+            if (userId == null) {
+                return ResponseEntity.badRequest().body("Invalid token");
+            }
+
+            return ResponseEntity.ok(iceServerService.getIceConfig(userId));
+        } catch (Exception e) {
+            log.error("Failed to get ICE servers", e);
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/{roomId}")
     public ResponseEntity<?> getRoom(
             @RequestHeader("Authorization") String token,
@@ -129,6 +201,205 @@ public class RoomController {
         }
     }
 
+    @PostMapping("/group/{sessionType}")
+    public ResponseEntity<?> createGroupRoom(
+            @RequestHeader("Authorization") String token,
+            @PathVariable String sessionType) {
+        try {
+            String userId = extractUserIdFromToken(token);
+            if (userId == null) {
+                return ResponseEntity.badRequest().body("Invalid token");
+            }
+
+            Room room = roomService.createGroupRoom(sessionType.toUpperCase(), userId);
+            return ResponseEntity.ok(room);
+        } catch (Exception e) {
+            log.error("Failed to create group room", e);
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PostMapping("/{roomId}/join")
+    public ResponseEntity<?> joinRoom(
+            @RequestHeader("Authorization") String token,
+            @PathVariable String roomId) {
+        try {
+            String userId = extractUserIdFromToken(token);
+            if (userId == null) {
+                return ResponseEntity.badRequest().body("Invalid token");
+            }
+
+            roomService.joinRoom(roomId, userId);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("roomId", roomId);
+            response.put("memberCount", roomService.getMembers(roomId).size());
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            log.error("Failed to join room", e);
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/{roomId}/leave")
+    public ResponseEntity<?> leaveRoom(
+            @RequestHeader("Authorization") String token,
+            @PathVariable String roomId) {
+        try {
+            String userId = extractUserIdFromToken(token);
+            if (userId == null) {
+                return ResponseEntity.badRequest().body("Invalid token");
+            }
+
+            roomService.leaveRoom(roomId, userId);
+            return ResponseEntity.ok().build();
+        } catch (Exception e) {
+            log.error("Failed to leave room", e);
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/{roomId}/members")
+    public ResponseEntity<?> getRoomMembers(
+            @RequestHeader("Authorization") String token,
+            @PathVariable String roomId) {
+        try {
+            String userId = extractUserIdFromToken(token);
+            if (userId == null) {
+                return ResponseEntity.badRequest().body("Invalid token");
+            }
+
+            if (!roomService.validateRoomParticipants(roomId, userId)) {
+                return ResponseEntity.status(403).body("Not authorized");
+            }
+
+            return ResponseEntity.ok(roomService.getMembers(roomId));
+        } catch (Exception e) {
+            log.error("Failed to get room members", e);
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/{roomId}/participants")
+    public ResponseEntity<?> getRoomParticipants(
+            @RequestHeader("Authorization") String token,
+            @PathVariable String roomId) {
+        try {
+            String userId = extractUserIdFromToken(token);
+            if (userId == null) {
+                return ResponseEntity.badRequest().body("Invalid token");
+            }
+
+            if (!roomService.validateRoomParticipants(roomId, userId)) {
+                return ResponseEntity.status(403).body("Not authorized");
+            }
+
+            List<Map<String, Object>> participants = new ArrayList<>();
+            for (User user : authService.getUsersByIds(roomService.getMembers(roomId))) {
+                Map<String, Object> profile = new HashMap<>();
+                profile.put("userId", user.getId());
+                profile.put("displayName", user.getDisplayName());
+                profile.put("profilePicture", user.getProfilePicture());
+                participants.add(profile);
+            }
+            return ResponseEntity.ok(participants);
+        } catch (Exception e) {
+            log.error("Failed to get room participants", e);
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/{roomId}/snapshot")
+    public ResponseEntity<?> getRoomSnapshot(
+            @RequestHeader("Authorization") String token,
+            @PathVariable String roomId,
+            @RequestParam(defaultValue = "50") int messages) {
+        try {
+            String userId = extractUserIdFromToken(token);
+            if (userId == null) {
+                return ResponseEntity.badRequest().body("Invalid token");
+            }
+
+            if (!roomService.validateRoomParticipants(roomId, userId)) {
+                return ResponseEntity.status(403).body("Not authorized");
+            }
+
+            int limit = Math.max(1, Math.min(messages, 200));
+            return roomSnapshotService.getSnapshot(roomId, limit)
+                    .<ResponseEntity<?>>map(ResponseEntity::ok)
+                    .orElseGet(() -> ResponseEntity.notFound().build());
+        } catch (Exception e) {
+            log.error("Failed to get room snapshot", e);
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/{roomId}/terminal/stats")
+    public ResponseEntity<?> getTerminalStats(
+            @RequestHeader("Authorization") String token,
+            @PathVariable String roomId) {
+        try {
+            String userId = extractUserIdFromToken(token);
+            if (userId == null) {
+                return ResponseEntity.badRequest().body("Invalid token");
+            }
+
+            if (!roomService.validateRoomParticipants(roomId, userId)) {
+                return ResponseEntity.status(403).body("Not authorized");
+            }
+
+            Map<String, Object> stats = terminalMirrorService.getStats(roomId);
+            return stats == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(stats);
+        } catch (Exception e) {
+            log.error("Failed to get terminal stats", e);
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/{roomId}/receipts")
+    public ResponseEntity<?> getRoomReceipts(
+            @RequestHeader("Authorization") String token,
+            @PathVariable String roomId) {
+        try {
+            String userId = extractUserIdFromToken(token);
+            if (userId == null) {
+                return ResponseEntity.badRequest().body("Invalid token");
+            }
+
+            if (!roomService.validateRoomParticipants(roomId, userId)) {
+                return ResponseEntity.status(403).body("Not authorized");
+            }
+
+            return ResponseEntity.ok(receiptService.getRoomReceipts(roomId));
+        } catch (Exception e) {
+            log.error("Failed to get receipts", e);
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/{roomId}/messages/search")
+    public ResponseEntity<?> searchMessages(
+            @RequestHeader("Authorization") String token,
+            @PathVariable String roomId,
+            @RequestParam("q") String query,
+            @RequestParam(defaultValue = "50") int limit) {
+        try {
+            String userId = extractUserIdFromToken(token);
+            if (userId == null) {
+                return ResponseEntity.badRequest().body("Invalid token");
+            }
+
+            if (!roomService.validateRoomParticipants(roomId, userId)) {
+                return ResponseEntity.status(403).body("Not authorized");
+            }
+
+            return ResponseEntity.ok(messageService.searchRoomMessages(roomId, query, Math.min(Math.max(limit, 1), 200)));
+        } catch (Exception e) {
+            log.error("Failed to search messages", e);
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @PostMapping("/{roomId}/close")
     public ResponseEntity<?> closeRoom(
             @RequestHeader("Authorization") String token,
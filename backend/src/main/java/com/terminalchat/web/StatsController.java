@@ -0,0 +1,122 @@
+package com.terminalchat.web;
+
+import com.terminalchat.config.CompactSchemaMigration;
+import com.terminalchat.config.MongoCommandProfiler;
+import com.terminalchat.config.MongoIndexManager;
+import com.terminalchat.config.WarmupRunner;
+import com.terminalchat.security.TokenRevocationList;
+import com.terminalchat.security.WebSocketTokenGuard;
+import com.terminalchat.service.MessageContentCodec;
+import com.terminalchat.service.MessageStore;
+import com.terminalchat.service.OfflineMessageQueue;
+import com.terminalchat.service.TerminalMirrorService;
+import com.terminalchat.service.UserProfileCache;
+import com.terminalchat.websocket.SignalingStateCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.socket.config.WebSocketMessageBrokerStats;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/stats")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class StatsController {
+
+    private final MessageContentCodec messageContentCodec;
+    private final UserProfileCache userProfileCache;
+    private final OfflineMessageQueue offlineMessageQueue;
+    private final WebSocketMessageBrokerStats webSocketMessageBrokerStats;
+    private final MongoCommandProfiler mongoCommandProfiler;
+    private final MongoIndexManager mongoIndexManager;
+    private final WarmupRunner warmupRunner;
+    private final TerminalMirrorService terminalMirrorService;
+    private final SignalingStateCache signalingStateCache;
+    private final MessageStore messageStore;
+    private final CompactSchemaMigration compactSchemaMigration;
+    private final TokenRevocationList tokenRevocationList;
+    private final WebSocketTokenGuard webSocketTokenGuard;
+
+    @GetMapping("/compression")
+    public ResponseEntity<?> getCompressionStats() {
+        return ResponseEntity.ok(messageContentCodec.getStats());
+    }
+
+    @GetMapping("/user-cache")
+    public ResponseEntity<?> getUserCacheStats() {
+        return ResponseEntity.ok(userProfileCache.getStats());
+    }
+
+    @GetMapping("/offline-queue")
+    public ResponseEntity<?> getOfflineQueueStats() {
+        return ResponseEntity.ok(offlineMessageQueue.getStats());
+    }
+
+    // Session counts per transport and STOMP frame counts, plus inbound/outbound
+    // and SockJS heartbeat pool sizes
+    @GetMapping("/websocket")
+    public ResponseEntity<?> getWebSocketStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("sessions", webSocketMessageBrokerStats.getWebSocketSessionStatsInfo());
+        stats.put("stomp", webSocketMessageBrokerStats.getStompSubProtocolStatsInfo());
+        stats.put("inboundChannel", webSocketMessageBrokerStats.getClientInboundExecutorStatsInfo());
+        stats.put("outboundChannel", webSocketMessageBrokerStats.getClientOutboundExecutorStatsInfo());
+        stats.put("sockJsScheduler", webSocketMessageBrokerStats.getSockJsTaskSchedulerStatsInfo());
+        return ResponseEntity.ok(stats);
+    }
+
+    // Latency histograms per command and collection, slow-op count, pool gauges
+    @GetMapping("/mongo")
+    public ResponseEntity<?> getMongoStats() {
+        return ResponseEntity.ok(mongoCommandProfiler.getStats());
+    }
+
+    // Last index check (run at startup and after migrations): missing declared indexes
+    // and, if enabled, COLLSCAN plans
+    @GetMapping("/indexes")
+    public ResponseEntity<?> getIndexReport() {
+        return ResponseEntity.ok(mongoIndexManager.getLastReport());
+    }
+
+    @GetMapping("/warmup")
+    public ResponseEntity<?> getWarmupStats() {
+        return ResponseEntity.ok(warmupRunner.getStats());
+    }
+
+    // Per-room terminal mirror bandwidth, frame rate and keyframe/delta counts
+    @GetMapping("/terminal")
+    public ResponseEntity<?> getTerminalStats() {
+        return ResponseEntity.ok(terminalMirrorService.getStats());
+    }
+
+    // Rooms with cached signaling state and how many payloads were replayed on resubscribe
+    @GetMapping("/signaling")
+    public ResponseEntity<?> getSignalingStats() {
+        return ResponseEntity.ok(signalingStateCache.getStats());
+    }
+
+    // Message storage mode; for bucketed storage, bucket count and what retention dropped
+    @GetMapping("/message-store")
+    public ResponseEntity<?> getMessageStoreStats() {
+        return ResponseEntity.ok(messageStore.getStats());
+    }
+
+    // Per collection: documents migrated to the compact schema, bytes per document
+    // and data + index bytes before and after
+    @GetMapping("/schema")
+    public ResponseEntity<?> getSchemaMigrationStats() {
+        return ResponseEntity.ok(compactSchemaMigration.getStats());
+    }
+
+    // Revocation checks, how many passed the Bloom filter and how many of those were false
+    // positives; tracked WebSocket sessions and how many were closed for their token
+    @GetMapping("/tokens")
+    public ResponseEntity<?> getTokenRevocationStats() {
+        Map<String, Object> stats = new HashMap<>(tokenRevocationList.getStats());
+        stats.put("webSockets", webSocketTokenGuard.getStats());
+        return ResponseEntity.ok(stats);
+    }
+}
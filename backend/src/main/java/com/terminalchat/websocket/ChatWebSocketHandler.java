@@ -1,7 +1,10 @@
 package com.terminalchat.websocket;
 
 import com.terminalchat.domain.entity.Room;
+import com.terminalchat.domain.entity.User;
+import com.terminalchat.service.AuthService;
 import com.terminalchat.service.MessageService;
+import com.terminalchat.service.ReceiptService;
 import com.terminalchat.service.RoomService;
 import com.terminalchat.service.SessionService;
 import lombok.RequiredArgsConstructor;
@@ -12,6 +15,7 @@ import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Controller;
 
+import java.security.Principal;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
@@ -25,33 +29,53 @@ public class ChatWebSocketHandler {
     private final MessageService messageService;
     private final RoomService roomService;
     private final SessionService sessionService;
+    private final ReceiptService receiptService;
+    private final AuthService authService;
 
     @MessageMapping("/chat/send/{roomId}")
     public void handleChatMessage(
             @DestinationVariable String roomId,
-            @Payload Map<String, String> payload) {
+            @Payload Map<String, String> payload,
+            Principal principal) {
 
-        String senderId = payload.get("senderId");
-        String senderUsername = payload.get("senderUsername");
+        // Sender comes from the session principal; room membership is checked by
+        // StompAuthChannelInterceptor on every SEND
+        String senderId = principal.getName();
+        Optional<String> senderUsername = authService.getUserById(senderId).map(User::getDisplayName);
+        if (senderUsername.isEmpty()) {
+            // The name always comes from the profile, never from the client
+            log.warn("Dropping message from unknown user {} in room {}", senderId, roomId);
+            return;
+        }
         String content = payload.get("content");
+        String clientMessageId = payload.get("clientMessageId");
 
-        // TEMP: Skip validation until identity is unified
-        var messageDTO = messageService.saveMessage(roomId, senderId, senderUsername, content);
-
-        messagingTemplate.convertAndSend("/room/" + roomId + "/messages", messageDTO);
+        // Persists, then broadcasts; retries with the same clientMessageId are no-ops
+        messageService.sendChatMessage(roomId, senderId, senderUsername.get(), content, clientMessageId);
         log.info("Message broadcast in room {}", roomId);
     }
 
     @MessageMapping("/chat/typing/{roomId}")
     public void handleTypingIndicator(
             @DestinationVariable String roomId,
-            @Payload Map<String, String> payload) {
+            @Payload Map<String, String> payload,
+            Principal principal) {
 
         Map<String, Object> typingEvent = new HashMap<>();
-        typingEvent.put("userId", payload.get("userId"));
+        typingEvent.put("userId", principal.getName());
         typingEvent.put("isTyping", true);
 
         messagingTemplate.convertAndSend("/room/" + roomId + "/typing", typingEvent);
     }
 
+    @MessageMapping("/chat/receipt/{roomId}")
+    public void handleReceipt(
+            @DestinationVariable String roomId,
+            @Payload Map<String, String> payload,
+            Principal principal) {
+
+        // Cumulative marks, coalesced and broadcast on /room/{roomId}/receipts
+        receiptService.acknowledge(roomId, principal.getName(),
+                payload.get("deliveredUpTo"), payload.get("readUpTo"));
+    }
 }
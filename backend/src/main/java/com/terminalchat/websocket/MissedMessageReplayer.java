@@ -0,0 +1,68 @@
+package com.terminalchat.websocket;
+
+import com.terminalchat.domain.dto.MessageDTO;
+import com.terminalchat.security.StompAuthChannelInterceptor;
+import com.terminalchat.service.MessageService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+
+import java.util.List;
+
+/**
+ * Replays messages a user missed while disconnected when they resubscribe to a
+ * room. Replies go straight to the subscribing session over the outbound channel,
+ * the same way {@code @SubscribeMapping} replies do, so other subscribers don't
+ * see them twice.
+ */
+@Component
+@Slf4j
+public class MissedMessageReplayer {
+
+    private final MessageService messageService;
+    private final StompAuthChannelInterceptor stompAuthChannelInterceptor;
+    private final SimpMessagingTemplate sessionTemplate;
+
+    public MissedMessageReplayer(MessageService messageService,
+                                 StompAuthChannelInterceptor stompAuthChannelInterceptor,
+                                 @Qualifier("clientOutboundChannel") MessageChannel clientOutboundChannel) {
+        this.messageService = messageService;
+        this.stompAuthChannelInterceptor = stompAuthChannelInterceptor;
+        this.sessionTemplate = new SimpMessagingTemplate(clientOutboundChannel);
+    }
+
+    // Runs after PresenceRegistry has marked the user connected again, and before
+    // the interceptor sees the SUBSCRIBE, so a rejected one mustn't drain the queue
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String destination = accessor.getDestination();
+        String roomId = PresenceRegistry.roomIdOf(destination);
+        if (roomId == null || event.getUser() == null || !stompAuthChannelInterceptor.isAuthorized(accessor)) {
+            return;
+        }
+        String userId = event.getUser().getName();
+
+        List<MessageDTO> missed = messageService.drainMissedMessages(roomId, userId);
+        if (missed.isEmpty()) {
+            return;
+        }
+
+        for (MessageDTO message : missed) {
+            SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            headers.setSessionId(accessor.getSessionId());
+            headers.setSubscriptionId(accessor.getSubscriptionId());
+            headers.setDestination(destination);
+            headers.setLeaveMutable(true);
+            sessionTemplate.convertAndSend(destination, message, headers.getMessageHeaders());
+        }
+        log.info("Replayed {} missed messages to user {} in room {}", missed.size(), userId, roomId);
+    }
+}
@@ -0,0 +1,139 @@
+package com.terminalchat.websocket;
+
+import com.terminalchat.security.StompAuthChannelInterceptor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.security.Principal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks which users currently have a live subscription to each room's message
+ * stream, and when they were last seen on it. Identity is the session principal
+ * bound at CONNECT by {@link StompAuthChannelInterceptor}. Only subscriptions the
+ * interceptor would let through count, since this listener runs before it does.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PresenceRegistry {
+
+    private static final String ROOM_PREFIX = "/room/";
+    private static final String MESSAGES_SUFFIX = "/messages";
+
+    private final StompAuthChannelInterceptor stompAuthChannelInterceptor;
+
+    // STOMP session id -> connection state
+    private final Map<String, StompSessionState> sessions = new ConcurrentHashMap<>();
+    // roomId:userId -> presence in that room
+    private final Map<String, RoomPresence> presence = new ConcurrentHashMap<>();
+
+    public boolean isConnected(String roomId, String userId) {
+        RoomPresence roomPresence = presence.get(key(roomId, userId));
+        return roomPresence != null && roomPresence.subscriptions > 0;
+    }
+
+    /**
+     * True when the user has no live subscription to the room but had one within
+     * the last {@code graceMillis}.
+     */
+    public boolean isTemporarilyDisconnected(String roomId, String userId, long graceMillis) {
+        RoomPresence roomPresence = presence.get(key(roomId, userId));
+        return roomPresence != null
+                && roomPresence.subscriptions == 0
+                && System.currentTimeMillis() - roomPresence.lastSeen <= graceMillis;
+    }
+
+    public void evictStale(long maxIdleMillis) {
+        long cutoff = System.currentTimeMillis() - maxIdleMillis;
+        presence.values().removeIf(p -> p.subscriptions == 0 && p.lastSeen < cutoff);
+    }
+
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        Principal user = event.getUser();
+        String roomId = roomIdOf(accessor.getDestination());
+        if (user == null || roomId == null || !stompAuthChannelInterceptor.isAuthorized(accessor)) {
+            return;
+        }
+
+        StompSessionState state = sessions.computeIfAbsent(accessor.getSessionId(),
+                id -> new StompSessionState(user.getName()));
+
+        state.roomsBySubscription.put(accessor.getSubscriptionId(), roomId);
+        presence.compute(key(roomId, state.userId), (k, p) -> {
+            RoomPresence updated = p == null ? new RoomPresence() : p;
+            updated.subscriptions++;
+            updated.lastSeen = System.currentTimeMillis();
+            return updated;
+        });
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        StompSessionState state = sessions.get(accessor.getSessionId());
+        if (state == null) {
+            return;
+        }
+        String roomId = state.roomsBySubscription.remove(accessor.getSubscriptionId());
+        if (roomId != null) {
+            release(roomId, state.userId);
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        StompSessionState state = sessions.remove(event.getSessionId());
+        if (state == null) {
+            return;
+        }
+        state.roomsBySubscription.values().forEach(roomId -> release(roomId, state.userId));
+        log.debug("User {} disconnected (session {})", state.userId, event.getSessionId());
+    }
+
+    static String roomIdOf(String destination) {
+        if (destination == null || !destination.startsWith(ROOM_PREFIX) || !destination.endsWith(MESSAGES_SUFFIX)) {
+            return null;
+        }
+        String roomId = destination.substring(ROOM_PREFIX.length(), destination.length() - MESSAGES_SUFFIX.length());
+        return roomId.isEmpty() || roomId.contains("/") ? null : roomId;
+    }
+
+    private void release(String roomId, String userId) {
+        presence.computeIfPresent(key(roomId, userId), (k, p) -> {
+            p.subscriptions = Math.max(0, p.subscriptions - 1);
+            p.lastSeen = System.currentTimeMillis();
+            return p;
+        });
+    }
+
+    private static String key(String roomId, String userId) {
+        return roomId + ":" + userId;
+    }
+
+    private static final class StompSessionState {
+        private final String userId;
+        private final Map<String, String> roomsBySubscription = new ConcurrentHashMap<>();
+
+        private StompSessionState(String userId) {
+            this.userId = userId;
+        }
+    }
+
+    private static final class RoomPresence {
+        private int subscriptions;
+        private long lastSeen;
+    }
+}
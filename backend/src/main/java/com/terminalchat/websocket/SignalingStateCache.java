@@ -0,0 +1,146 @@
+package com.terminalchat.websocket;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latest offer, answer and ICE candidates per room, kept for a short while so a
+ * participant who drops mid-negotiation gets them replayed on resubscribe
+ * instead of starting the call over. A new offer starts a new negotiation and
+ * replaces whatever was cached for the room.
+ */
+@Component
+@Slf4j
+public class SignalingStateCache {
+
+    @Value("${signaling.cache-ttl-seconds:60}")
+    private long ttlSeconds;
+
+    @Value("${signaling.max-candidates:50}")
+    private int maxCandidates;
+
+    private final Map<String, RoomSignaling> rooms = new ConcurrentHashMap<>();
+
+    private final LongAdder replayed = new LongAdder();
+
+    public void putOffer(String roomId, Map<String, Object> offer) {
+        rooms.compute(roomId, (id, state) -> {
+            // The caller's first candidates can arrive before its offer; keep those
+            RoomSignaling next = state != null && !state.hasOffer() ? state : new RoomSignaling();
+            next.setOffer(offer);
+            return next;
+        });
+    }
+
+    public void putAnswer(String roomId, Map<String, Object> answer) {
+        RoomSignaling state = rooms.get(roomId);
+        if (state != null) {
+            state.setAnswer(answer);
+        }
+    }
+
+    public void addCandidate(String roomId, Map<String, Object> candidate) {
+        rooms.computeIfAbsent(roomId, id -> new RoomSignaling()).addCandidate(candidate, maxCandidates);
+    }
+
+    /**
+     * Cached payloads for one signaling destination ({@code webrtc-offer},
+     * {@code webrtc-answer} or {@code ice-candidate}), excluding what the
+     * subscriber sent themselves. Empty once the entry has expired.
+     */
+    public List<Map<String, Object>> replayFor(String roomId, String channel, String userId) {
+        RoomSignaling state = rooms.get(roomId);
+        if (state == null) {
+            return List.of();
+        }
+        if (state.isExpired(ttlSeconds * 1000)) {
+            rooms.remove(roomId, state);
+            return List.of();
+        }
+
+        List<Map<String, Object>> payloads = state.payloadsFor(channel);
+        payloads.removeIf(payload -> userId.equals(payload.get("senderId")));
+        replayed.add(payloads.size());
+        return payloads;
+    }
+
+    public void clear(String roomId) {
+        if (rooms.remove(roomId) != null) {
+            log.debug("Cleared signaling state for room {}", roomId);
+        }
+    }
+
+    public void evictExpired() {
+        long ttlMillis = ttlSeconds * 1000;
+        rooms.values().removeIf(state -> state.isExpired(ttlMillis));
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("rooms", rooms.size());
+        stats.put("replayedPayloads", replayed.sum());
+        stats.put("ttlSeconds", ttlSeconds);
+        return stats;
+    }
+
+    private static final class RoomSignaling {
+        private Map<String, Object> offer;
+        private Map<String, Object> answer;
+        private final List<Map<String, Object>> candidates = new ArrayList<>();
+        private volatile long lastUpdated = System.currentTimeMillis();
+
+        synchronized boolean hasOffer() {
+            return offer != null;
+        }
+
+        synchronized void setOffer(Map<String, Object> offer) {
+            this.offer = offer;
+            lastUpdated = System.currentTimeMillis();
+        }
+
+        synchronized void setAnswer(Map<String, Object> answer) {
+            this.answer = answer;
+            lastUpdated = System.currentTimeMillis();
+        }
+
+        synchronized void addCandidate(Map<String, Object> candidate, int max) {
+            // Oldest first out; the newest candidates are the likeliest to still work
+            if (candidates.size() >= max) {
+                candidates.remove(0);
+            }
+            candidates.add(candidate);
+            lastUpdated = System.currentTimeMillis();
+        }
+
+        synchronized List<Map<String, Object>> payloadsFor(String channel) {
+            List<Map<String, Object>> payloads = new ArrayList<>();
+            switch (channel) {
+                case "webrtc-offer" -> {
+                    if (offer != null) {
+                        payloads.add(offer);
+                    }
+                }
+                case "webrtc-answer" -> {
+                    if (answer != null) {
+                        payloads.add(answer);
+                    }
+                }
+                case "ice-candidate" -> payloads.addAll(candidates);
+                default -> { }
+            }
+            return payloads;
+        }
+
+        boolean isExpired(long ttlMillis) {
+            return System.currentTimeMillis() - lastUpdated > ttlMillis;
+        }
+    }
+}
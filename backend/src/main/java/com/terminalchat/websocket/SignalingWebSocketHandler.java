@@ -1,40 +1,62 @@
 package com.terminalchat.websocket;
 
-import com.terminalchat.service.RoomService;
-import lombok.RequiredArgsConstructor;
+import com.terminalchat.security.StompAuthChannelInterceptor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.stereotype.Controller;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
 
+import java.security.Principal;
+import java.util.List;
 import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Controller
-@RequiredArgsConstructor
 @Slf4j
 public class SignalingWebSocketHandler {
 
+    private static final Pattern SIGNALING_DESTINATION =
+            Pattern.compile("^/room/([^/]+)/(webrtc-offer|webrtc-answer|ice-candidate)$");
+
     private final SimpMessagingTemplate messagingTemplate;
-    private final RoomService roomService;
+    private final SimpMessagingTemplate sessionTemplate;
+    private final SignalingStateCache signalingStateCache;
+    private final StompAuthChannelInterceptor stompAuthChannelInterceptor;
+
+    public SignalingWebSocketHandler(SimpMessagingTemplate messagingTemplate,
+                                     SignalingStateCache signalingStateCache,
+                                     StompAuthChannelInterceptor stompAuthChannelInterceptor,
+                                     @Qualifier("clientOutboundChannel") MessageChannel clientOutboundChannel) {
+        this.messagingTemplate = messagingTemplate;
+        this.signalingStateCache = signalingStateCache;
+        this.stompAuthChannelInterceptor = stompAuthChannelInterceptor;
+        this.sessionTemplate = new SimpMessagingTemplate(clientOutboundChannel);
+    }
 
     @MessageMapping("/signaling/offer/{roomId}")
     public void handleWebRTCOffer(
             @DestinationVariable String roomId,
-            @Payload Map<String, Object> payload) {
+            @Payload Map<String, Object> payload,
+            Principal principal) {
         
         log.info("📥 Received WebRTC offer for room: {}", roomId);
         log.info("📦 Payload: {}", payload);
 
-        String senderId = (String) payload.get("senderId");
+        // StompAuthChannelInterceptor checks token and membership on every SEND
+        payload.put("senderId", principal.getName());
         Object sdpOffer = payload.get("sdpOffer");
         String callType = (String) payload.get("callType");
-
-        if (!roomService.validateRoomParticipants(roomId, senderId)) {
-            log.warn("❌ Unauthorized WebRTC offer in room {}", roomId);
-            return;
-        }
+        signalingStateCache.putOffer(roomId, payload);
 
         // Broadcast to the room
         messagingTemplate.convertAndSend("/room/" + roomId + "/webrtc-offer", payload);
@@ -45,16 +67,14 @@ public class SignalingWebSocketHandler {
     @MessageMapping("/signaling/answer/{roomId}")
     public void handleWebRTCAnswer(
             @DestinationVariable String roomId,
-            @Payload Map<String, Object> payload) {
+            @Payload Map<String, Object> payload,
+            Principal principal) {
         
         log.info("📥 Received WebRTC answer for room: {}", roomId);
 
-        String senderId = (String) payload.get("senderId");
-        
-        if (!roomService.validateRoomParticipants(roomId, senderId)) {
-            log.warn("❌ Unauthorized WebRTC answer in room {}", roomId);
-            return;
-        }
+        // StompAuthChannelInterceptor checks token and membership on every SEND
+        payload.put("senderId", principal.getName());
+        signalingStateCache.putAnswer(roomId, payload);
 
         // Broadcast to the room
         messagingTemplate.convertAndSend("/room/" + roomId + "/webrtc-answer", payload);
@@ -65,18 +85,67 @@ public class SignalingWebSocketHandler {
     @MessageMapping("/signaling/ice-candidate/{roomId}")
     public void handleICECandidate(
             @DestinationVariable String roomId,
-            @Payload Map<String, Object> payload) {
+            @Payload Map<String, Object> payload,
+            Principal principal) {
         
-        String senderId = (String) payload.get("senderId");
-        
-        if (!roomService.validateRoomParticipants(roomId, senderId)) {
-            log.warn("❌ Unauthorized ICE candidate in room {}", roomId);
-            return;
-        }
+        // StompAuthChannelInterceptor checks token and membership on every SEND
+        payload.put("senderId", principal.getName());
+        signalingStateCache.addCandidate(roomId, payload);
 
         // Broadcast to the room
         messagingTemplate.convertAndSend("/room/" + roomId + "/ice-candidate", payload);
         
         log.debug("✅ ICE candidate broadcasted to room: {}", roomId);
     }
+
+    @MessageMapping("/signaling/end/{roomId}")
+    public void handleCallEnd(
+            @DestinationVariable String roomId,
+            Principal principal) {
+
+        signalingStateCache.clear(roomId);
+        messagingTemplate.convertAndSend("/room/" + roomId + "/call-ended",
+                Map.of("senderId", principal.getName()));
+
+        log.info("📴 Call ended in room: {}", roomId);
+    }
+
+    /**
+     * A participant (re)subscribing to a signaling destination gets the cached
+     * offer, answer or candidates from the other side straight away, sent only to
+     * its own session, so a reconnect mid-call resumes the negotiation in place.
+     */
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String destination = accessor.getDestination();
+        if (destination == null || event.getUser() == null) {
+            return;
+        }
+        Matcher matcher = SIGNALING_DESTINATION.matcher(destination);
+        if (!matcher.matches()) {
+            return;
+        }
+        String roomId = matcher.group(1);
+        String userId = event.getUser().getName();
+        // Subscribe events are published before the inbound interceptor authorizes the
+        // frame; repeat its token (expiry, revocation) and membership checks
+        if (!stompAuthChannelInterceptor.isAuthorized(accessor)) {
+            return;
+        }
+
+        List<Map<String, Object>> cached =
+                signalingStateCache.replayFor(roomId, matcher.group(2), userId);
+        for (Map<String, Object> payload : cached) {
+            SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            headers.setSessionId(accessor.getSessionId());
+            headers.setSubscriptionId(accessor.getSubscriptionId());
+            headers.setDestination(destination);
+            headers.setLeaveMutable(true);
+            sessionTemplate.convertAndSend(destination, payload, headers.getMessageHeaders());
+        }
+        if (!cached.isEmpty()) {
+            log.info("Replayed {} cached signaling messages on {}", cached.size(), destination);
+        }
+    }
 }
\ No newline at end of file
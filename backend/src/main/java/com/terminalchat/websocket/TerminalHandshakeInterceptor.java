@@ -0,0 +1,75 @@
+package com.terminalchat.websocket;
+
+import com.terminalchat.security.JwtTokenProvider;
+import com.terminalchat.security.WebSocketTokenGuard;
+import com.terminalchat.service.RoomService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.Map;
+
+/**
+ * Authenticates terminal-mirror handshakes. Browsers can't set headers on a
+ * WebSocket upgrade, so the token comes as a query parameter:
+ * {@code /ws/terminal?roomId=...&token=...&role=host|viewer}.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TerminalHandshakeInterceptor implements HandshakeInterceptor {
+
+    static final String USER_ID = "userId";
+    static final String ROOM_ID = "roomId";
+    static final String HOST = "host";
+
+    private final JwtTokenProvider jwtTokenProvider;
+    private final RoomService roomService;
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        MultiValueMap<String, String> params = UriComponentsBuilder.fromUri(request.getURI()).build().getQueryParams();
+        String token = params.getFirst("token");
+        String roomId = params.getFirst("roomId");
+
+        Claims claims;
+        try {
+            claims = jwtTokenProvider.parseAccessToken(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            claims = null;
+        }
+        if (claims == null || roomId == null) {
+            response.setStatusCode(HttpStatus.UNAUTHORIZED);
+            return false;
+        }
+
+        String userId = claims.getSubject();
+        if (!roomService.validateRoomParticipants(roomId, userId)) {
+            log.warn("User {} denied terminal stream for room {}", userId, roomId);
+            response.setStatusCode(HttpStatus.FORBIDDEN);
+            return false;
+        }
+
+        // WebSocketTokenGuard closes the stream once this token expires or is revoked
+        WebSocketTokenGuard.bind(attributes, claims);
+        attributes.put(USER_ID, userId);
+        attributes.put(ROOM_ID, roomId);
+        attributes.put(HOST, "host".equals(params.getFirst("role")));
+        return true;
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                               WebSocketHandler wsHandler, Exception exception) {
+    }
+}
@@ -0,0 +1,122 @@
+package com.terminalchat.websocket;
+
+import com.terminalchat.service.TerminalMirrorService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.BinaryWebSocketHandler;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Raw binary WebSocket for terminal mirroring. The handshake
+ * ({@link TerminalHandshakeInterceptor}) has already authenticated the user and
+ * checked room membership; here the session becomes the room's host or a viewer.
+ *
+ * A full SCREEN frame (cols * rows * 3 bytes) is far larger than the container's
+ * 8 KB message buffer, which is allocated for every WebSocket session, STOMP ones
+ * included. Rather than raise it for all of them, this handler takes partial
+ * messages and reassembles host frames itself, up to {@code terminal.max-frame-bytes}.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TerminalStreamHandler extends BinaryWebSocketHandler {
+
+    private static final String PARTIAL_FRAME = "terminalPartialFrame";
+
+    private final TerminalMirrorService terminalMirrorService;
+
+    @Value("${terminal.max-frame-bytes:524288}")
+    private int maxFrameBytes;
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        String roomId = roomId(session);
+        if (isHost(session)) {
+            if (!terminalMirrorService.attachHost(roomId, session)) {
+                session.close(CloseStatus.POLICY_VIOLATION.withReason("Room already has a terminal host"));
+                return;
+            }
+            log.info("User {} is mirroring their terminal in room {}",
+                    session.getAttributes().get(TerminalHandshakeInterceptor.USER_ID), roomId);
+        } else {
+            terminalMirrorService.attachViewer(roomId, session);
+        }
+    }
+
+    @Override
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) throws Exception {
+        if (!isHost(session)) {
+            return;
+        }
+        ByteBuffer frame = assemble(session, message);
+        if (frame == null) {
+            return;
+        }
+        try {
+            terminalMirrorService.onHostFrame(roomId(session), session, frame);
+        } catch (IllegalArgumentException | BufferUnderflowException e) {
+            log.warn("Bad terminal frame in room {}: {}", roomId(session), e.getMessage());
+            session.close(CloseStatus.BAD_DATA);
+        }
+    }
+
+    @Override
+    public boolean supportsPartialMessages() {
+        return true;
+    }
+
+    /**
+     * The whole frame once its last fragment is in, or null while more are expected
+     * (or after closing a session whose frame outgrew the limit).
+     */
+    private ByteBuffer assemble(WebSocketSession session, BinaryMessage message) throws Exception {
+        ByteBuffer payload = message.getPayload();
+        ByteArrayOutputStream partial = (ByteArrayOutputStream) session.getAttributes().get(PARTIAL_FRAME);
+        if (partial == null && message.isLast()) {
+            return payload.remaining() > maxFrameBytes ? tooBig(session) : payload;
+        }
+        if (partial == null) {
+            partial = new ByteArrayOutputStream(Math.min(maxFrameBytes, 64 * 1024));
+            session.getAttributes().put(PARTIAL_FRAME, partial);
+        }
+        if (partial.size() + payload.remaining() > maxFrameBytes) {
+            return tooBig(session);
+        }
+        byte[] bytes = new byte[payload.remaining()];
+        payload.get(bytes);
+        partial.write(bytes);
+        if (!message.isLast()) {
+            return null;
+        }
+        session.getAttributes().remove(PARTIAL_FRAME);
+        return ByteBuffer.wrap(partial.toByteArray());
+    }
+
+    private ByteBuffer tooBig(WebSocketSession session) throws Exception {
+        session.getAttributes().remove(PARTIAL_FRAME);
+        log.warn("Terminal frame over {} bytes in room {}", maxFrameBytes, roomId(session));
+        session.close(CloseStatus.TOO_BIG_TO_PROCESS);
+        return null;
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        terminalMirrorService.detach(roomId(session), session);
+    }
+
+    private static String roomId(WebSocketSession session) {
+        return (String) session.getAttributes().get(TerminalHandshakeInterceptor.ROOM_ID);
+    }
+
+    private static boolean isHost(WebSocketSession session) {
+        return Boolean.TRUE.equals(session.getAttributes().get(TerminalHandshakeInterceptor.HOST));
+    }
+}
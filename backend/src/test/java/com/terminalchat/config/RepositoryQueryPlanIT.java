@@ -0,0 +1,214 @@
+package com.terminalchat.config;
+
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.terminalchat.domain.repository.MessageRepository;
+import com.terminalchat.domain.repository.ReadReceiptRepository;
+import com.terminalchat.domain.repository.RoomMemberRepository;
+import com.terminalchat.domain.repository.RoomRepository;
+import com.terminalchat.domain.repository.SessionRepository;
+import com.terminalchat.domain.repository.SharedFileRepository;
+import com.terminalchat.domain.repository.UserRepository;
+import de.flapdoodle.embed.mongo.commands.ServerAddress;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.lang.reflect.Method;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs every repository query method against an embedded mongod with the
+ * production index set, explains the command the driver actually sent and fails
+ * on any COLLSCAN. Also checks that {@link MongoIndexManager} finds nothing missing
+ * or scanning, so its hand-written query shapes can't drift from the repositories.
+ *
+ * Run by failsafe ({@code mvn verify}); the first run downloads a mongod binary.
+ */
+@DataMongoTest(properties = {
+        "mongo.indexes.verify-plans=true"
+})
+@Import({MongoDBConfig.class, MongoCommandProfiler.class, MongoIndexManager.class,
+        RepositoryQueryPlanIT.CommandCapture.class})
+class RepositoryQueryPlanIT {
+
+    private static final Set<String> QUERY_COMMANDS = Set.of("find", "count", "aggregate", "delete", "distinct");
+
+    // Session and routing fields the driver adds; explain rejects them inside the explained command
+    private static final Set<String> DRIVER_FIELDS = Set.of(
+            "$db", "lsid", "$clusterTime", "txnNumber", "$readPreference",
+            "apiVersion", "apiStrict", "apiDeprecationErrors");
+
+    private static final List<Class<?>> REPOSITORIES = List.of(
+            MessageRepository.class, ReadReceiptRepository.class, RoomMemberRepository.class,
+            RoomRepository.class, SessionRepository.class, SharedFileRepository.class, UserRepository.class);
+
+    private static TransitionWalker.ReachedState<RunningMongodProcess> mongod;
+
+    @Autowired private MongoTemplate mongoTemplate;
+    @Autowired private MongoIndexManager mongoIndexManager;
+    @Autowired private CommandCapture capture;
+
+    @Autowired private MessageRepository messageRepository;
+    @Autowired private ReadReceiptRepository readReceiptRepository;
+    @Autowired private RoomMemberRepository roomMemberRepository;
+    @Autowired private RoomRepository roomRepository;
+    @Autowired private SessionRepository sessionRepository;
+    @Autowired private SharedFileRepository sharedFileRepository;
+    @Autowired private UserRepository userRepository;
+
+    @DynamicPropertySource
+    static void mongoProperties(DynamicPropertyRegistry registry) {
+        if (mongod == null) {
+            mongod = Mongod.instance().start(Version.Main.V7_0);
+        }
+        ServerAddress address = mongod.current().getServerAddress();
+        registry.add("spring.data.mongodb.uri",
+                () -> "mongodb://" + address.getHost() + ":" + address.getPort() + "/terminalchat_it");
+    }
+
+    @AfterAll
+    static void stopMongod() {
+        if (mongod != null) {
+            mongod.close();
+            mongod = null;
+        }
+    }
+
+    @BeforeEach
+    void ensureIndexes() {
+        mongoIndexManager.ensureAndVerify();
+        capture.commands.clear();
+    }
+
+    @Test
+    void declaredIndexesExistAndDeclaredShapesUseThem() {
+        Map<String, Object> report = mongoIndexManager.getLastReport();
+
+        assertThat((List<?>) report.get("failedToCreate")).isEmpty();
+        assertThat((List<?>) report.get("missing")).isEmpty();
+        assertThat((List<?>) report.get("collectionScans")).isEmpty();
+    }
+
+    @Test
+    void everyRepositoryQueryUsesAnIndex() {
+        List<String> called = new ArrayList<>();
+        List<String> scans = new ArrayList<>();
+
+        run(called, scans, "MessageRepository.findByRoomIdOrderByCreatedAtAsc",
+                () -> messageRepository.findByRoomIdOrderByCreatedAtAsc("room"));
+        run(called, scans, "MessageRepository.findByRoomIdInIdRange",
+                () -> messageRepository.findByRoomIdInIdRange("room", "a", "b", Sort.by("id")));
+        run(called, scans, "MessageRepository.findByRoomIdOrderByIdDesc",
+                () -> messageRepository.findByRoomIdOrderByIdDesc("room", PageRequest.of(0, 50)));
+        run(called, scans, "MessageRepository.findByRoomIdAndClientMessageId",
+                () -> messageRepository.findByRoomIdAndClientMessageId("room", "client"));
+        run(called, scans, "ReadReceiptRepository.findByRoomId",
+                () -> readReceiptRepository.findByRoomId("room"));
+        run(called, scans, "RoomMemberRepository.findByRoomId",
+                () -> roomMemberRepository.findByRoomId("room"));
+        run(called, scans, "RoomMemberRepository.existsByRoomIdAndUserId",
+                () -> roomMemberRepository.existsByRoomIdAndUserId("room", "user"));
+        run(called, scans, "RoomMemberRepository.deleteByRoomIdAndUserId",
+                () -> roomMemberRepository.deleteByRoomIdAndUserId("room", "user"));
+        run(called, scans, "RoomRepository.findByStatus",
+                () -> roomRepository.findByStatus("ACTIVE"));
+        run(called, scans, "RoomRepository.findById",
+                () -> roomRepository.findById("room"));
+        run(called, scans, "SessionRepository.findBySessionCode",
+                () -> sessionRepository.findBySessionCode("code"));
+        run(called, scans, "SessionRepository.findByStatus",
+                () -> sessionRepository.findByStatus("ACTIVE"));
+        run(called, scans, "SessionRepository.findByUserId",
+                () -> sessionRepository.findByUserId("user"));
+        run(called, scans, "SessionRepository.findByRoomId",
+                () -> sessionRepository.findByRoomId("room"));
+        run(called, scans, "SharedFileRepository.findByRoomId",
+                () -> sharedFileRepository.findByRoomId("room"));
+        run(called, scans, "SharedFileRepository.findByExpiresAtBefore",
+                () -> sharedFileRepository.findByExpiresAtBefore(LocalDateTime.now()));
+        run(called, scans, "UserRepository.findByGoogleId",
+                () -> userRepository.findByGoogleId("google"));
+        run(called, scans, "UserRepository.findByEmail",
+                () -> userRepository.findByEmail("user@example.com"));
+        run(called, scans, "UserRepository.findById",
+                () -> userRepository.findById("user"));
+
+        assertThat(called).containsAll(declaredQueryMethods());
+        assertThat(scans).as("repository queries planned as COLLSCAN").isEmpty();
+    }
+
+    // Calls one repository method and explains each query command it sent
+    private void run(List<String> called, List<String> scans, String name, Runnable call) {
+        capture.commands.clear();
+        call.run();
+        called.add(name);
+
+        assertThat(capture.commands).as(name + " sent no query").isNotEmpty();
+        for (BsonDocument command : capture.commands) {
+            BsonDocument explain = new BsonDocument("explain", command)
+                    .append("verbosity", new BsonString("queryPlanner"));
+            BsonValue winningPlan = mongoTemplate.getDb().runCommand(explain, BsonDocument.class)
+                    .getDocument("queryPlanner").get("winningPlan");
+            if (winningPlan.toString().contains("COLLSCAN")) {
+                scans.add(name + " " + command.toJson());
+            }
+        }
+    }
+
+    // Every query method a repository declares itself (inherited CRUD goes by _id)
+    private static List<String> declaredQueryMethods() {
+        List<String> methods = new ArrayList<>();
+        for (Class<?> repository : REPOSITORIES) {
+            for (Method method : repository.getDeclaredMethods()) {
+                methods.add(repository.getSimpleName() + "." + method.getName());
+            }
+        }
+        return methods;
+    }
+
+    @TestConfiguration
+    static class CommandCapture {
+
+        final List<BsonDocument> commands = new CopyOnWriteArrayList<>();
+
+        @Bean
+        MongoClientSettingsBuilderCustomizer queryCaptureCustomizer() {
+            return builder -> builder.addCommandListener(new CommandListener() {
+                @Override
+                public void commandStarted(CommandStartedEvent event) {
+                    if (QUERY_COMMANDS.contains(event.getCommandName())) {
+                        BsonDocument command = event.getCommand().clone();
+                        DRIVER_FIELDS.forEach(command::remove);
+                        commands.add(command);
+                    }
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.terminalchat.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.terminalchat.config.HttpClientConfig;
+import com.terminalchat.security.GoogleIdTokenVerifier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs the desktop code exchange against a local stand-in for Google's token and
+ * JWKS endpoints.
+ */
+class GoogleOAuthClientTest {
+
+    private static final String CLIENT_ID = "test-client";
+
+    private HttpServer server;
+    private HttpClientConfig httpClientConfig;
+    private GoogleOAuthClient client;
+    private RSAKey signingKey;
+
+    private final AtomicInteger tokenStatus = new AtomicInteger(200);
+    private final AtomicInteger jwksRequests = new AtomicInteger();
+    private final AtomicReference<String> verifiedOn = new AtomicReference<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        signingKey = new RSAKeyGenerator(2048).keyID("test-key").generate();
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/token", exchange -> respond(exchange, tokenStatus.get(),
+                "{\"id_token\":\"" + idToken("google-123", "ada@example.com") + "\"}"));
+        server.createContext("/certs", exchange -> {
+            jwksRequests.incrementAndGet();
+            respond(exchange, 200, new JWKSet(signingKey.toPublicJWK()).toString());
+        });
+        server.start();
+        String base = "http://127.0.0.1:" + server.getAddress().getPort();
+
+        httpClientConfig = new HttpClientConfig();
+        HttpClient httpClient = httpClientConfig.googleHttpClient();
+
+        GoogleIdTokenVerifier verifier = new GoogleIdTokenVerifier(httpClient) {
+            @Override
+            public JWTClaimsSet verify(String idToken) {
+                verifiedOn.set(Thread.currentThread().getName());
+                return super.verify(idToken);
+            }
+        };
+        ReflectionTestUtils.setField(verifier, "googleClientId", CLIENT_ID);
+        ReflectionTestUtils.setField(verifier, "jwksUri", base + "/certs");
+
+        client = new GoogleOAuthClient(httpClient, verifier, new ObjectMapper());
+        ReflectionTestUtils.setField(client, "googleClientId", CLIENT_ID);
+        ReflectionTestUtils.setField(client, "googleClientSecret", "secret");
+        ReflectionTestUtils.setField(client, "desktopRedirectUri", "http://localhost/callback");
+        ReflectionTestUtils.setField(client, "tokenUri", base + "/token");
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        client.shutdown();
+        httpClientConfig.shutdown();
+    }
+
+    @Test
+    void exchangesCodeAndVerifiesIdTokenOffTheHttpThreads() throws Exception {
+        GoogleOAuthClient.GoogleIdentity identity = client.exchangeCode("auth-code").get(10, TimeUnit.SECONDS);
+
+        assertThat(identity.googleId()).isEqualTo("google-123");
+        assertThat(identity.email()).isEqualTo("ada@example.com");
+        assertThat(identity.name()).isEqualTo("Ada");
+        assertThat(jwksRequests.get()).isEqualTo(1);
+        assertThat(verifiedOn.get()).startsWith("google-login-");
+    }
+
+    @Test
+    void failsWhenGoogleRejectsTheCode() {
+        tokenStatus.set(400);
+
+        assertThatThrownBy(() -> client.exchangeCode("bad-code").get(10, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasMessageContaining("Failed to exchange authorization code: 400");
+        assertThat(jwksRequests.get()).isZero();
+    }
+
+    private String idToken(String subject, String email) {
+        try {
+            JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                    .issuer("https://accounts.google.com")
+                    .audience(CLIENT_ID)
+                    .subject(subject)
+                    .claim("email", email)
+                    .claim("name", "Ada")
+                    .expirationTime(new Date(System.currentTimeMillis() + 60000))
+                    .build();
+            SignedJWT jwt = new SignedJWT(
+                    new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(signingKey.getKeyID()).build(), claims);
+            jwt.sign(new RSASSASigner(signingKey));
+            return jwt.serialize();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.terminalchat.service;
+
+import com.terminalchat.config.WebRtcProperties;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IceServerServiceTest {
+
+    @Test
+    void ephemeralCredentialIsHmacOfExpiryAndUser() throws Exception {
+        WebRtcProperties properties = properties("s3cret", null, null);
+        properties.setTurnCredentialTtlSeconds(600);
+        IceServerService service = new IceServerService(properties);
+
+        long before = System.currentTimeMillis() / 1000;
+        Map<String, Object> config = service.getIceConfig("user-1");
+        Map<String, Object> turn = turnServer(config);
+
+        String username = (String) turn.get("username");
+        long expiresAt = (Long) config.get("expiresAt");
+        assertThat(username).isEqualTo(expiresAt + ":user-1");
+        assertThat(expiresAt).isBetween(before + 600, before + 601);
+
+        Mac mac = Mac.getInstance("HmacSHA1");
+        mac.init(new SecretKeySpec("s3cret".getBytes(StandardCharsets.UTF_8), "HmacSHA1"));
+        String expected = Base64.getEncoder().encodeToString(mac.doFinal(username.getBytes(StandardCharsets.UTF_8)));
+        assertThat(turn.get("credential")).isEqualTo(expected);
+    }
+
+    @Test
+    void ephemeralConfigsArePerUser() {
+        IceServerService service = new IceServerService(properties("s3cret", null, null));
+
+        assertThat(turnServer(service.getIceConfig("user-1")).get("username")).asString().endsWith(":user-1");
+        assertThat(turnServer(service.getIceConfig("user-2")).get("username")).asString().endsWith(":user-2");
+    }
+
+    @Test
+    void staticCredentialsShareOneConfig() {
+        IceServerService service = new IceServerService(properties(null, "turn-user", "turn-pass"));
+
+        Map<String, Object> first = service.getIceConfig("user-1");
+        Map<String, Object> second = service.getIceConfig("user-2");
+
+        assertThat(second).isSameAs(first);
+        assertThat(turnServer(first)).containsEntry("username", "turn-user").containsEntry("credential", "turn-pass");
+        assertThat(first).doesNotContainKey("expiresAt");
+    }
+
+    private static WebRtcProperties properties(String secret, String username, String credential) {
+        WebRtcProperties.TurnServer turn = new WebRtcProperties.TurnServer();
+        turn.setUrls("turn:turn.example.com:3478");
+        turn.setUsername(username);
+        turn.setCredential(credential);
+
+        WebRtcProperties properties = new WebRtcProperties();
+        properties.setStunServers(List.of("stun:stun.example.com:3478"));
+        properties.setTurnServers(List.of(turn));
+        properties.setTurnSecret(secret);
+        return properties;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> turnServer(Map<String, Object> config) {
+        List<Map<String, Object>> servers = (List<Map<String, Object>>) config.get("iceServers");
+        return servers.stream()
+                .filter(server -> server.get("urls").toString().startsWith("turn:"))
+                .findFirst()
+                .orElseThrow();
+    }
+}
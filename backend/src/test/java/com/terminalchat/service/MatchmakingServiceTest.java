@@ -0,0 +1,82 @@
+package com.terminalchat.service;
+
+import com.terminalchat.domain.dto.SessionCodeResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MatchmakingServiceTest {
+
+    private final SessionService sessionService = mock(SessionService.class);
+    private final PairingService pairingService = mock(PairingService.class);
+    private final SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+
+    private MatchmakingService service;
+
+    @BeforeEach
+    void setUp() {
+        when(sessionService.createSession(anyString(), eq("CHAT"))).thenAnswer(invocation -> {
+            String userId = invocation.getArgument(0);
+            return new SessionCodeResponse("code-" + userId, "session-" + userId, "CHAT");
+        });
+        when(pairingService.pairSessions(anyString(), anyString())).thenThrow(new IllegalStateException("broken"));
+
+        service = new MatchmakingService(sessionService, pairingService, messagingTemplate);
+        ReflectionTestUtils.setField(service, "timeoutSeconds", 120L);
+        ReflectionTestUtils.setField(service, "maxPairAttempts", 3);
+    }
+
+    @Test
+    void ticketsAreFailedAfterMaxPairAttempts() {
+        assertThat(service.enqueue("alice", "CHAT")).containsEntry("status", "WAITING");
+        service.enqueue("bob", "CHAT");
+        for (int i = 0; i < 5; i++) {
+            service.expireStaleTickets();
+        }
+
+        verify(pairingService, times(3)).pairSessions(anyString(), anyString());
+        verify(sessionService).updateSessionStatus("session-alice", "CANCELLED");
+        verify(sessionService).updateSessionStatus("session-bob", "CANCELLED");
+        verify(messagingTemplate).convertAndSendToUser(eq("alice"), eq("/queue/matchmaking"), failedEvent());
+        verify(messagingTemplate).convertAndSendToUser(eq("bob"), eq("/queue/matchmaking"), failedEvent());
+
+        Map<String, Object> stats = service.getStats();
+        assertThat(stats).containsEntry("failed", 2L).containsEntry("pairingFailures", 3L);
+        assertThat(stats.get("waiting")).isEqualTo(Map.of("CHAT", 0, "VOICE", 0, "VIDEO", 0));
+        assertThat(service.cancel("alice")).isFalse();
+    }
+
+    @Test
+    void arrivingTicketOutOfAttemptsGetsFailedResponse() {
+        ReflectionTestUtils.setField(service, "maxPairAttempts", 1);
+
+        service.enqueue("alice", "CHAT");
+        Map<String, Object> response = service.enqueue("bob", "CHAT");
+
+        assertThat(response).containsEntry("status", "FAILED").containsEntry("sessionId", "session-bob");
+        verify(pairingService, times(1)).pairSessions(anyString(), anyString());
+        assertThat(service.getStats()).containsEntry("failed", 2L);
+        // The waiting user is pushed the event; the arriving one only gets the response
+        verify(messagingTemplate).convertAndSendToUser(eq("alice"), eq("/queue/matchmaking"), failedEvent());
+        verify(messagingTemplate, never()).convertAndSendToUser(eq("bob"), anyString(), any(Object.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object failedEvent() {
+        return argThat(event -> event instanceof Map && "FAILED".equals(((Map<String, Object>) event).get("status")));
+    }
+}
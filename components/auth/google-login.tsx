@@ -17,7 +17,7 @@ declare global {
 
 export function GoogleLoginComponent() {
   const router = useRouter()
-  const { setUser, setToken, isLoading, setIsLoading } = useAuthStore()
+  const { setUser, setTokens, isLoading, setIsLoading } = useAuthStore()
   const [isDesktop, setIsDesktop] = useState(false)
   const [debugInfo, setDebugInfo] = useState<string>('')
 
@@ -65,7 +65,7 @@ export function GoogleLoginComponent() {
             displayName: userData.displayName || userData.name,
             profilePicture: userData.avatar || ''
           });
-          setToken(userData.token);
+          setTokens(userData.token, userData.refreshToken, userData.expiresIn);
 
           // Wait for Zustand to persist to localStorage
           await new Promise(resolve => setTimeout(resolve, 300));
@@ -97,7 +97,7 @@ export function GoogleLoginComponent() {
         cleanupListener()
       }
     }
-  }, [isDesktop, setUser, setToken, setIsLoading, router])
+  }, [isDesktop, setUser, setTokens, setIsLoading, router])
 
   // ============================================================================
   // WEB OAUTH: Google Sign-In button
@@ -135,7 +135,7 @@ export function GoogleLoginComponent() {
                 displayName: data.displayName,
                 profilePicture: data.profilePicture,
               })
-              setToken(data.token)
+              setTokens(data.token, data.refreshToken, data.expiresIn)
 
               router.replace('/dashboard')
             } catch (error) {
@@ -165,7 +165,7 @@ export function GoogleLoginComponent() {
     }, 100)
 
     return () => clearInterval(checkGoogleScript)
-  }, [isDesktop, setUser, setToken, router])
+  }, [isDesktop, setUser, setTokens, router])
 
   // ============================================================================
   // DESKTOP: Open browser for OAuth
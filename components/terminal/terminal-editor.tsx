@@ -7,16 +7,20 @@ import { useAuthStore } from "@/lib/auth-store";
 import { Terminal } from "./terminal-display";
 import { TerminalInput } from "./terminal-input";
 import { WebSocketClient } from "@/lib/websocket-client";
+import { isTauri } from "@/lib/tauri-utils";
 import { WebRTCClient } from "@/lib/webrtc-client";
 
 export function TerminalEditor({ tab }: { tab: TerminalTab }) {
-  const { addLine, setCommandInput, updateTab, startCall, receiveCall } = useTerminalStore();
+  const { addLine, setCommandInput, updateTab, startCall, receiveCall, call, endCall } = useTerminalStore();
   const { user, token } = useAuthStore();
   const terminalRef = useRef<HTMLDivElement>(null);
 
   const [wsClient, setWsClient] = useState<WebSocketClient | null>(null);
   const rtcMap = useRef<Map<string, WebRTCClient>>(new Map());
   const signalingRef = useRef<WebSocketClient | null>(null);
+  // Chat sends not yet echoed back by the room, keyed by clientMessageId. They are
+  // resent with the same key after a reconnect, so the server can drop duplicates
+  const pendingSends = useRef<Map<string, { roomId: string; body: Record<string, string> }>>(new Map());
 
   // Auto scroll
   useEffect(() => {
@@ -25,19 +29,117 @@ export function TerminalEditor({ tab }: { tab: TerminalTab }) {
     }
   }, [tab.history]);
 
-  // ================= CHAT SOCKET =================
+  const sendPending = (client: WebSocketClient) => {
+    pendingSends.current.forEach(({ roomId, body }) => {
+      try {
+        client.send(`/app/chat/send/${roomId}`, body);
+      } catch {
+        // Dropped again; the next reconnect retries
+      }
+    });
+  };
+
+  // ================= ROOM SOCKET =================
+  // One STOMP connection per tab carries chat, typing and (for calls) signaling
+  const subscribeSignaling = (client: WebSocketClient, roomId: string) => {
+    addLine(tab.id, {
+      id: `sys-${Date.now()}`,
+      content: `Signaling ready. Type 'call' to start ${tab.type} call.`,
+      type: "system",
+      timestamp: new Date(),
+      icon: "signal",
+    });
+
+    // Incoming Offer
+    client.subscribe(`/room/${roomId}/webrtc-offer`, async (m) => {
+      console.log("🔔 INCOMING OFFER RECEIVED!", m.body);
+      const { sdpOffer, callType } = JSON.parse(m.body);
+
+      if (rtcMap.current.has(tab.id)) return; 
+
+      const rtc = new WebRTCClient();
+      rtcMap.current.set(tab.id, rtc);
+
+      await rtc.init((c) => {
+        client.send(`/app/signaling/ice-candidate/${roomId}`, {
+          senderId: user!.id,
+          candidate: c,
+        });
+      });
+
+      await rtc.openMedia(true, callType === "video");
+      await rtc.setRemote(sdpOffer);
+
+      const answer = await rtc.createAnswer();
+      client.send(`/app/signaling/answer/${roomId}`, {
+        senderId: user!.id,
+        sdpAnswer: answer,
+      });
+      
+      console.log("📞 CALLING receiveCall() to show UI...");
+      receiveCall(callType, roomId, tab.mateUsername || "Mate", rtc, tab.id);
+    });
+
+    // Incoming Answer
+    client.subscribe(`/room/${roomId}/webrtc-answer`, async (m) => {
+      const { sdpAnswer } = JSON.parse(m.body);
+
+      const pc = rtcMap.current.get(tab.id);
+      if (!pc) return;
+      if (pc.getSignalingState() !== "have-local-offer") return; 
+
+      await pc.setRemote(sdpAnswer);
+
+      addLine(tab.id, {
+        id: `sys-${Date.now()}`,
+        content: ` Call connected!`,
+        type: "system",
+        timestamp: new Date(),
+        icon: "success",
+      });
+    });
+
+    // ICE Candidates
+    client.subscribe(`/room/${roomId}/ice-candidate`, async (m) => {
+      const { candidate } = JSON.parse(m.body);
+      const pc = rtcMap.current.get(tab.id);
+      if (pc && candidate) {
+        await pc.addIce(candidate);
+      }
+    });
+
+    // The other side hung up; the server has already dropped the cached offer/answer
+    client.subscribe(`/room/${roomId}/call-ended`, (m) => {
+      const { senderId } = JSON.parse(m.body);
+      if (senderId === user!.id || !rtcMap.current.has(tab.id)) return;
+      rtcMap.current.delete(tab.id);
+      endCall();
+    });
+  };
+
+  // Tell the room when this tab's call ends so a later call doesn't replay stale signaling
+  useEffect(() => {
+    if (call.active || !tab.roomId || !rtcMap.current.has(tab.id)) return;
+    rtcMap.current.delete(tab.id);
+    signalingRef.current?.send(`/app/signaling/end/${tab.roomId}`, {});
+  }, [call.active]);
+
   useEffect(() => {
     if (!tab.roomId || wsClient) return;
+    const roomId = tab.roomId;
 
+    const native = isTauri();
     const client = new WebSocketClient(
-      `${process.env.NEXT_PUBLIC_WS_URL}/chat`,
+      `${process.env.NEXT_PUBLIC_WS_URL}/${native ? "native/" : ""}room`,
       token!,
+      native,
     );
 
     client.connect(
       () => {
-        client.subscribe(`/room/${tab.roomId}/messages`, (msg) => {
+        client.subscribe(`/room/${roomId}/messages`, (msg) => {
           const data = JSON.parse(msg.body);
+          if (data.clientMessageId) pendingSends.current.delete(data.clientMessageId);
           addLine(tab.id, {
             id: `msg-${Date.now()}`,
             content: data.content,
@@ -49,10 +151,17 @@ export function TerminalEditor({ tab }: { tab: TerminalTab }) {
 
         addLine(tab.id, {
           id: `sys-${Date.now()}`,
-          content: `WebSocket connected. Room: ${tab.roomId}`,
+          content: `WebSocket connected. Room: ${roomId}`,
           type: "system",
           timestamp: new Date(),
         });
+
+        if (tab.type === "voice" || tab.type === "video") {
+          subscribeSignaling(client, roomId);
+        }
+
+        // Runs again on every reconnect
+        sendPending(client);
       },
       (err) => {
         addLine(tab.id, {
@@ -65,117 +174,10 @@ export function TerminalEditor({ tab }: { tab: TerminalTab }) {
     );
 
     setWsClient(client);
+    signalingRef.current = client;
     // return () => client.disconnect();
   }, [tab.roomId, token, user]);
 
-  // ================= SIGNALING SOCKET =================
-useEffect(() => {
-  const roomId = tab.roomId;
-  if (!roomId || (tab.type !== "voice" && tab.type !== "video")) return;
-  if (signalingRef.current) return;
-
-    console.log("Connecting to signaling socket for room:", roomId);
-
-    addLine(tab.id, {
-      id: `sys-${Date.now()}`,
-      content: `Connecting to signaling server...`,
-      type: "system",
-      timestamp: new Date(),
-      icon: "info",
-    });
-
-    const signaling = new WebSocketClient(
-      `${process.env.NEXT_PUBLIC_WS_URL}/signaling`,
-      token!,
-    );
-
-    signaling.connect(() => {
-      console.log("Signaling socket connected");
-
-      addLine(tab.id, {
-        id: `sys-${Date.now()}`,
-        content: `Signaling ready. Type 'call' to start ${tab.type} call.`,
-        type: "system",
-        timestamp: new Date(),
-        icon: "signal",
-      });
-
-      // Incoming Offer
-      signaling.subscribe(`/room/${roomId}/webrtc-offer`, async (m) => {
-        console.log("🔔 INCOMING OFFER RECEIVED!", m.body);
-        const { sdpOffer, callType } = JSON.parse(m.body);
-
-        if (rtcMap.current.has(tab.id)) return; 
-
-        const rtc = new WebRTCClient();
-        rtcMap.current.set(tab.id, rtc);
-
-        await rtc.init((c) => {
-          signaling.send(`/app/signaling/ice-candidate/${roomId}`, {
-            senderId: user!.id,
-            candidate: c,
-          });
-        });
-
-        await rtc.openMedia(true, callType === "video");
-        await rtc.setRemote(sdpOffer);
-
-        const answer = await rtc.createAnswer();
-        signaling.send(`/app/signaling/answer/${roomId}`, {
-          senderId: user!.id,
-          sdpAnswer: answer,
-        });
-        
-        console.log("📞 CALLING receiveCall() to show UI...");
-        receiveCall(callType, roomId, tab.mateUsername || "Mate", rtc, tab.id);
-      });
-
-      // Incoming Answer
-      signaling.subscribe(`/room/${roomId}/webrtc-answer`, async (m) => {
-        const { sdpAnswer } = JSON.parse(m.body);
-
-        const pc = rtcMap.current.get(tab.id);
-        if (!pc) return;
-        if (pc.getSignalingState() !== "have-local-offer") return; 
-
-        await pc.setRemote(sdpAnswer);
-
-        addLine(tab.id, {
-          id: `sys-${Date.now()}`,
-          content: ` Call connected!`,
-          type: "system",
-          timestamp: new Date(),
-          icon: "success",
-        });
-      });
-
-      // ICE Candidates
-      signaling.subscribe(`/room/${roomId}/ice-candidate`, async (m) => {
-        const { candidate } = JSON.parse(m.body);
-        const pc = rtcMap.current.get(tab.id);
-        if (pc && candidate) {
-          await pc.addIce(candidate);
-        }
-      });
-    }, (err) => {
-      console.error("Signaling error:", err);
-      addLine(tab.id, {
-        id: `err-${Date.now()}`,
-        content: `Signaling failed. Check connection.`,
-        type: "error",
-        timestamp: new Date(),
-        icon: "error",
-      });
-    });
-
-    signalingRef.current = signaling;
-
-    // return () => {
-    //   signaling.disconnect();
-    //   signalingRef.current = null;
-    // };
-  }, [tab.roomId, tab.type, token, user]);
-
   // ================= COMMAND HANDLER =================
   const handleCommand = async (input: string) => {
     if (!input.trim()) return;
@@ -351,12 +353,32 @@ useEffect(() => {
         timestamp: new Date(),
       });
     } else {
-      if (wsClient && wsClient.isReady()) {
-        wsClient.send(`/app/chat/send/${tab.roomId}`, {
+      if (wsClient) {
+        const clientMessageId = crypto.randomUUID();
+        const body = {
           senderId: user!.id,
           senderUsername: user!.displayName,
           content: input,
-        });
+          clientMessageId,
+        };
+        pendingSends.current.set(clientMessageId, { roomId: tab.roomId, body });
+        let sent = false;
+        if (wsClient.isReady()) {
+          try {
+            wsClient.send(`/app/chat/send/${tab.roomId}`, body);
+            sent = true;
+          } catch {
+            // Connection dropped; resent on reconnect
+          }
+        }
+        if (!sent) {
+          addLine(tab.id, {
+            id: `sys-${Date.now()}`,
+            content: `Offline; message will be sent on reconnect.`,
+            type: "system",
+            timestamp: new Date(),
+          });
+        }
       } else {
         addLine(tab.id, {
           id: `msg-${Date.now()}`,
@@ -11,6 +11,9 @@ export interface User {
 export interface AuthStore {
   user: User | null;
   token: string | null;
+  refreshToken: string | null;
+  // Epoch millis when the access token expires
+  tokenExpiresAt: number | null;
   isAuthenticated: boolean;
   isLoading: boolean;
 
@@ -19,6 +22,8 @@ export interface AuthStore {
 
   setUser: (user: User | null) => void;
   setToken: (token: string | null) => void;
+  setTokens: (token: string, refreshToken: string, expiresIn: number) => void;
+  refreshSession: () => Promise<void>;
   setIsLoading: (loading: boolean) => void;
   login: (
     googleId: string,
@@ -30,11 +35,35 @@ export interface AuthStore {
   updateDisplayName: (displayName: string) => Promise<void>;
 }
 
+// Renew the access token a minute before it expires
+const REFRESH_MARGIN_MS = 60_000;
+let refreshTimer: ReturnType<typeof setTimeout> | undefined;
+
+const withRefreshLock = (refresh: () => Promise<void>): Promise<void> =>
+  typeof navigator !== "undefined" && navigator.locks
+    ? navigator.locks.request("auth-refresh", refresh)
+    : refresh();
+
+const scheduleRefresh = (tokenExpiresAt: number) => {
+  clearTimeout(refreshTimer);
+  refreshTimer = setTimeout(
+    () => {
+      useAuthStore
+        .getState()
+        .refreshSession()
+        .catch((error) => console.error("Token refresh failed:", error));
+    },
+    Math.max(0, tokenExpiresAt - Date.now() - REFRESH_MARGIN_MS),
+  );
+};
+
 export const useAuthStore = create<AuthStore>()(
   persist(
     (set, get) => ({
       user: null,
       token: null,
+      refreshToken: null,
+      tokenExpiresAt: null,
       isAuthenticated: false,
       isLoading: false, // ✅ This is fine
       hasHydrated: false,
@@ -53,6 +82,43 @@ export const useAuthStore = create<AuthStore>()(
         set({ token });
       },
 
+      setTokens: (token: string, refreshToken: string, expiresIn: number) => {
+        const tokenExpiresAt = Date.now() + expiresIn * 1000;
+        set({ token, refreshToken, tokenExpiresAt });
+        scheduleRefresh(tokenExpiresAt);
+      },
+
+      // Trades the refresh token for a new pair; a rejected one ends the session.
+      // Refresh tokens are single-use and a reused one revokes every session, so
+      // tabs take turns and pick up a pair another tab already fetched.
+      refreshSession: () =>
+        withRefreshLock(async () => {
+          await useAuthStore.persist.rehydrate();
+          const { refreshToken, tokenExpiresAt } = get();
+          if (!refreshToken) return;
+          if (tokenExpiresAt && tokenExpiresAt - Date.now() > REFRESH_MARGIN_MS) {
+            scheduleRefresh(tokenExpiresAt);
+            return;
+          }
+
+          const response = await fetch(
+            `${process.env.NEXT_PUBLIC_API_URL}/auth/refresh`,
+            {
+              method: "POST",
+              headers: { "Content-Type": "application/json" },
+              body: JSON.stringify({ refreshToken }),
+            },
+          );
+          if (response.status === 401) {
+            get().logout();
+            return;
+          }
+          if (!response.ok) throw new Error("Token refresh failed");
+
+          const data = await response.json();
+          get().setTokens(data.token, data.refreshToken, data.expiresIn);
+        }),
+
       setIsLoading: (isLoading: boolean) => set({ isLoading }),
 
       // WEB: Async login via API
@@ -88,9 +154,9 @@ export const useAuthStore = create<AuthStore>()(
               displayName: data.displayName,
               profilePicture: data.profilePicture,
             },
-            token: data.token,
             isAuthenticated: true,
           });
+          get().setTokens(data.token, data.refreshToken, data.expiresIn);
         } finally {
           set({ isLoading: false });
         }
@@ -98,7 +164,26 @@ export const useAuthStore = create<AuthStore>()(
 
       logout: () => {
         console.log("🚪 Logging out...");
-        set({ user: null, token: null, isAuthenticated: false });
+        const { token, refreshToken } = get();
+        if (token || refreshToken) {
+          // Best effort: revoke both tokens server-side
+          fetch(`${process.env.NEXT_PUBLIC_API_URL}/auth/logout`, {
+            method: "POST",
+            headers: {
+              "Content-Type": "application/json",
+              ...(token ? { Authorization: `Bearer ${token}` } : {}),
+            },
+            body: JSON.stringify({ refreshToken }),
+          }).catch(() => {});
+        }
+        clearTimeout(refreshTimer);
+        set({
+          user: null,
+          token: null,
+          refreshToken: null,
+          tokenExpiresAt: null,
+          isAuthenticated: false,
+        });
       },
 
       updateDisplayName: async (displayName: string) => {
@@ -133,6 +218,7 @@ export const useAuthStore = create<AuthStore>()(
         state?.setHasHydrated(true);
         // ✅ ADD THIS: Always reset loading state on hydration
         state?.setIsLoading(false);
+        if (state?.tokenExpiresAt) scheduleRefresh(state.tokenExpiresAt);
       },
     },
   ),
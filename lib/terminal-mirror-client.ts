@@ -0,0 +1,162 @@
+// Terminal mirroring over /ws/terminal. Binary protocol, big-endian; a cell is a
+// UTF-16 code unit plus one attribute byte. See TerminalMirrorService on the backend.
+
+const HOST_SCREEN = 0x10
+const HOST_UPDATE = 0x11
+const KEYFRAME = 0x01
+const DELTA = 0x02
+const END = 0x03
+const CELL_BYTES = 3
+
+export interface TerminalScreen {
+  cols: number
+  rows: number
+  chars: Uint16Array
+  attrs: Uint8Array
+}
+
+const mirrorUrl = (baseUrl: string, roomId: string, token: string, role: 'host' | 'viewer') =>
+  `${baseUrl.replace(/^http/, 'ws')}/terminal?roomId=${encodeURIComponent(roomId)}`
+  + `&token=${encodeURIComponent(token)}&role=${role}`
+
+// ===== HOST =====
+export class TerminalMirrorHost {
+  private ws: WebSocket
+  private previous?: TerminalScreen
+
+  constructor(baseUrl: string, roomId: string, token: string) {
+    this.ws = new WebSocket(mirrorUrl(baseUrl, roomId, token, 'host'))
+    this.ws.binaryType = 'arraybuffer'
+  }
+
+  // Sends the whole screen on the first call or a resize, otherwise only changed runs
+  publish(screen: TerminalScreen) {
+    if (this.ws.readyState !== WebSocket.OPEN) return
+
+    const prev = this.previous
+    if (!prev || prev.cols !== screen.cols || prev.rows !== screen.rows) {
+      const view = new DataView(new ArrayBuffer(5 + screen.chars.length * CELL_BYTES))
+      view.setUint8(0, HOST_SCREEN)
+      view.setUint16(1, screen.cols)
+      view.setUint16(3, screen.rows)
+      writeCells(view, 5, screen, 0, screen.chars.length)
+      this.ws.send(view.buffer)
+    } else {
+      const runs: [number, number][] = []
+      for (let i = 0; i < screen.chars.length; i++) {
+        if (screen.chars[i] === prev.chars[i] && screen.attrs[i] === prev.attrs[i]) continue
+        const last = runs[runs.length - 1]
+        if (last && i - (last[0] + last[1]) <= 2 && last[1] < 0xffff) {
+          last[1] = i - last[0] + 1
+        } else {
+          runs.push([i, 1])
+        }
+      }
+      if (runs.length === 0) return
+
+      const size = 3 + runs.reduce((n, [, len]) => n + 6 + len * CELL_BYTES, 0)
+      const view = new DataView(new ArrayBuffer(size))
+      view.setUint8(0, HOST_UPDATE)
+      view.setUint16(1, Math.min(runs.length, 0xffff))
+      let pos = 3
+      for (const [offset, length] of runs.slice(0, 0xffff)) {
+        view.setUint32(pos, offset)
+        view.setUint16(pos + 4, length)
+        pos = writeCells(view, pos + 6, screen, offset, length)
+      }
+      this.ws.send(view.buffer.slice(0, pos))
+    }
+
+    this.previous = {
+      cols: screen.cols,
+      rows: screen.rows,
+      chars: screen.chars.slice(),
+      attrs: screen.attrs.slice(),
+    }
+  }
+
+  close() {
+    this.ws.close()
+  }
+}
+
+// ===== VIEWER =====
+export class TerminalMirrorViewer {
+  private ws: WebSocket
+  private keyframe?: TerminalScreen
+  private keyframeSeq = -1
+
+  constructor(
+    baseUrl: string,
+    roomId: string,
+    token: string,
+    private onScreen: (screen: TerminalScreen) => void,
+    private onEnd?: () => void,
+  ) {
+    this.ws = new WebSocket(mirrorUrl(baseUrl, roomId, token, 'viewer'))
+    this.ws.binaryType = 'arraybuffer'
+    this.ws.onmessage = (e) => this.handle(new DataView(e.data as ArrayBuffer))
+  }
+
+  private handle(view: DataView) {
+    const type = view.getUint8(0)
+
+    if (type === KEYFRAME) {
+      const cols = view.getUint16(5)
+      const rows = view.getUint16(7)
+      const screen = emptyScreen(cols, rows)
+      readCells(view, 9, screen, 0, cols * rows)
+      this.keyframe = screen
+      this.keyframeSeq = view.getUint32(1)
+      this.onScreen(screen)
+    } else if (type === DELTA) {
+      // Deltas apply to the keyframe, not the previous delta; skip until we have it
+      if (!this.keyframe || view.getUint32(5) !== this.keyframeSeq) return
+      const screen: TerminalScreen = {
+        ...this.keyframe,
+        chars: this.keyframe.chars.slice(),
+        attrs: this.keyframe.attrs.slice(),
+      }
+      const runs = view.getUint16(9)
+      let pos = 11
+      for (let r = 0; r < runs; r++) {
+        const offset = view.getUint32(pos)
+        const length = view.getUint16(pos + 4)
+        pos = readCells(view, pos + 6, screen, offset, length)
+      }
+      this.onScreen(screen)
+    } else if (type === END) {
+      this.keyframe = undefined
+      this.onEnd?.()
+    }
+  }
+
+  close() {
+    this.ws.close()
+  }
+}
+
+export const emptyScreen = (cols: number, rows: number): TerminalScreen => ({
+  cols,
+  rows,
+  chars: new Uint16Array(cols * rows).fill(0x20),
+  attrs: new Uint8Array(cols * rows),
+})
+
+function writeCells(view: DataView, pos: number, screen: TerminalScreen, offset: number, length: number) {
+  for (let i = offset; i < offset + length; i++) {
+    view.setUint16(pos, screen.chars[i])
+    view.setUint8(pos + 2, screen.attrs[i])
+    pos += CELL_BYTES
+  }
+  return pos
+}
+
+function readCells(view: DataView, pos: number, screen: TerminalScreen, offset: number, length: number) {
+  for (let i = offset; i < offset + length; i++) {
+    screen.chars[i] = view.getUint16(pos)
+    screen.attrs[i] = view.getUint8(pos + 2)
+    pos += CELL_BYTES
+  }
+  return pos
+}
@@ -10,9 +10,12 @@ export class WebSocketClient {
   private lastPing = 0
   private pingTimer?: NodeJS.Timeout
 
-  constructor(private url: string, private token: string) {
+  // native: plain WebSocket against a /ws/native/* endpoint instead of SockJS
+  constructor(private url: string, private token: string, private native = false) {
     this.client = new Client({
-      webSocketFactory: () => new SockJS(this.url),
+      ...(this.native
+        ? { brokerURL: this.url.replace(/^http/, 'ws') }
+        : { webSocketFactory: () => new SockJS(this.url) }),
       connectHeaders: {
         Authorization: `Bearer ${this.token}`,
       },